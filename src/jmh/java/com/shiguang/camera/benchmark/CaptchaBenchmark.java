@@ -0,0 +1,46 @@
+package com.shiguang.camera.benchmark;
+
+import com.shiguang.camera.service.CaptchaService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 手机号格式校验基准测试，合法与非法号码各占一半
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CaptchaBenchmark {
+
+    private static final String[] PHONES = {
+            "13800138000", "12800138000", "19912345678", "1380013800a"
+    };
+
+    private CaptchaService captchaService;
+
+    @Setup
+    public void setUp() {
+        captchaService = new CaptchaService(null);
+    }
+
+    @Benchmark
+    public void validatePhone(Blackhole blackhole) {
+        for (String phone : PHONES) {
+            blackhole.consume(captchaService.validatePhone(phone));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.shiguang.camera.benchmark;
+
+import com.shiguang.camera.utils.IdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单号生成吞吐量基准测试（目标：单节点 > 100万/秒）
+ * legacyOrderNo 为原先 LocalDateTime.format + Random 的实现，作为对照
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    private IdGenerator idGenerator;
+    private Random random;
+
+    @Setup
+    public void setUp() {
+        idGenerator = new IdGenerator(1);
+        random = new Random();
+    }
+
+    @Benchmark
+    public String nextOrderNo() {
+        return idGenerator.nextOrderNo();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String nextOrderNoContended() {
+        return idGenerator.nextOrderNo();
+    }
+
+    @Benchmark
+    public String legacyOrderNo() {
+        String timeStr = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
+        int randomNum = random.nextInt(10000);
+        return "ORD" + timeStr + String.format("%04d", randomNum);
+    }
+}
@@ -0,0 +1,64 @@
+package com.shiguang.camera.benchmark;
+
+import com.shiguang.camera.service.TokenService;
+import com.shiguang.camera.utils.JwtUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT 生成与校验基准测试
+ * verifyTokenRaw 为引入校验缓存前 TokenService 的路径（validateToken + getUserIdFromToken 两次解析），
+ * verifyTokenCached 为 TokenService 命中校验缓存后的路径
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private JwtUtil jwtUtil;
+    private TokenService tokenService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        Stubs.setField(jwtUtil, "secret", "camera-rental-secret-key-2024");
+        Stubs.setField(jwtUtil, "expiration", 604800L);
+        tokenService = new TokenService(jwtUtil, 50000L);
+        token = jwtUtil.generateToken(10001, "13800138000");
+        tokenService.verifyToken(token);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(10001, "13800138000");
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public Integer verifyTokenRaw() {
+        return jwtUtil.validateToken(token) ? jwtUtil.getUserIdFromToken(token) : null;
+    }
+
+    @Benchmark
+    public Integer verifyTokenCached() {
+        return tokenService.verifyToken(token);
+    }
+}
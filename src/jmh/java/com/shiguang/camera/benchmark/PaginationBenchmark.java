@@ -0,0 +1,129 @@
+package com.shiguang.camera.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 设备实例列表分页基准测试：偏移分页（LIMIT offset + COUNT）与游标分页（seek）
+ * 直接用 JDBC 访问 MySQL，需要已有足够数据的 camera_instance 表（第 10000 页约 20 万行）。
+ * 连接参数可用 -Dbench.jdbc.url / -Dbench.jdbc.user / -Dbench.jdbc.password 覆盖，默认与 application.yml 一致。
+ * 建议在 camera_instance 上建立 (create_time, id) 联合索引。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaginationBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    private static final String OFFSET_SQL = "SELECT * FROM camera_instance WHERE status <> 4 " +
+            "ORDER BY create_time DESC LIMIT ?, ?";
+
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM camera_instance WHERE status <> 4";
+
+    private static final String SEEK_SQL = "SELECT * FROM camera_instance WHERE status <> 4 " +
+            "AND (create_time < ? OR (create_time = ? AND id < ?)) " +
+            "ORDER BY create_time DESC, id DESC LIMIT ?";
+
+    private static final String FIRST_SQL = "SELECT * FROM camera_instance WHERE status <> 4 " +
+            "ORDER BY create_time DESC, id DESC LIMIT ?";
+
+    @Param({"1", "100", "10000"})
+    private int page;
+
+    private Connection connection;
+
+    // 目标页前一条记录的位置，第一页为 null
+    private Timestamp cursorTime;
+    private int cursorId;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("bench.jdbc.url", "jdbc:mysql://localhost:3306/camera_rental" +
+                        "?useUnicode=true&characterEncoding=utf-8&serverTimezone=Asia/Shanghai"),
+                System.getProperty("bench.jdbc.user", "root"),
+                System.getProperty("bench.jdbc.password", "123456"));
+        if (page == 1) {
+            return;
+        }
+        // 定位目标页的游标（相当于客户端持有的 nextCursor）
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT create_time, id FROM camera_instance WHERE status <> 4 " +
+                        "ORDER BY create_time DESC, id DESC LIMIT ?, 1")) {
+            statement.setInt(1, (page - 1) * PAGE_SIZE - 1);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (!rs.next()) {
+                    throw new IllegalStateException("camera_instance 数据不足，无法定位第 " + page + " 页");
+                }
+                cursorTime = rs.getTimestamp(1);
+                cursorId = rs.getInt(2);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public void offset(Blackhole blackhole) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(OFFSET_SQL)) {
+            statement.setInt(1, (page - 1) * PAGE_SIZE);
+            statement.setInt(2, PAGE_SIZE);
+            consume(statement, blackhole);
+        }
+        try (PreparedStatement statement = connection.prepareStatement(COUNT_SQL)) {
+            consume(statement, blackhole);
+        }
+    }
+
+    @Benchmark
+    public void seek(Blackhole blackhole) throws SQLException {
+        if (cursorTime == null) {
+            try (PreparedStatement statement = connection.prepareStatement(FIRST_SQL)) {
+                statement.setInt(1, PAGE_SIZE + 1);
+                consume(statement, blackhole);
+            }
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(SEEK_SQL)) {
+            statement.setTimestamp(1, cursorTime);
+            statement.setTimestamp(2, cursorTime);
+            statement.setInt(3, cursorId);
+            statement.setInt(4, PAGE_SIZE + 1);
+            consume(statement, blackhole);
+        }
+    }
+
+    private static void consume(PreparedStatement statement, Blackhole blackhole) throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                blackhole.consume(rs.getObject(1));
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.shiguang.camera.benchmark;
+
+import com.shiguang.camera.annotation.Permission;
+import com.shiguang.camera.annotation.RequireAdmin;
+import com.shiguang.camera.aspect.PermissionAspect;
+import com.shiguang.camera.entity.User;
+import com.shiguang.camera.exception.BusinessException;
+import com.shiguang.camera.metrics.MethodMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpServletRequest;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 权限检查切面基准测试（目标：比原实现快10倍以上）
+ * legacyCheck 为重构前的实现：每次调用都解析注解并拼接多条日志
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermissionAspectBenchmark {
+
+    private PermissionAspect aspect;
+    private JoinPoint joinPoint;
+
+    @Setup
+    public void setUp() throws Exception {
+        // 只启用 service.impl 包的指标，切面计时器为空实现，与旧实现对比时不计入指标开销
+        MethodMetrics methodMetrics = new MethodMetrics(new SimpleMeterRegistry(), new String[]{"service.impl"});
+        aspect = new PermissionAspect();
+        Stubs.setField(aspect, "methodMetrics", methodMetrics);
+        aspect.initMetrics();
+
+        Method method = AdminController.class.getMethod("listUsers");
+        MethodSignature signature = Stubs.mapper(MethodSignature.class, (proxy, m, args) -> {
+            if ("getMethod".equals(m.getName())) {
+                return method;
+            }
+            throw new UnsupportedOperationException(m.getName());
+        });
+        joinPoint = Stubs.mapper(JoinPoint.class, (proxy, m, args) -> {
+            if ("getSignature".equals(m.getName())) {
+                return signature;
+            }
+            throw new UnsupportedOperationException(m.getName());
+        });
+
+        User admin = new User();
+        admin.setId(1);
+        admin.setRoleId(1);
+        admin.setIsVerified(1);
+        HttpServletRequest request = Stubs.mapper(HttpServletRequest.class, (proxy, m, args) -> {
+            switch (m.getName()) {
+                case "getAttribute":
+                    return "user".equals(args[0]) ? admin : null;
+                case "getRequestURI":
+                    return "/api/admin/users";
+                default:
+                    throw new UnsupportedOperationException(m.getName());
+            }
+        });
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @TearDown
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public void check() {
+        aspect.checkPermission(joinPoint);
+    }
+
+    @Benchmark
+    public void legacyCheck() {
+        LegacyPermissionCheck.check(joinPoint);
+    }
+
+    public static class AdminController {
+        @RequireAdmin
+        public void listUsers() {
+        }
+    }
+
+    /**
+     * 重构前的权限检查逻辑（去掉了计时器和空的归属权检查）
+     */
+    private static final class LegacyPermissionCheck {
+        private static final Logger log = LoggerFactory.getLogger(PermissionAspect.class);
+
+        private static void check(JoinPoint joinPoint) {
+            Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+            Permission effectivePermission = getEffectivePermission(method);
+            if (effectivePermission == null) {
+                log.warn("🔐 方法上没有找到有效的权限注解，跳过权限检查");
+                return;
+            }
+
+            log.info("🔐 === AOP权限检查开始 ===");
+            log.info("🔐 检查权限注解: {}", effectivePermission.value());
+            log.info("🔐 需要实名认证: {}", effectivePermission.requireVerified());
+
+            ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+            HttpServletRequest request = attributes != null ? attributes.getRequest() : null;
+            if (request != null) {
+                log.info("🔐 请求路径: {}", request.getRequestURI());
+            }
+
+            User user = request != null ? (User) request.getAttribute("user") : null;
+            if (user == null) {
+                throw new BusinessException("用户未登录");
+            }
+
+            log.info("🔐 当前用户: ID={}, 角色={}, 实名状态={}",
+                    user.getId(), user.getRoleId(), user.isVerified());
+
+            if (effectivePermission.requireVerified() && !user.isVerified()) {
+                throw new BusinessException("需要实名认证才能进行此操作");
+            }
+
+            log.info("🔐 检查角色权限，需要: {}", effectivePermission.value());
+            switch (effectivePermission.value()) {
+                case ADMIN:
+                    if (!user.isAdmin()) {
+                        throw new BusinessException("需要管理员权限");
+                    }
+                    log.info("🔐 ✅ 管理员权限验证通过");
+                    break;
+                case USER:
+                    if (!user.isUser()) {
+                        throw new BusinessException("需要普通用户权限");
+                    }
+                    log.info("🔐 ✅ 普通用户权限验证通过");
+                    break;
+                default:
+                    log.info("🔐 ✅ 任何登录用户都可以访问");
+                    break;
+            }
+
+            log.info("🔐 ✅ 权限检查通过");
+        }
+
+        private static Permission getEffectivePermission(Method method) {
+            Permission directPermission = AnnotationUtils.findAnnotation(method, Permission.class);
+            if (directPermission != null) {
+                return directPermission;
+            }
+            for (Annotation annotation : method.getAnnotations()) {
+                Permission metaPermission = AnnotationUtils.findAnnotation(annotation.annotationType(), Permission.class);
+                if (metaPermission != null) {
+                    return metaPermission;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.shiguang.camera.benchmark;
+
+import com.shiguang.camera.utils.RateLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 限流检查吞吐量基准测试（目标：8线程 > 500万次/秒）
+ * 8192个键均匀分布，模拟大量手机号/用户同时请求
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    private static final int KEY_COUNT = 8192;
+
+    private RateLimiter rateLimiter;
+    private String[] keys;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+    }
+
+    @Setup
+    public void setUp() {
+        rateLimiter = new RateLimiter(100000);
+        keys = new String[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys[i] = "login:138" + String.format("%08d", i);
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean tryAcquire(Cursor cursor) {
+        String key = keys[cursor.next++ & (KEY_COUNT - 1)];
+        return rateLimiter.tryAcquire(key, 5, 1);
+    }
+}
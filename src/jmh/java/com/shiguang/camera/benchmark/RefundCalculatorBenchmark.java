@@ -0,0 +1,100 @@
+package com.shiguang.camera.benchmark;
+
+import com.shiguang.camera.cache.ConfigSnapshot;
+import com.shiguang.camera.entity.Order;
+import com.shiguang.camera.entity.Reservation;
+import com.shiguang.camera.entity.SystemConfig;
+import com.shiguang.camera.mapper.SystemConfigMapper;
+import com.shiguang.camera.service.RefundCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 退款计算基准测试
+ * 配置表由桩 Mapper 提供，预先加载到 ConfigSnapshot 后退款计算不再访问 Mapper
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RefundCalculatorBenchmark {
+
+    private RefundCalculator refundCalculator;
+    private Reservation reservation;
+    private Order order;
+    private LocalDateTime cancelTime;
+    private LocalDateTime returnTime;
+
+    @Setup
+    public void setUp() {
+        List<SystemConfig> configs = new ArrayList<>();
+        configs.add(config("refund_0_3_hours_rate", "0.3"));
+        configs.add(config("refund_3_6_hours_rate", "0.5"));
+        configs.add(config("refund_6_12_hours_rate", "0.7"));
+        configs.add(config("early_return_12_24_rate", "0.5"));
+        SystemConfigMapper systemConfigMapper = Stubs.mapper(SystemConfigMapper.class, (proxy, method, args) ->
+                "selectList".equals(method.getName()) ? configs : null);
+        ConfigSnapshot configSnapshot = new ConfigSnapshot(systemConfigMapper);
+        configSnapshot.reload();
+        refundCalculator = new RefundCalculator(configSnapshot);
+
+        LocalDate startDate = LocalDate.now().plusDays(1);
+        reservation = new Reservation();
+        reservation.setId(1);
+        reservation.setStartDate(startDate);
+        reservation.setStartTime(LocalTime.of(10, 0));
+        reservation.setRentalAmount(new BigDecimal("597.00"));
+        // 距取货约5小时，命中 3-6 小时的阶梯比例
+        cancelTime = startDate.atTime(5, 0);
+
+        order = new Order();
+        order.setId(1);
+        order.setStartDate(LocalDate.now().minusDays(1));
+        order.setEndDate(LocalDate.now().plusDays(3));
+        order.setTotalDays(5);
+        order.setDailyPrice(new BigDecimal("199.00"));
+        order.setTotalPrice(new BigDecimal("995.00"));
+        order.setDeposit(new BigDecimal("2000.00"));
+        returnTime = LocalDateTime.now();
+    }
+
+    private static SystemConfig config(String key, String value) {
+        SystemConfig config = new SystemConfig();
+        config.setConfigKey(key);
+        config.setConfigValue(value);
+        return config;
+    }
+
+    @Benchmark
+    public BigDecimal calculateReservationRefund() {
+        return refundCalculator.calculateReservationRefund(reservation, cancelTime);
+    }
+
+    @Benchmark
+    public BigDecimal calculateEarlyReturnRefund() {
+        return refundCalculator.calculateEarlyReturnRefund(order, returnTime);
+    }
+
+    @Benchmark
+    public BigDecimal calculateOrderRefund() {
+        return refundCalculator.calculateOrderRefund(order, "用户主动取消");
+    }
+}
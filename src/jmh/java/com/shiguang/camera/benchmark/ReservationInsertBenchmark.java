@@ -0,0 +1,105 @@
+package com.shiguang.camera.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 预订设备关联写入基准测试：逐行 INSERT 与单条多值 INSERT，分别对应 1、10、100 台设备的预订
+ * 每次调用在一个事务内写入后回滚，不留下数据（与 createReservation 中关联写入所处的事务一致）。
+ * 直接用 JDBC 访问 MySQL，需要已建好 reservation_instances 表（无外键约束时可直接运行）。
+ * 连接参数可用 -Dbench.jdbc.url / -Dbench.jdbc.user / -Dbench.jdbc.password 覆盖，默认与 application.yml 一致。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReservationInsertBenchmark {
+
+    private static final String SINGLE_SQL =
+            "INSERT INTO reservation_instances (reservation_id, instance_id) VALUES (?, ?)";
+
+    // 预订ID取一个业务中不会出现的值
+    private static final int RESERVATION_ID = Integer.MAX_VALUE;
+
+    @Param({"1", "10", "100"})
+    private int units;
+
+    private Connection connection;
+
+    private String multiSql;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("bench.jdbc.url", "jdbc:mysql://localhost:3306/camera_rental" +
+                        "?useUnicode=true&characterEncoding=utf-8&serverTimezone=Asia/Shanghai"),
+                System.getProperty("bench.jdbc.user", "root"),
+                System.getProperty("bench.jdbc.password", "123456"));
+        connection.setAutoCommit(false);
+
+        StringBuilder sql = new StringBuilder("INSERT INTO reservation_instances (reservation_id, instance_id) VALUES ");
+        for (int i = 0; i < units; i++) {
+            sql.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+        }
+        multiSql = sql.toString();
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.rollback();
+        connection.close();
+    }
+
+    /**
+     * 原实现：每台设备一条 INSERT、一次往返
+     */
+    @Benchmark
+    public int rowByRow() throws SQLException {
+        int affected = 0;
+        for (int i = 1; i <= units; i++) {
+            try (PreparedStatement statement = connection.prepareStatement(SINGLE_SQL)) {
+                statement.setInt(1, RESERVATION_ID);
+                statement.setInt(2, i);
+                affected += statement.executeUpdate();
+            }
+        }
+        connection.rollback();
+        return affected;
+    }
+
+    /**
+     * 现实现：一条多值 INSERT
+     */
+    @Benchmark
+    public int multiValues() throws SQLException {
+        int affected;
+        try (PreparedStatement statement = connection.prepareStatement(multiSql)) {
+            int index = 1;
+            for (int i = 1; i <= units; i++) {
+                statement.setInt(index++, RESERVATION_ID);
+                statement.setInt(index++, i);
+            }
+            affected = statement.executeUpdate();
+        }
+        connection.rollback();
+        return affected;
+    }
+}
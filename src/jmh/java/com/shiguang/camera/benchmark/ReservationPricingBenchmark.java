@@ -0,0 +1,49 @@
+package com.shiguang.camera.benchmark;
+
+import com.shiguang.camera.utils.PriceUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 创建预订时的价格计算基准测试（与 ReservationServiceImpl.createReservation 第8步一致）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReservationPricingBenchmark {
+
+    private BigDecimal dailyPrice;
+    private BigDecimal deposit;
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    @Setup
+    public void setUp() {
+        dailyPrice = new BigDecimal("199.00");
+        deposit = new BigDecimal("2000.00");
+        startDate = LocalDate.now().plusDays(1);
+        endDate = startDate.plusDays(2);
+    }
+
+    @Benchmark
+    public BigDecimal createReservationPricing() {
+        long days = PriceUtils.rentalDays(startDate, endDate);
+        BigDecimal rentalAmount = PriceUtils.rentalAmount(dailyPrice, days);
+        return PriceUtils.totalAmount(rentalAmount, deposit);
+    }
+}
@@ -0,0 +1,69 @@
+package com.shiguang.camera.benchmark;
+
+import com.shiguang.camera.search.TextIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 设备实例关键词搜索基准测试：100万条序列号/资产标签/备注的二元组倒排索引
+ * search 为排序后取前20条，candidates 为列表筛选（候选上限5000）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class SearchIndexBenchmark {
+
+    private static final int DOCS = 1_000_000;
+
+    private static final String[] NOTES = {
+            "镜头有轻微划痕", "电池续航正常", "快门偶有异响", "外观九成新", "配件齐全",
+            "屏幕已贴膜", "传感器已清洁", "取景器有灰", "机身磨损", "附赠相机包"
+    };
+
+    // 序列号片段、资产标签、中文备注
+    @Param({"sn1234", "AT-123456", "快门异响", "镜头"})
+    private String keyword;
+
+    private TextIndex index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        index = new TextIndex("instances", 3, 2, 1);
+        TextIndex.Builder builder = index.builder();
+        StringBuilder serial = new StringBuilder();
+        for (int id = 1; id <= DOCS; id++) {
+            serial.setLength(0);
+            serial.append("SN").append(10_000_000 + random.nextInt(90_000_000));
+            String notes = NOTES[random.nextInt(NOTES.length)] + "，" + NOTES[random.nextInt(NOTES.length)];
+            builder.add(id, serial.toString(), "AT-" + id, notes);
+        }
+        builder.publish();
+    }
+
+    @Benchmark
+    public List<Integer> search() {
+        return index.search(keyword, 20);
+    }
+
+    @Benchmark
+    public List<Integer> candidates() {
+        return index.candidates(keyword, 5000);
+    }
+}
@@ -0,0 +1,49 @@
+package com.shiguang.camera.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 接口限流（令牌桶）
+ * 同一限流键最多连续通过 capacity 次，之后每 refillMillis 毫秒恢复一次
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RateLimit {
+
+    /**
+     * 限流器名称，不同接口互不影响
+     */
+    String name();
+
+    /**
+     * 限流键类型
+     */
+    KeyType key() default KeyType.IP;
+
+    /**
+     * key 为 PARAM 时使用的方法参数名
+     */
+    String param() default "";
+
+    /**
+     * 桶容量（允许的突发次数）
+     */
+    int capacity();
+
+    /**
+     * 恢复一次所需的毫秒数
+     */
+    long refillMillis();
+
+    /**
+     * 被限流时的提示信息
+     */
+    String message() default "请求过于频繁，请稍后再试";
+
+    enum KeyType {
+        IP,     // 客户端IP
+        USER,   // 当前登录用户ID（未登录时退化为IP）
+        PARAM   // 指定的方法参数
+    }
+}
@@ -7,28 +7,55 @@ import com.shiguang.camera.annotation.RequireUser;
 import com.shiguang.camera.annotation.RequireVerifiedUser;
 import com.shiguang.camera.entity.User;
 import com.shiguang.camera.exception.BusinessException;
+import com.shiguang.camera.metrics.MethodMetrics;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
 import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
-import org.springframework.web.context.request.ServletRequestAttributes;
 
-import javax.servlet.http.HttpServletRequest;
+import javax.annotation.PostConstruct;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 权限检查切面
+ *
+ * 启动时扫描所有控制器方法，把权限注解解析为 ResolvedPermission 存入权限表；
+ * 每次检查只做一次 Map 查找和几次字段比较，不再解析注解，也不创建对象。
+ * 通过的检查只在 DEBUG 级别按 1/PASS_LOG_SAMPLE_RATE 采样输出，拒绝的检查总是输出 WARN。
+ */
 @Slf4j
 @Aspect
 @Component
 public class PermissionAspect {
 
-    public PermissionAspect() {
-        log.info("🎯 PermissionAspect 被Spring容器创建了！");
-    }
+    // 通过日志的采样率（每N次输出一次）
+    private static final int PASS_LOG_SAMPLE_RATE = 100;
+
+    // 方法上没有有效权限注解时的占位，表示跳过检查
+    private static final ResolvedPermission NONE = new ResolvedPermission(null, null);
+
+    @Autowired
+    private MethodMetrics methodMetrics;
+
+    private Timer checkPermissionTimer;
+
+    // 方法 -> 解析后的权限要求
+    private final ConcurrentHashMap<Method, ResolvedPermission> permissionTable = new ConcurrentHashMap<>();
 
     // 单个通知方法，不绑定参数
     @Before("@annotation(com.shiguang.camera.annotation.Permission) || " +
@@ -37,128 +64,133 @@ public class PermissionAspect {
             "@annotation(com.shiguang.camera.annotation.RequireUser) || " +
             "@annotation(com.shiguang.camera.annotation.RequireVerifiedUser)")
     public void checkPermission(JoinPoint joinPoint) {
-
-        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
-        Method method = signature.getMethod();
-
-        // 获取有效的Permission注解
-        Permission effectivePermission = getEffectivePermission(method);
-        if (effectivePermission == null) {
-            log.warn("🔐 方法上没有找到有效的权限注解，跳过权限检查");
-            return;
-        }
-
-        log.info("🔐 === AOP权限检查开始 ===");
-        log.info("🔐 检查权限注解: {}", effectivePermission.value());
-        log.info("🔐 需要实名认证: {}", effectivePermission.requireVerified());
-
-        HttpServletRequest request = getCurrentRequest();
-        if (request != null) {
-            log.info("🔐 请求路径: {}", request.getRequestURI());
-        }
-
-        User user = getCurrentUser(request);
-        if (user == null) {
-            log.warn("🔐 用户未登录");
-            throw new BusinessException("用户未登录");
-        }
-
-        log.info("🔐 当前用户: ID={}, 角色={}, 实名状态={}",
-                user.getId(), user.getRoleId(), user.isVerified());
-
-        // 检查实名认证要求
-        if (effectivePermission.requireVerified() && !user.isVerified()) {
-            log.warn("🔐 用户未实名认证，拒绝访问");
-            throw new BusinessException("需要实名认证才能进行此操作");
-        }
-
-        // 检查角色权限
-        checkRolePermission(user, effectivePermission.value());
-
-        // 检查数据归属权（如果有）
-        if (effectivePermission.checkOwnership() &&
-                effectivePermission.ownershipParam() != null &&
-                !effectivePermission.ownershipParam().isEmpty()) {
-            checkDataOwnership(joinPoint, user, effectivePermission.ownershipParam());
+        long start = System.nanoTime();
+        try {
+            Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+            check(resolve(method), currentUser());
+        } finally {
+            checkPermissionTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
+    }
 
-        log.info("🔐 ✅ 权限检查通过");
+    @PostConstruct
+    public void initMetrics() {
+        checkPermissionTimer = methodMetrics.timer(PermissionAspect.class, "checkPermission", "aspect");
     }
 
     /**
-     * 获取方法上有效的Permission注解
+     * 启动完成后扫描控制器，预先构建权限表
      */
-    private Permission getEffectivePermission(Method method) {
-        // 1. 先检查方法上是否有直接的@Permission注解
-        Permission directPermission = AnnotationUtils.findAnnotation(method, Permission.class);
-        if (directPermission != null) {
-            return directPermission;
-        }
-
-        // 2. 检查其他注解（这些注解都有@Permission元注解）
-        Annotation[] annotations = method.getAnnotations();
-        for (Annotation annotation : annotations) {
-            // 使用Spring的AnnotationUtils查找元注解
-            Permission metaPermission = AnnotationUtils.findAnnotation(
-                    annotation.annotationType(), Permission.class);
-            if (metaPermission != null) {
-                return metaPermission;
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildPermissionTable(ApplicationReadyEvent event) {
+        int protectedCount = 0;
+        for (Object controller : event.getApplicationContext().getBeansWithAnnotation(RestController.class).values()) {
+            for (Method method : ClassUtils.getUserClass(controller).getDeclaredMethods()) {
+                if (resolve(method) != NONE) {
+                    protectedCount++;
+                }
             }
         }
-
-        return null;
+        log.info("权限表构建完成，受保护接口 {} 个", protectedCount);
     }
 
     /**
-     * 检查数据归属权
+     * 查找方法的权限要求，权限表中没有时（非控制器方法）解析后补入
      */
-    private void checkDataOwnership(JoinPoint joinPoint, User user, String ownershipParam) {
-        log.info("🔐 检查数据归属权，参数名: {}", ownershipParam);
+    private ResolvedPermission resolve(Method method) {
+        ResolvedPermission permission = permissionTable.get(method);
+        if (permission == null) {
+            permission = permissionTable.computeIfAbsent(method, PermissionAspect::resolvePermission);
+        }
+        return permission;
+    }
 
-        // 这里需要实现具体的参数值提取逻辑
-        // 简单示例：假设参数名是"userId"，需要检查其值是否等于当前用户ID
-        // 实际实现需要根据具体业务需求来写
+    private void check(ResolvedPermission permission, User user) {
+        if (permission == NONE) {
+            return;
+        }
 
-        log.info("🔐 ✅ 数据归属权检查通过");
-    }
+        if (user == null) {
+            throw deny(permission, null, "未登录", "用户未登录");
+        }
 
-    private void checkRolePermission(User user, Permission.RoleType requiredRole) {
-        log.info("🔐 检查角色权限，需要: {}", requiredRole);
+        // 检查实名认证要求
+        if (permission.requireVerified && !user.isVerified()) {
+            throw deny(permission, user, "未实名认证", "需要实名认证才能进行此操作");
+        }
 
-        switch (requiredRole) {
+        // 检查角色权限
+        switch (permission.role) {
             case ADMIN:
                 if (!user.isAdmin()) {
-                    log.warn("🔐 ❌ 用户不是管理员，当前角色: {}", user.getRoleId());
-                    throw new BusinessException("需要管理员权限");
+                    throw deny(permission, user, "非管理员", "需要管理员权限");
                 }
-                log.info("🔐 ✅ 管理员权限验证通过");
                 break;
             case USER:
                 if (!user.isUser()) {
-                    log.warn("🔐 ❌ 用户角色不符合要求，当前角色: {}", user.getRoleId());
-                    throw new BusinessException("需要普通用户权限");
+                    throw deny(permission, user, "非普通用户", "需要普通用户权限");
                 }
-                log.info("🔐 ✅ 普通用户权限验证通过");
                 break;
             case ANY:
-                log.info("🔐 ✅ 任何登录用户都可以访问");
                 break;
             default:
-                log.error("🔐 ❌ 未知角色要求: {}", requiredRole);
-                throw new BusinessException("未知角色要求");
+                throw deny(permission, user, "未知角色要求", "未知角色要求");
+        }
+
+        // 数据归属权检查尚未实现（Permission.checkOwnership 目前不生效）
+
+        if (log.isDebugEnabled() && ThreadLocalRandom.current().nextInt(PASS_LOG_SAMPLE_RATE) == 0) {
+            log.debug("权限检查通过(采样1/{}) method={} role={} userId={}",
+                    PASS_LOG_SAMPLE_RATE, permission.label, permission.role, user.getId());
         }
     }
 
-    private HttpServletRequest getCurrentRequest() {
-        ServletRequestAttributes attributes = (ServletRequestAttributes)
-                RequestContextHolder.getRequestAttributes();
-        return attributes != null ? attributes.getRequest() : null;
+    private BusinessException deny(ResolvedPermission permission, User user, String reason, String message) {
+        log.warn("权限检查拒绝 method={} role={} userId={} roleId={} reason={}",
+                permission.label, permission.role,
+                user != null ? user.getId() : null, user != null ? user.getRoleId() : null, reason);
+        return new BusinessException(message);
     }
 
-    private User getCurrentUser(HttpServletRequest request) {
-        if (request == null) {
+    private User currentUser() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
             return null;
         }
-        return (User) request.getAttribute("user");
+        return (User) attributes.getAttribute("user", RequestAttributes.SCOPE_REQUEST);
+    }
+
+    /**
+     * 解析方法上有效的 Permission 注解（直接注解优先，其次是带 @Permission 元注解的注解）
+     */
+    private static ResolvedPermission resolvePermission(Method method) {
+        Permission permission = AnnotationUtils.findAnnotation(method, Permission.class);
+        if (permission == null) {
+            for (Annotation annotation : method.getAnnotations()) {
+                permission = AnnotationUtils.findAnnotation(annotation.annotationType(), Permission.class);
+                if (permission != null) {
+                    break;
+                }
+            }
+        }
+        if (permission == null) {
+            return NONE;
+        }
+        return new ResolvedPermission(permission, method.getDeclaringClass().getSimpleName() + "." + method.getName());
+    }
+
+    /**
+     * 解析后的权限要求（不可变）
+     */
+    private static final class ResolvedPermission {
+        private final Permission.RoleType role;
+        private final boolean requireVerified;
+        private final String label;
+
+        private ResolvedPermission(Permission permission, String label) {
+            this.role = permission != null ? permission.value() : null;
+            this.requireVerified = permission != null && permission.requireVerified();
+            this.label = label;
+        }
     }
-}
\ No newline at end of file
+}
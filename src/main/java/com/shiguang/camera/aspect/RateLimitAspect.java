@@ -0,0 +1,83 @@
+package com.shiguang.camera.aspect;
+
+import com.shiguang.camera.annotation.RateLimit;
+import com.shiguang.camera.common.ResultCode;
+import com.shiguang.camera.exception.BusinessException;
+import com.shiguang.camera.utils.RateLimiter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpServletRequest;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 接口限流切面，处理 @RateLimit 注解
+ */
+@Slf4j
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class RateLimitAspect {
+
+    private final RateLimiter rateLimiter;
+
+    // 方法 -> 限流参数下标
+    private final ConcurrentHashMap<Method, Integer> paramIndexes = new ConcurrentHashMap<>();
+
+    @Before("@annotation(rateLimit)")
+    public void checkRateLimit(JoinPoint joinPoint, RateLimit rateLimit) {
+        String key = rateLimit.name() + ':' + resolveKey(joinPoint, rateLimit);
+        if (!rateLimiter.tryAcquire(key, rateLimit.capacity(), rateLimit.refillMillis())) {
+            log.warn("请求被限流: {}", key);
+            throw new BusinessException(ResultCode.TOO_MANY_REQUESTS.getCode(), rateLimit.message());
+        }
+    }
+
+    private String resolveKey(JoinPoint joinPoint, RateLimit rateLimit) {
+        HttpServletRequest request = getCurrentRequest();
+
+        if (rateLimit.key() == RateLimit.KeyType.PARAM) {
+            MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+            int index = paramIndexes.computeIfAbsent(signature.getMethod(),
+                    method -> indexOf(signature.getParameterNames(), rateLimit.param()));
+            Object value = index >= 0 ? joinPoint.getArgs()[index] : null;
+            if (value != null) {
+                return value.toString();
+            }
+        } else if (rateLimit.key() == RateLimit.KeyType.USER && request != null) {
+            Object userId = request.getAttribute("userId");
+            if (userId != null) {
+                return "u" + userId;
+            }
+        }
+
+        // 默认按客户端IP
+        return request != null ? request.getRemoteAddr() : "unknown";
+    }
+
+    private static int indexOf(String[] names, String name) {
+        if (names != null) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(name)) {
+                    return i;
+                }
+            }
+        }
+        log.warn("限流参数 {} 不存在，改为按IP限流", name);
+        return -1;
+    }
+
+    private HttpServletRequest getCurrentRequest() {
+        ServletRequestAttributes attributes = (ServletRequestAttributes)
+                RequestContextHolder.getRequestAttributes();
+        return attributes != null ? attributes.getRequest() : null;
+    }
+}
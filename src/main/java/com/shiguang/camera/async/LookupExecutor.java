@@ -0,0 +1,175 @@
+package com.shiguang.camera.async;
+
+import com.shiguang.camera.common.ResultCode;
+import com.shiguang.camera.exception.BusinessException;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 并行执行相互独立的查询（详情接口的用户、型号、设备实例等）
+ *
+ * 固定大小的线程池加有界队列，线程数应小于数据库连接池，给请求线程留出连接；队列满时由调用线程直接执行，
+ * 退化为串行而不是拒绝。提交时捕获请求上下文（RequestAttributes，其中有 userId 等）和 MDC（traceId 等），
+ * 在工作线程中恢复，执行完还原。工作线程内再次提交时直接在当前线程执行，避免池内互相等待造成死锁。
+ * 等待结果有超时（默认 app.lookup.timeout-ms），超时抛出业务异常，不会无限占用请求线程。
+ */
+@Component
+public class LookupExecutor {
+
+    private static final String THREAD_PREFIX = "lookup-";
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder callerRuns = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    public LookupExecutor(@Value("${app.lookup.pool-size:4}") int poolSize,
+                          @Value("${app.lookup.queue-capacity:200}") int queueCapacity,
+                          @Value("${app.lookup.timeout-ms:3000}") long timeoutMs) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, THREAD_PREFIX + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> {
+                    callerRuns.increment();
+                    if (!pool.isShutdown()) {
+                        runnable.run();
+                    }
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.timeoutMs = timeoutMs;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 异步执行，工作线程中可以读取提交时的请求上下文
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> supplier) {
+        submitted.increment();
+        if (Thread.currentThread().getName().startsWith(THREAD_PREFIX)) {
+            return completedOrFailed(supplier);
+        }
+        return CompletableFuture.supplyAsync(withContext(supplier), executor);
+    }
+
+    /**
+     * 异步执行无返回值的操作
+     */
+    public CompletableFuture<Void> run(Runnable action) {
+        return supply(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * 按默认超时等待结果
+     */
+    public <T> T join(CompletableFuture<T> future) {
+        return join(future, timeoutMs);
+    }
+
+    /**
+     * 等待结果：任务抛出的运行时异常原样抛出，超时抛出业务异常
+     */
+    public <T> T join(CompletableFuture<T> future, long timeoutMs) {
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            future.cancel(false);
+            throw new BusinessException(ResultCode.FAIL.getCode(), "查询超时，请稍后重试");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ResultCode.FAIL.getCode(), "查询被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (CancellationException e) {
+            throw new BusinessException(ResultCode.FAIL.getCode(), "查询已取消");
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("poolSize", executor.getPoolSize());
+        result.put("activeCount", executor.getActiveCount());
+        result.put("queueSize", executor.getQueue().size());
+        result.put("completedTaskCount", executor.getCompletedTaskCount());
+        result.put("submitted", submitted.sum());
+        result.put("callerRuns", callerRuns.sum());
+        result.put("timeouts", timeouts.sum());
+        return result;
+    }
+
+    private static <T> CompletableFuture<T> completedOrFailed(Supplier<T> supplier) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            future.complete(supplier.get());
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 捕获当前线程的请求上下文和 MDC，在执行线程中恢复（调用线程自己执行时同样适用）
+     */
+    private static <T> Supplier<T> withContext(Supplier<T> supplier) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        return () -> {
+            RequestAttributes previousAttributes = RequestContextHolder.getRequestAttributes();
+            Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+            RequestContextHolder.setRequestAttributes(attributes);
+            setMdc(mdc);
+            try {
+                return supplier.get();
+            } finally {
+                RequestContextHolder.setRequestAttributes(previousAttributes);
+                setMdc(previousMdc);
+            }
+        };
+    }
+
+    private static void setMdc(Map<String, String> context) {
+        if (context == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(context);
+        }
+    }
+}
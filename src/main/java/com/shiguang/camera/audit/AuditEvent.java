@@ -0,0 +1,34 @@
+package com.shiguang.camera.audit;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * 审计事件（不可变），由写入线程序列化为一行 JSON
+ */
+@Getter
+public final class AuditEvent {
+
+    private final long timestamp;
+    private final AuditEventType type;
+    // 操作人ID（用户或管理员，系统任务为 null）
+    private final Integer operatorId;
+    // 事件对象ID：预订/支付/订单ID，随事件类型而定
+    private final Integer targetId;
+    private final BigDecimal amount;
+    private final String detail;
+
+    public AuditEvent(AuditEventType type, Integer operatorId, Integer targetId) {
+        this(type, operatorId, targetId, null, null);
+    }
+
+    public AuditEvent(AuditEventType type, Integer operatorId, Integer targetId, BigDecimal amount, String detail) {
+        this.timestamp = System.currentTimeMillis();
+        this.type = type;
+        this.operatorId = operatorId;
+        this.targetId = targetId;
+        this.amount = amount;
+        this.detail = detail;
+    }
+}
@@ -0,0 +1,20 @@
+package com.shiguang.camera.audit;
+
+/**
+ * 审计事件类型
+ */
+public enum AuditEventType {
+    RESERVATION_CREATED,
+    RESERVATION_CONFIRMED,
+    RESERVATION_CANCELLED,
+    RESERVATION_COMPLETED,
+    RESERVATION_EXPIRED,
+    PAYMENT_CREATED,
+    PAYMENT_SUCCEEDED,
+    PAYMENT_CONFIRMED,
+    PAYMENT_REJECTED,
+    ORDER_CREATED,
+    ORDER_PICKUP,
+    ORDER_RETURN,
+    ORDER_CANCELLED
+}
@@ -0,0 +1,228 @@
+package com.shiguang.camera.audit;
+
+import com.alibaba.fastjson.JSON;
+import com.shiguang.camera.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 审计日志
+ *
+ * 业务线程把事件放入无锁环形缓冲区（多生产者、单消费者），由后台线程批量写入 NDJSON 文件，
+ * 业务线程不做任何磁盘 I/O，缓冲区满时丢弃事件并计数，绝不阻塞。
+ * 文件按天滚动：{dir}/audit-yyyy-MM-dd.ndjson，单个文件超过上限时追加序号 audit-yyyy-MM-dd.1.ndjson。
+ */
+@Slf4j
+@Component
+public class AuditLog {
+
+    // 缓冲区为空时写入线程的休眠时间
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private final Path dir;
+    private final int capacity;
+    private final int batchSize;
+    private final long maxFileBytes;
+
+    private final AtomicReferenceArray<AuditEvent> slots;
+    // 下一个可写位置，生产者 CAS 推进
+    private final AtomicLong tail = new AtomicLong();
+    // 下一个可读位置，仅写入线程推进
+    private volatile long head;
+
+    private final LongAdder publishedCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private final AtomicLong writtenCount = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    // 以下字段仅在写入线程中访问
+    private Writer writer;
+    private LocalDate currentDate;
+    private int currentIndex;
+    private long currentBytes;
+
+    public AuditLog(@Value("${app.audit.dir:logs/audit}") String dir,
+                    @Value("${app.audit.buffer-size:8192}") int bufferSize,
+                    @Value("${app.audit.batch-size:256}") int batchSize,
+                    @Value("${app.audit.max-file-size-mb:100}") long maxFileSizeMb) {
+        this.dir = Paths.get(dir);
+        // 容量取2的幂，下标用位运算
+        this.capacity = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1;
+        this.batchSize = batchSize;
+        this.maxFileBytes = maxFileSizeMb * 1024 * 1024;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::runWriter, "audit-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("审计日志已启动，目录: {}，缓冲区容量: {}", dir.toAbsolutePath(), capacity);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writerThread);
+        writerThread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * 发布审计事件（不阻塞）
+     * @return 缓冲区已满被丢弃时返回 false
+     */
+    public boolean publish(AuditEvent event) {
+        long seq;
+        do {
+            seq = tail.get();
+            if (seq - head >= capacity) {
+                droppedCount.increment();
+                return false;
+            }
+        } while (!tail.compareAndSet(seq, seq + 1));
+        // 槽位在写入线程读走后才会被再次分配，这里一定为空
+        slots.lazySet((int) (seq & (capacity - 1)), event);
+        publishedCount.increment();
+        return true;
+    }
+
+    /**
+     * 在当前事务提交后发布，回滚的操作不会留下审计记录
+     */
+    public void publishAfterCommit(AuditEvent event) {
+        TransactionUtils.afterCommit(() -> publish(event));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("capacity", capacity);
+        result.put("pending", tail.get() - head);
+        result.put("publishedCount", publishedCount.sum());
+        result.put("writtenCount", writtenCount.get());
+        result.put("droppedCount", droppedCount.sum());
+        return result;
+    }
+
+    private void runWriter() {
+        StringBuilder batch = new StringBuilder(batchSize * 160);
+        while (true) {
+            // 先读取运行标志，保证停止后最后一轮能取到停止前发布的全部事件
+            boolean stopping = !running;
+            int count = drain(batch);
+            if (count > 0) {
+                write(batch, count);
+                batch.setLength(0);
+            } else if (stopping) {
+                break;
+            } else {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        closeWriter();
+    }
+
+    /**
+     * 取出至多 batchSize 个事件，序列化为 NDJSON 追加到 batch
+     */
+    private int drain(StringBuilder batch) {
+        int count = 0;
+        long next = head;
+        while (count < batchSize) {
+            int index = (int) (next & (capacity - 1));
+            AuditEvent event = slots.get(index);
+            if (event == null) {
+                // 尚未发布或生产者还未写入槽位
+                break;
+            }
+            slots.lazySet(index, null);
+            next++;
+            head = next;
+            batch.append(JSON.toJSONString(event)).append('\n');
+            count++;
+        }
+        return count;
+    }
+
+    private void write(StringBuilder batch, int count) {
+        try {
+            rollIfNeeded(batch.length());
+            writer.append(batch);
+            writer.flush();
+            currentBytes += batch.length();
+            writtenCount.addAndGet(count);
+        } catch (IOException e) {
+            droppedCount.add(count);
+            log.error("写入审计日志失败，丢弃 {} 条事件", count, e);
+            closeWriter();
+        }
+    }
+
+    /**
+     * 跨天或当前文件写满时切换文件（大小按字符数估算）
+     */
+    private void rollIfNeeded(int pendingChars) throws IOException {
+        LocalDate today = LocalDate.now();
+        boolean sameDay = today.equals(currentDate);
+        if (writer != null && sameDay && currentBytes + pendingChars <= maxFileBytes) {
+            return;
+        }
+        boolean full = writer != null && sameDay;
+        closeWriter();
+        if (!sameDay) {
+            currentDate = today;
+            currentIndex = 0;
+        } else if (full) {
+            currentIndex++;
+        }
+        Files.createDirectories(dir);
+        Path file = fileFor(currentDate, currentIndex);
+        // 跳过已写满的文件（例如重启后当天的文件）
+        while (Files.exists(file) && Files.size(file) >= maxFileBytes) {
+            file = fileFor(currentDate, ++currentIndex);
+        }
+        currentBytes = Files.exists(file) ? Files.size(file) : 0;
+        writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), StandardCharsets.UTF_8));
+    }
+
+    private Path fileFor(LocalDate date, int index) {
+        return dir.resolve(index == 0 ? "audit-" + date + ".ndjson" : "audit-" + date + "." + index + ".ndjson");
+    }
+
+    private void closeWriter() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.warn("关闭审计日志文件失败", e);
+        }
+        writer = null;
+    }
+}
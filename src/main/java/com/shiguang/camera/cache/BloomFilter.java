@@ -0,0 +1,143 @@
+package com.shiguang.camera.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 字符串布隆过滤器（线程安全，只增不删）
+ *
+ * mightContain 返回 false 时值一定没有加入过；返回 true 时可能是误判，误判率由位数和哈希次数决定。
+ * 位图为 AtomicLongArray，put 用 CAS 置位，读写均无锁。
+ * 哈希对字符直接计算 64 位值，再用 h1 + i * h2 生成 k 个位置，不创建额外对象。
+ */
+public final class BloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray words;
+    private final long numBits;
+    private final int hashes;
+
+    // 已置位的位数（用于估算当前误判率）
+    private final AtomicLong bitCount = new AtomicLong();
+
+    // put 调用次数（重复值也计入）
+    private final AtomicLong insertions = new AtomicLong();
+
+    private BloomFilter(long numBits, int hashes) {
+        long wordCount = (numBits + 63) >>> 6;
+        if (wordCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("布隆过滤器过大: " + numBits + " 位");
+        }
+        this.words = new AtomicLongArray((int) wordCount);
+        this.numBits = wordCount << 6;
+        this.hashes = hashes;
+    }
+
+    /**
+     * 按预期元素数和目标误判率创建
+     * @param maxBits 位数上限（内存上限），超出时按上限创建，实际误判率会高于目标
+     */
+    public static BloomFilter create(long expectedInsertions, double fpp, long maxBits) {
+        if (fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("误判率必须在 0 与 1 之间: " + fpp);
+        }
+        long expected = Math.max(1, expectedInsertions);
+        long bits = (long) Math.ceil(-expected * Math.log(fpp) / (LN2 * LN2));
+        bits = Math.max(64, Math.min(bits, Math.max(64, maxBits)));
+        int hashes = (int) Math.max(1, Math.min(16, Math.round((double) bits / expected * LN2)));
+        return new BloomFilter(bits, hashes);
+    }
+
+    /**
+     * 加入一个值
+     * @return 是否有位发生变化（false 说明该值之前可能已加入）
+     */
+    public boolean put(String value) {
+        insertions.incrementAndGet();
+        long hash = hash(value);
+        long h1 = hash;
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        boolean changed = false;
+        for (int i = 0; i < hashes; i++) {
+            long index = ((h1 + i * h2) & Long.MAX_VALUE) % numBits;
+            if (setBit(index)) {
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        long h1 = hash;
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long index = ((h1 + i * h2) & Long.MAX_VALUE) % numBits;
+            if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按当前置位比例估算的误判率
+     */
+    public double expectedFpp() {
+        return Math.pow((double) bitCount.get() / numBits, hashes);
+    }
+
+    public long getNumBits() {
+        return numBits;
+    }
+
+    public int getHashes() {
+        return hashes;
+    }
+
+    public long getInsertions() {
+        return insertions.get();
+    }
+
+    public long getBitCount() {
+        return bitCount.get();
+    }
+
+    public long memoryBytes() {
+        return numBits >>> 3;
+    }
+
+    private boolean setBit(long index) {
+        int word = (int) (index >>> 6);
+        long mask = 1L << index;
+        long current;
+        do {
+            current = words.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+        } while (!words.compareAndSet(word, current, current | mask));
+        bitCount.incrementAndGet();
+        return true;
+    }
+
+    private static long hash(String value) {
+        // FNV-1a 逐字符累积，再做一次 64 位混合
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        return mix(h ^ value.length());
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,165 @@
+package com.shiguang.camera.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.shiguang.camera.entity.Brand;
+import com.shiguang.camera.entity.CameraModel;
+import com.shiguang.camera.mapper.BrandMapper;
+import com.shiguang.camera.mapper.CameraModelMapper;
+import com.shiguang.camera.utils.TransactionUtils;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 商品目录缓存：相机型号、品牌，以及型号+品牌的详情
+ * 目录数据很少变动但每次预订/下单都要读取，读穿透加载，写操作提交后失效。
+ * 容量有上限（W-TinyLFU 淘汰），TTL 作为绕过服务直接改库时的兜底。
+ * 返回的对象为缓存共享实例，调用方只读，不要修改。
+ */
+@Component
+public class CatalogCache {
+
+    private final CameraModelMapper cameraModelMapper;
+    private final BrandMapper brandMapper;
+
+    private final Cache<Integer, CameraModel> models;
+    private final Cache<Integer, Brand> brands;
+
+    // 型号ID -> 带品牌信息的型号详情
+    private final Cache<Integer, CameraModel> modelDetails;
+
+    public CatalogCache(CameraModelMapper cameraModelMapper,
+                        BrandMapper brandMapper,
+                        @Value("${app.cache.catalog.max-size:2000}") long maxSize,
+                        @Value("${app.cache.catalog.ttl-seconds:600}") long ttlSeconds) {
+        this.cameraModelMapper = cameraModelMapper;
+        this.brandMapper = brandMapper;
+        this.models = newCache(maxSize, ttlSeconds);
+        this.brands = newCache(maxSize, ttlSeconds);
+        this.modelDetails = newCache(maxSize, ttlSeconds);
+    }
+
+    private static <V> Cache<Integer, V> newCache(long maxSize, long ttlSeconds) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 获取相机型号（不含品牌信息），不存在时返回 null
+     */
+    public CameraModel getModel(Integer modelId) {
+        if (modelId == null) {
+            return null;
+        }
+        return models.get(modelId, cameraModelMapper::selectById);
+    }
+
+    /**
+     * 批量获取相机型号（不含品牌信息），未命中的一次 selectBatchIds 加载，不存在的ID不出现在结果中
+     */
+    public Map<Integer, CameraModel> getModels(Collection<Integer> modelIds) {
+        return models.getAll(modelIds, this::loadModels);
+    }
+
+    /**
+     * 获取品牌，不存在时返回 null
+     */
+    public Brand getBrand(Integer brandId) {
+        if (brandId == null) {
+            return null;
+        }
+        return brands.get(brandId, brandMapper::selectById);
+    }
+
+    /**
+     * 获取带品牌信息的相机型号详情，不存在时返回 null
+     */
+    public CameraModel getModelDetail(Integer modelId) {
+        if (modelId == null) {
+            return null;
+        }
+        return modelDetails.get(modelId, id -> {
+            CameraModel model = getModel(id);
+            if (model == null) {
+                return null;
+            }
+            // 复制一份再挂品牌，避免修改型号缓存中的共享实例
+            CameraModel detail = new CameraModel();
+            BeanUtils.copyProperties(model, detail);
+            detail.setBrand(getBrand(model.getBrandId()));
+            return detail;
+        });
+    }
+
+    /**
+     * 相机型号变更后使缓存失效（在当前事务提交后生效）
+     */
+    public void invalidateModel(Integer modelId) {
+        if (modelId == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            models.invalidate(modelId);
+            modelDetails.invalidate(modelId);
+        });
+    }
+
+    /**
+     * 品牌变更后使品牌及引用该品牌的型号详情失效（在当前事务提交后生效）
+     */
+    public void invalidateBrand(Integer brandId) {
+        if (brandId == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            brands.invalidate(brandId);
+            modelDetails.asMap().values().removeIf(detail -> brandId.equals(detail.getBrandId()));
+        });
+    }
+
+    private Map<Integer, CameraModel> loadModels(Iterable<? extends Integer> modelIds) {
+        List<Integer> ids = new ArrayList<>();
+        modelIds.forEach(ids::add);
+        Map<Integer, CameraModel> result = new HashMap<>(ids.size() * 2);
+        for (CameraModel model : cameraModelMapper.selectBatchIds(ids)) {
+            result.put(model.getId(), model);
+        }
+        return result;
+    }
+
+    /**
+     * 缓存统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("model", stats(models));
+        result.put("brand", stats(brands));
+        result.put("modelDetail", stats(modelDetails));
+        return result;
+    }
+
+    private static Map<String, Object> stats(Cache<Integer, ?> cache) {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        result.put("averageLoadPenaltyNanos", stats.averageLoadPenalty());
+        return result;
+    }
+}
@@ -0,0 +1,148 @@
+package com.shiguang.camera.cache;
+
+import com.shiguang.camera.entity.SystemConfig;
+import com.shiguang.camera.mapper.SystemConfigMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 系统配置快照
+ * 启动时从 system_config 批量加载为不可变快照，数值型配置在加载时解析一次；
+ * 配置更新后整体重建并通过 AtomicReference 原子替换，读取方无锁、不产生额外对象，也不访问数据库。
+ * 定时刷新用于同步其他节点对配置的修改。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConfigSnapshot {
+
+    private final SystemConfigMapper systemConfigMapper;
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+
+    /**
+     * 启动完成后预热
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        reload();
+    }
+
+    /**
+     * 定时全量刷新（默认5分钟）
+     */
+    @Scheduled(fixedDelayString = "${app.config.refresh-interval:300000}",
+            initialDelayString = "${app.config.refresh-interval:300000}")
+    public void refresh() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.error("刷新系统配置快照失败，继续使用版本 {}", version(), e);
+        }
+    }
+
+    /**
+     * 从数据库全量加载并替换快照
+     * 读取与替换在同一把锁内，较早开始的定时刷新不会用旧数据覆盖配置更新后刚加载的快照；读取方不受影响
+     */
+    public void reload() {
+        synchronized (current) {
+            List<SystemConfig> configs = systemConfigMapper.selectList(null);
+            Snapshot previous = current.get();
+            long version = previous != null ? previous.version + 1 : 1;
+            current.set(new Snapshot(version, configs));
+            log.info("系统配置快照已加载，版本 {}，配置项 {} 个", version, configs.size());
+        }
+    }
+
+    /**
+     * 获取字符串配置，不存在时返回默认值
+     */
+    public String getString(String key, String defaultValue) {
+        String value = snapshot().values.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * 获取数值配置，不存在或格式错误时返回默认值
+     */
+    public BigDecimal getDecimal(String key, BigDecimal defaultValue) {
+        BigDecimal value = snapshot().decimals.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * 当前快照版本号，每次重建加一
+     */
+    public long version() {
+        Snapshot snapshot = current.get();
+        return snapshot != null ? snapshot.version : 0;
+    }
+
+    /**
+     * 快照统计信息
+     */
+    public Map<String, Object> stats() {
+        Snapshot snapshot = current.get();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("version", snapshot != null ? snapshot.version : 0);
+        result.put("size", snapshot != null ? snapshot.values.size() : 0);
+        return result;
+    }
+
+    /**
+     * 获取当前快照，预热前被调用时同步加载一次
+     */
+    private Snapshot snapshot() {
+        Snapshot snapshot = current.get();
+        if (snapshot == null) {
+            synchronized (current) {
+                if (current.get() == null) {
+                    reload();
+                }
+            }
+            snapshot = current.get();
+        }
+        return snapshot;
+    }
+
+    /**
+     * 不可变的配置快照
+     */
+    private static final class Snapshot {
+        private final long version;
+        private final Map<String, String> values;
+        private final Map<String, BigDecimal> decimals;
+
+        private Snapshot(long version, List<SystemConfig> configs) {
+            Map<String, String> values = new HashMap<>();
+            Map<String, BigDecimal> decimals = new HashMap<>();
+            for (SystemConfig config : configs) {
+                if (config.getConfigKey() == null || config.getConfigValue() == null) {
+                    continue;
+                }
+                values.put(config.getConfigKey(), config.getConfigValue());
+                try {
+                    decimals.put(config.getConfigKey(), new BigDecimal(config.getConfigValue().trim()));
+                } catch (NumberFormatException ignored) {
+                    // 非数值型配置，只能按字符串读取
+                }
+            }
+            this.version = version;
+            this.values = Collections.unmodifiableMap(values);
+            this.decimals = Collections.unmodifiableMap(decimals);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.shiguang.camera.cache;
+
+import com.shiguang.camera.mapper.CameraInstanceMapper;
+import com.shiguang.camera.utils.TransactionUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 设备实例统计快照
+ * 一次 GROUP BY (model_id, status, condition) 得到全部型号的总数、可用数、各状态数、各状况数，
+ * 预先生成每个型号及全部型号的统计结果，读取时只做一次 Map 查找。
+ * 设备实例变更提交后标记型号为脏，定时只重新统计脏型号并原子替换快照；另有定时全量重建兜底。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FleetStatsSnapshot {
+
+    // 状态码 0-5
+    private static final int STATUS_COUNT = 6;
+
+    // 状况 0-优 1-良 2-中 3-需维修
+    private static final int CONDITION_COUNT = 4;
+
+    private static final Stats EMPTY = new Stats(new Counter());
+
+    private final CameraInstanceMapper cameraInstanceMapper;
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+
+    // 有变更、待重新统计的型号
+    private final Set<Integer> dirtyModels = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 启动完成后预热
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    /**
+     * 定时全量重建，修正绕过服务直接改库造成的偏差
+     */
+    @Scheduled(cron = "${app.fleet-stats.rebuild-cron:0 25 * * * ?}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("重建设备统计快照失败", e);
+        }
+    }
+
+    /**
+     * 全量统计并替换快照
+     */
+    public synchronized void rebuild() {
+        // 先清空脏标记，统计期间的新变更会重新标记
+        dirtyModels.clear();
+        Map<Integer, Stats> models = aggregate(cameraInstanceMapper.countByModelStatusCondition(null));
+        current.set(new Snapshot(models));
+        log.info("设备统计快照已重建，型号数: {}", models.size());
+    }
+
+    /**
+     * 定时重新统计有变更的型号
+     */
+    @Scheduled(fixedDelayString = "${app.fleet-stats.refresh-interval:1000}")
+    public synchronized void refreshDirty() {
+        Snapshot snapshot = current.get();
+        if (snapshot == null || dirtyModels.isEmpty()) {
+            return;
+        }
+        List<Integer> modelIds = new ArrayList<>();
+        for (Iterator<Integer> it = dirtyModels.iterator(); it.hasNext(); ) {
+            modelIds.add(it.next());
+            it.remove();
+        }
+        try {
+            Map<Integer, Stats> models = new HashMap<>(snapshot.models);
+            models.keySet().removeAll(modelIds);
+            models.putAll(aggregate(cameraInstanceMapper.countByModelStatusCondition(modelIds)));
+            current.set(new Snapshot(models));
+        } catch (Exception e) {
+            dirtyModels.addAll(modelIds);
+            log.error("刷新设备统计快照失败，型号: {}", modelIds, e);
+        }
+    }
+
+    /**
+     * 标记型号有变更（在事务提交后调用）
+     */
+    public void markDirty(Integer modelId) {
+        if (modelId != null) {
+            dirtyModels.add(modelId);
+        }
+    }
+
+    /**
+     * 在当前事务提交后标记型号有变更
+     */
+    public void markDirtyAfterCommit(Integer modelId) {
+        TransactionUtils.afterCommit(() -> markDirty(modelId));
+    }
+
+    /**
+     * 获取统计结果（只读）
+     * @param modelId 型号ID，为 null 时返回全部型号的合计
+     */
+    public Map<String, Object> get(Integer modelId) {
+        Snapshot snapshot = snapshot();
+        if (modelId == null) {
+            return snapshot.fleet.view;
+        }
+        return snapshot.models.getOrDefault(modelId, EMPTY).view;
+    }
+
+    public Map<String, Object> stats() {
+        Snapshot snapshot = current.get();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("models", snapshot != null ? snapshot.models.size() : 0);
+        result.put("dirtyModels", dirtyModels.size());
+        return result;
+    }
+
+    private Snapshot snapshot() {
+        Snapshot snapshot = current.get();
+        if (snapshot == null) {
+            // 预热前被调用时同步加载
+            rebuild();
+            snapshot = current.get();
+        }
+        return snapshot;
+    }
+
+    private static Map<Integer, Stats> aggregate(Collection<CameraInstanceMapper.StatusCount> rows) {
+        Map<Integer, Counter> counters = new HashMap<>();
+        for (CameraInstanceMapper.StatusCount row : rows) {
+            counters.computeIfAbsent(row.getModelId(), key -> new Counter()).add(row);
+        }
+        Map<Integer, Stats> result = new HashMap<>(counters.size() * 2);
+        for (Map.Entry<Integer, Counter> entry : counters.entrySet()) {
+            result.put(entry.getKey(), new Stats(entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * 统计过程中的可变计数
+     */
+    private static final class Counter {
+        private long total;
+        private final long[] byStatus = new long[STATUS_COUNT];
+        private final long[] byCondition = new long[CONDITION_COUNT];
+
+        private void add(CameraInstanceMapper.StatusCount row) {
+            long count = row.getCount() != null ? row.getCount() : 0;
+            total += count;
+            Integer status = row.getStatus();
+            if (status != null && status >= 0 && status < STATUS_COUNT) {
+                byStatus[status] += count;
+            }
+            Integer condition = row.getCondition();
+            if (condition != null && condition >= 0 && condition < CONDITION_COUNT) {
+                byCondition[condition] += count;
+            }
+        }
+
+        private void add(Counter other) {
+            total += other.total;
+            for (int i = 0; i < STATUS_COUNT; i++) {
+                byStatus[i] += other.byStatus[i];
+            }
+            for (int i = 0; i < CONDITION_COUNT; i++) {
+                byCondition[i] += other.byCondition[i];
+            }
+        }
+    }
+
+    /**
+     * 单个型号（或全部型号合计）的统计结果，构建时生成只读视图
+     */
+    private static final class Stats {
+        private final Counter counter;
+        private final Map<String, Object> view;
+
+        private Stats(Counter counter) {
+            this.counter = counter;
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("totalInstances", counter.total);
+            map.put("availableInstances", counter.byStatus[0]);
+            map.put("statusCounts", counts("status", counter.byStatus));
+            map.put("conditionCounts", counts("condition", counter.byCondition));
+            this.view = Collections.unmodifiableMap(map);
+        }
+
+        private static List<Map<String, Object>> counts(String key, long[] values) {
+            List<Map<String, Object>> result = new ArrayList<>();
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] > 0) {
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put(key, i);
+                    item.put("count", values[i]);
+                    result.add(Collections.unmodifiableMap(item));
+                }
+            }
+            return Collections.unmodifiableList(result);
+        }
+    }
+
+    /**
+     * 不可变快照：各型号统计及合计
+     */
+    private static final class Snapshot {
+        private final Map<Integer, Stats> models;
+        private final Stats fleet;
+
+        private Snapshot(Map<Integer, Stats> models) {
+            this.models = Collections.unmodifiableMap(models);
+            Counter total = new Counter();
+            for (Stats stats : models.values()) {
+                total.add(stats.counter);
+            }
+            this.fleet = new Stats(total);
+        }
+    }
+}
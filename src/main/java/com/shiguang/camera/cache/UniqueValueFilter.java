@@ -0,0 +1,194 @@
+package com.shiguang.camera.cache;
+
+import java.text.Normalizer;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 唯一字段的存在性预判（一个字段一个实例）
+ *
+ * 过滤器判定"一定不存在"时直接返回，不查询数据库；判定"可能存在"时才执行查询，并按查询结果统计命中与误判。
+ * 值在写入数据库之前加入过滤器（事务回滚只会多一个误判，不会漏判）。
+ * 重建时新过滤器从头扫描全表，期间新加入的值同时写入新旧两个过滤器；发布后旧过滤器再保留一段时间一并判断，
+ * 覆盖扫描开始前加入、扫描之后才提交的值。首次构建完成前一律查询数据库。
+ * 比较键去掉首尾空白、转大写并去掉变音符号，与数据库不区分大小写的排序规则一致或更宽（只会多误判）。
+ * 过滤器只知道本节点加入的值：其他节点或直接写库插入的值在下次重建前会被判定"一定不存在"，
+ * 因此只能作为写入前的预判，唯一性由数据库唯一索引保证，调用方写入时需把 DuplicateKeyException 转为相同的业务错误。
+ */
+public class UniqueValueFilter {
+
+    // 重建后旧过滤器的保留时间（应大于最长事务时间）
+    private static final long PREVIOUS_RETENTION_MS = 10 * 60 * 1000L;
+
+    private final String name;
+
+    private volatile BloomFilter current;
+    private volatile BloomFilter building;
+    private volatile BloomFilter previous;
+    private volatile long previousExpiresAt;
+    private volatile boolean ready;
+
+    private final LongAdder definitelyNew = new LongAdder();
+    private final LongAdder confirmedHits = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder notReady = new LongAdder();
+
+    /**
+     * @param initial 首次构建完成前接收新值的过滤器，构建完成后作为旧过滤器保留
+     */
+    public UniqueValueFilter(String name, BloomFilter initial) {
+        this.name = name;
+        this.current = initial;
+    }
+
+    /**
+     * 判断值是否已存在：过滤器判定一定不存在时返回 false，否则执行 query
+     */
+    public boolean exists(String value, BooleanSupplier query) {
+        if (value == null) {
+            return query.getAsBoolean();
+        }
+        if (!ready) {
+            notReady.increment();
+            return query.getAsBoolean();
+        }
+        if (!mightContain(key(value))) {
+            definitelyNew.increment();
+            return false;
+        }
+        boolean exists = query.getAsBoolean();
+        if (exists) {
+            confirmedHits.increment();
+        } else {
+            falsePositives.increment();
+        }
+        return exists;
+    }
+
+    /**
+     * 值是否可能已存在（不查询数据库，不计入统计）；未构建完成时返回 true
+     */
+    public boolean mightExist(String value) {
+        return value == null || !ready || mightContain(key(value));
+    }
+
+    /**
+     * 加入新值，在写入数据库之前调用
+     */
+    public void add(String value) {
+        if (value == null) {
+            return;
+        }
+        String key = key(value);
+        current.put(key);
+        BloomFilter target = building;
+        if (target != null) {
+            target.put(key);
+        }
+    }
+
+    /**
+     * 开始重建，之后 add 的值同时写入返回的过滤器
+     */
+    public synchronized BloomFilter beginRebuild(BloomFilter empty) {
+        building = empty;
+        return empty;
+    }
+
+    /**
+     * 重建时加入扫描到的值
+     */
+    public void load(BloomFilter target, String value) {
+        if (value != null) {
+            target.put(key(value));
+        }
+    }
+
+    /**
+     * 扫描完成，切换到新过滤器
+     */
+    public synchronized void publish(BloomFilter built) {
+        // 先写过期时间再写引用，读到新的 previous 时一定能读到新的过期时间
+        previousExpiresAt = System.currentTimeMillis() + PREVIOUS_RETENTION_MS;
+        previous = current;
+        current = built;
+        building = null;
+        ready = true;
+    }
+
+    /**
+     * 重建失败，继续使用当前过滤器
+     */
+    public synchronized void abandon() {
+        building = null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getDefinitelyNew() {
+        return definitelyNew.sum();
+    }
+
+    public long getConfirmedHits() {
+        return confirmedHits.sum();
+    }
+
+    public long getFalsePositives() {
+        return falsePositives.sum();
+    }
+
+    public long getNotReady() {
+        return notReady.sum();
+    }
+
+    /**
+     * 当前过滤器按置位比例估算的误判率
+     */
+    public double expectedFpp() {
+        return current.expectedFpp();
+    }
+
+    public Map<String, Object> stats() {
+        BloomFilter filter = current;
+        // 实测误判率：不存在的值中被判为可能存在的比例
+        long absent = definitelyNew.sum() + falsePositives.sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("ready", ready);
+        result.put("insertions", filter.getInsertions());
+        result.put("bits", filter.getNumBits());
+        result.put("hashes", filter.getHashes());
+        result.put("memoryBytes", filter.memoryBytes());
+        result.put("expectedFpp", filter.expectedFpp());
+        result.put("rebuilding", building != null);
+        result.put("definitelyNew", definitelyNew.sum());
+        result.put("confirmedHits", confirmedHits.sum());
+        result.put("falsePositives", falsePositives.sum());
+        result.put("observedFpp", absent == 0 ? 0.0 : (double) falsePositives.sum() / absent);
+        result.put("notReady", notReady.sum());
+        return result;
+    }
+
+    private boolean mightContain(String key) {
+        if (current.mightContain(key)) {
+            return true;
+        }
+        BloomFilter old = previous;
+        return old != null && System.currentTimeMillis() < previousExpiresAt && old.mightContain(key);
+    }
+
+    static String key(String value) {
+        String key = value.trim().toUpperCase(Locale.ROOT);
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) > 0x7F) {
+                // 去掉变音符号（é 与 E 在数据库中视为相等）
+                return Normalizer.normalize(key, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+            }
+        }
+        return key;
+    }
+}
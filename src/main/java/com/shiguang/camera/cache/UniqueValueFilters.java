@@ -0,0 +1,157 @@
+package com.shiguang.camera.cache;
+
+import com.shiguang.camera.entity.User;
+import com.shiguang.camera.mapper.CameraInstanceMapper;
+import com.shiguang.camera.mapper.UserMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 设备序列号、用户手机号、身份证号的唯一性预判
+ *
+ * 启动后流式读取各列构建布隆过滤器，之后由写入方在插入前调用 add；每天定时按当前行数重新构建，
+ * 避免数据增长后误判率上升。校验唯一性时"一定不存在"（绝大多数情况）不访问数据库。
+ * 多节点部署时各节点的过滤器互不同步，最终由 camera_instance.serial_number、user.phone、user.id_card 的唯一索引兜底。
+ * 指标：app.unique.filter（attribute、result=definitely_new/hit/false_positive/not_ready）、
+ * app.unique.filter.fpp（按置位比例估算的误判率），另见 /api/cache/stats。
+ */
+@Slf4j
+@Component
+public class UniqueValueFilters {
+
+    private final CameraInstanceMapper cameraInstanceMapper;
+    private final UserMapper userMapper;
+
+    // 目标误判率
+    private final double fpp;
+
+    // 最小预期元素数，实际按现有行数的 2 倍预留增长空间
+    private final long expectedInsertions;
+
+    // 单个过滤器位图的位数上限
+    private final long maxBits;
+
+    private final UniqueValueFilter serialNumbers;
+    private final UniqueValueFilter phones;
+    private final UniqueValueFilter idCards;
+
+    public UniqueValueFilters(CameraInstanceMapper cameraInstanceMapper,
+                              UserMapper userMapper,
+                              MeterRegistry registry,
+                              @Value("${app.unique-filter.fpp:0.01}") double fpp,
+                              @Value("${app.unique-filter.expected-insertions:100000}") long expectedInsertions,
+                              @Value("${app.unique-filter.max-memory-kb:4096}") long maxMemoryKb) {
+        this.cameraInstanceMapper = cameraInstanceMapper;
+        this.userMapper = userMapper;
+        this.fpp = fpp;
+        this.expectedInsertions = expectedInsertions;
+        this.maxBits = maxMemoryKb * 1024 * 8;
+        this.serialNumbers = new UniqueValueFilter("serialNumber", newFilter(0));
+        this.phones = new UniqueValueFilter("phone", newFilter(0));
+        this.idCards = new UniqueValueFilter("idCard", newFilter(0));
+        register(registry, serialNumbers);
+        register(registry, phones);
+        register(registry, idCards);
+    }
+
+    /**
+     * 启动完成后构建
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    /**
+     * 定时按当前行数重建
+     */
+    @Scheduled(cron = "${app.unique-filter.rebuild-cron:0 50 3 * * ?}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        BloomFilter serialFilter = serialNumbers.beginRebuild(newFilter(cameraInstanceMapper.selectCount(null)));
+        try {
+            cameraInstanceMapper.scanSerialNumbers(context -> serialNumbers.load(serialFilter, context.getResultObject()));
+            serialNumbers.publish(serialFilter);
+        } catch (Exception e) {
+            serialNumbers.abandon();
+            log.error("构建设备序列号过滤器失败", e);
+        }
+
+        long users = userMapper.selectCount(null);
+        BloomFilter phoneFilter = phones.beginRebuild(newFilter(users));
+        BloomFilter idCardFilter = idCards.beginRebuild(newFilter(users));
+        try {
+            userMapper.scanUniqueFields(context -> {
+                User user = context.getResultObject();
+                phones.load(phoneFilter, user.getPhone());
+                idCards.load(idCardFilter, user.getIdCard());
+            });
+            phones.publish(phoneFilter);
+            idCards.publish(idCardFilter);
+        } catch (Exception e) {
+            phones.abandon();
+            idCards.abandon();
+            log.error("构建手机号、身份证号过滤器失败", e);
+        }
+        log.info("唯一性过滤器已构建，序列号: {}，手机号: {}，身份证号: {}，耗时: {}ms",
+                serialFilter.getInsertions(), phoneFilter.getInsertions(), idCardFilter.getInsertions(),
+                System.currentTimeMillis() - start);
+    }
+
+    public UniqueValueFilter serialNumbers() {
+        return serialNumbers;
+    }
+
+    public UniqueValueFilter phones() {
+        return phones;
+    }
+
+    public UniqueValueFilter idCards() {
+        return idCards;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("serialNumber", serialNumbers.stats());
+        result.put("phone", phones.stats());
+        result.put("idCard", idCards.stats());
+        return result;
+    }
+
+    private BloomFilter newFilter(long rows) {
+        return BloomFilter.create(Math.max(expectedInsertions, rows * 2), fpp, maxBits);
+    }
+
+    private static void register(MeterRegistry registry, UniqueValueFilter filter) {
+        counter(registry, filter, "definitely_new", UniqueValueFilter::getDefinitelyNew);
+        counter(registry, filter, "hit", UniqueValueFilter::getConfirmedHits);
+        counter(registry, filter, "false_positive", UniqueValueFilter::getFalsePositives);
+        counter(registry, filter, "not_ready", UniqueValueFilter::getNotReady);
+        Gauge.builder("app.unique.filter.fpp", filter, UniqueValueFilter::expectedFpp)
+                .tag("attribute", filter.getName())
+                .register(registry);
+    }
+
+    private static void counter(MeterRegistry registry, UniqueValueFilter filter, String result,
+                                ToDoubleFunction<UniqueValueFilter> count) {
+        FunctionCounter.builder("app.unique.filter", filter, count)
+                .tag("attribute", filter.getName())
+                .tag("result", result)
+                .register(registry);
+    }
+}
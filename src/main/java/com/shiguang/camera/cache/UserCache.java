@@ -0,0 +1,70 @@
+package com.shiguang.camera.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.shiguang.camera.entity.User;
+import com.shiguang.camera.mapper.UserMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已认证用户缓存
+ * 认证拦截器每次请求都需要加载用户，命中缓存时不访问数据库。
+ * 容量有上限（W-TinyLFU 淘汰），写入后按 TTL 过期；用户信息变更时需调用 invalidate。
+ */
+@Component
+public class UserCache {
+
+    private final UserMapper userMapper;
+    private final Cache<Integer, User> cache;
+
+    public UserCache(UserMapper userMapper,
+                     @Value("${app.cache.user.max-size:10000}") long maxSize,
+                     @Value("${app.cache.user.ttl-seconds:300}") long ttlSeconds) {
+        this.userMapper = userMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 获取用户，未命中时从数据库加载（用户不存在时不缓存）
+     */
+    public User get(Integer userId) {
+        if (userId == null) {
+            return null;
+        }
+        return cache.get(userId, userMapper::selectById);
+    }
+
+    /**
+     * 用户信息变更后使缓存失效
+     */
+    public void invalidate(Integer userId) {
+        if (userId != null) {
+            cache.invalidate(userId);
+        }
+    }
+
+    /**
+     * 缓存统计信息
+     */
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        result.put("averageLoadPenaltyNanos", stats.averageLoadPenalty());
+        return result;
+    }
+}
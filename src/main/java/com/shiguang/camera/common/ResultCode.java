@@ -8,6 +8,7 @@ public enum ResultCode {
     FORBIDDEN(403, "无权限"),
     NOT_FOUND(404, "资源不存在"),
     BAD_REQUEST(400, "请求参数错误"),
+    TOO_MANY_REQUESTS(429, "请求过于频繁，请稍后再试"),
     
     // 业务相关
     CAPTCHA_ERROR(1001, "验证码错误"),
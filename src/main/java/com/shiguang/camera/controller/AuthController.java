@@ -1,5 +1,6 @@
 package com.shiguang.camera.controller;
 
+import com.shiguang.camera.annotation.RateLimit;
 import com.shiguang.camera.entity.User;
 import com.shiguang.camera.service.TokenService;
 import com.shiguang.camera.service.UserService;
@@ -40,6 +41,8 @@ public class AuthController {
     }
 
     @PostMapping("/login")
+    @RateLimit(name = "login", key = RateLimit.KeyType.PARAM, param = "phone",
+            capacity = 5, refillMillis = 60000, message = "登录尝试过于频繁，请稍后再试")
     public Result<Map<String, Object>> login(@RequestParam String phone,
                                              @RequestParam String password) {
 
@@ -125,7 +128,7 @@ public class AuthController {
         String token = request.getHeader("Authorization");
         if (token != null && token.startsWith("Bearer ")) {
             token = token.substring(7);
-            tokenService.removeToken(token);  // 现在只是记录日志
+            tokenService.removeToken(token);  // 吊销token（当前节点生效）
         }
 
         Integer userId = (Integer) request.getAttribute("userId");
@@ -0,0 +1,58 @@
+package com.shiguang.camera.controller;
+
+import com.shiguang.camera.annotation.RequireAdmin;
+import com.shiguang.camera.async.LookupExecutor;
+import com.shiguang.camera.audit.AuditLog;
+import com.shiguang.camera.cache.CatalogCache;
+import com.shiguang.camera.cache.ConfigSnapshot;
+import com.shiguang.camera.cache.FleetStatsSnapshot;
+import com.shiguang.camera.cache.UniqueValueFilters;
+import com.shiguang.camera.cache.UserCache;
+import com.shiguang.camera.search.CatalogSearchIndex;
+import com.shiguang.camera.service.InventoryProjection;
+import com.shiguang.camera.service.TokenService;
+import com.shiguang.camera.vo.Result;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/cache")
+@RequiredArgsConstructor
+public class CacheStatsController {
+
+    private final UserCache userCache;
+    private final TokenService tokenService;
+    private final CatalogCache catalogCache;
+    private final ConfigSnapshot configSnapshot;
+    private final AuditLog auditLog;
+    private final InventoryProjection inventoryProjection;
+    private final FleetStatsSnapshot fleetStatsSnapshot;
+    private final CatalogSearchIndex catalogSearchIndex;
+    private final UniqueValueFilters uniqueValueFilters;
+    private final LookupExecutor lookupExecutor;
+
+    /**
+     * 获取本地缓存统计信息 - 需要管理员权限
+     */
+    @GetMapping("/stats")
+    @RequireAdmin
+    public Result<Map<String, Object>> getCacheStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("user", userCache.stats());
+        stats.put("token", tokenService.stats());
+        stats.put("catalog", catalogCache.stats());
+        stats.put("config", configSnapshot.stats());
+        stats.put("audit", auditLog.stats());
+        stats.put("inventory", inventoryProjection.stats());
+        stats.put("fleet", fleetStatsSnapshot.stats());
+        stats.put("search", catalogSearchIndex.stats());
+        stats.put("unique", uniqueValueFilters.stats());
+        stats.put("lookup", lookupExecutor.stats());
+        return Result.success(stats);
+    }
+}
@@ -1,14 +1,21 @@
 package com.shiguang.camera.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.shiguang.camera.annotation.RequireAdmin;
 import com.shiguang.camera.common.Result;
 import com.shiguang.camera.common.ResultCode;
 import com.shiguang.camera.entity.CameraInstance;
+import com.shiguang.camera.exception.BusinessException;
+import com.shiguang.camera.export.ExportFormat;
+import com.shiguang.camera.imports.ImportReport;
 import com.shiguang.camera.service.CameraInstanceService;
+import com.shiguang.camera.service.InstanceImportService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -19,30 +26,57 @@ import java.util.Map;
 public class CameraInstanceController {
 
     private final CameraInstanceService cameraInstanceService;
+    private final InstanceImportService instanceImportService;
 
     /**
      * 获取设备实例列表（分页）
      * GET /api/camera-instances?page=1&size=10&modelId=1&serialNumber=ABC&status=0&keyword=相机
+     * 游标分页：GET /api/camera-instances?cursor=&size=10，之后传入上一页返回的 nextCursor；
+     * 游标模式默认不统计总数，需要时传 withTotal=true
      */
     @GetMapping
     public Result<?> getCameraInstanceList(
             @RequestParam(defaultValue = "1") Integer page,
             @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean withTotal,
             @RequestParam(required = false) Integer modelId,
             @RequestParam(required = false) String serialNumber,
             @RequestParam(required = false) Integer status,
             @RequestParam(required = false) String keyword) {
 
         try {
+            if (cursor != null) {
+                return Result.success(cameraInstanceService.getInstanceCursorPage(
+                        cursor, size, withTotal, modelId, serialNumber, status, keyword));
+            }
             IPage<CameraInstance> pageResult = cameraInstanceService.getInstancePage(
                     page, size, modelId, serialNumber, status, keyword);
             return Result.success(pageResult);
+        } catch (BusinessException e) {
+            return Result.error(e.getCode(), e.getMessage());
         } catch (Exception e) {
             log.error("获取设备实例列表失败", e);
             return Result.error("获取设备实例列表失败: " + e.getMessage());
         }
     }
 
+    /**
+     * 关键词搜索设备实例（按相关度排序）
+     * GET /api/camera-instances/search?keyword=SN123&limit=20
+     */
+    @GetMapping("/search")
+    public Result<?> searchCameraInstances(@RequestParam String keyword,
+                                           @RequestParam(defaultValue = "20") Integer limit) {
+        try {
+            List<CameraInstance> instances = cameraInstanceService.searchInstances(keyword, limit);
+            return Result.success(instances);
+        } catch (Exception e) {
+            log.error("搜索设备实例失败: keyword={}", keyword, e);
+            return Result.error("搜索设备实例失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 根据相机型号ID获取设备实例列表
      * GET /api/camera-instances/model/{modelId}
@@ -257,6 +291,31 @@ public class CameraInstanceController {
         }
     }
 
+    /**
+     * 流式导入设备实例（整批到货入库），请求体即文件内容，边上传边解析、分块提交
+     * POST /api/camera-instances/import?modelId=1&format=csv（或 ndjson）
+     * CSV 首行为表头：serialNumber,assetTag,status,condition,location,notes,purchaseDate,warrantyExpiry
+     */
+    @PostMapping("/import")
+    @RequireAdmin
+    public Result<?> importInstances(@RequestParam Integer modelId,
+                                     @RequestParam(required = false) String format,
+                                     HttpServletRequest request) {
+        try {
+            ImportReport report = instanceImportService.importInstances(
+                    modelId, ExportFormat.of(format), request.getInputStream());
+            return Result.success(report);
+        } catch (BusinessException e) {
+            return Result.error(e.getCode(), e.getMessage());
+        } catch (IOException e) {
+            log.warn("读取导入数据失败: modelId={}, {}", modelId, e.getMessage());
+            return Result.error("读取导入数据失败: " + e.getMessage());
+        } catch (Exception e) {
+            log.error("导入设备实例失败: modelId={}", modelId, e);
+            return Result.error("导入设备实例失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 检查序列号是否唯一
      * GET /api/camera-instances/check-serial
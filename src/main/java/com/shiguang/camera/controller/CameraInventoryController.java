@@ -1,16 +1,24 @@
 package com.shiguang.camera.controller;
 
+import com.shiguang.camera.annotation.RequireAdmin;
 import com.shiguang.camera.common.Result;
 import com.shiguang.camera.common.ResultCode;
 import com.shiguang.camera.entity.CameraInventory;
 import com.shiguang.camera.service.CameraInventoryService;
+import com.shiguang.camera.service.InventoryProjection;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
+/**
+ * 库存查询与维护
+ * 库存数量由设备实例状态决定，只通过库存投影（InventoryProjection）变更；
+ * 不提供直接增减数量的接口，否则会被投影的写回和对账覆盖。
+ */
 @Slf4j
 @RestController
 @RequestMapping("/api/camera-inventory")
@@ -18,6 +26,7 @@ import java.util.Map;
 public class CameraInventoryController {
 
     private final CameraInventoryService cameraInventoryService;
+    private final InventoryProjection inventoryProjection;
 
     /**
      * 获取所有库存列表
@@ -26,7 +35,7 @@ public class CameraInventoryController {
     @GetMapping
     public Result<?> getInventoryList() {
         try {
-            List<CameraInventory> inventoryList = cameraInventoryService.list();
+            List<CameraInventory> inventoryList = inventoryProjection.list();
             return Result.success(inventoryList);
         } catch (Exception e) {
             log.error("获取库存列表失败", e);
@@ -41,7 +50,7 @@ public class CameraInventoryController {
     @GetMapping("/model/{modelId}")
     public Result<?> getInventoryByModelId(@PathVariable Integer modelId) {
         try {
-            CameraInventory inventory = cameraInventoryService.getByModelId(modelId);
+            CameraInventory inventory = inventoryProjection.getByModelId(modelId);
             if (inventory == null) {
                 return Result.error(ResultCode.NOT_FOUND.getCode(), "该型号的库存信息不存在");
             }
@@ -52,138 +61,6 @@ public class CameraInventoryController {
         }
     }
 
-    /**
-     * 增加库存
-     * POST /api/camera-inventory/increase
-     */
-    @PostMapping("/increase")
-    public Result<?> increaseInventory(@RequestParam Integer modelId,
-                                       @RequestParam Integer quantity) {
-        try {
-            boolean success = cameraInventoryService.increaseInventory(modelId, quantity);
-            if (success) {
-                return Result.success("增加库存成功");
-            } else {
-                return Result.error("增加库存失败");
-            }
-        } catch (IllegalArgumentException e) {
-            return Result.error(ResultCode.BAD_REQUEST.getCode(), e.getMessage());
-        } catch (Exception e) {
-            log.error("增加库存失败: modelId={}, quantity={}", modelId, quantity, e);
-            return Result.error("增加库存失败: " + e.getMessage());
-        }
-    }
-
-    /**
-     * 减少库存
-     * POST /api/camera-inventory/decrease
-     */
-    @PostMapping("/decrease")
-    public Result<?> decreaseInventory(@RequestParam Integer modelId,
-                                       @RequestParam Integer quantity) {
-        try {
-            boolean success = cameraInventoryService.decreaseInventory(modelId, quantity);
-            if (success) {
-                return Result.success("减少库存成功");
-            } else {
-                return Result.error("减少库存失败");
-            }
-        } catch (IllegalArgumentException e) {
-            return Result.error(ResultCode.BAD_REQUEST.getCode(), e.getMessage());
-        } catch (Exception e) {
-            log.error("减少库存失败: modelId={}, quantity={}", modelId, quantity, e);
-            return Result.error("减少库存失败: " + e.getMessage());
-        }
-    }
-
-    /**
-     * 预订库存
-     * POST /api/camera-inventory/reserve
-     */
-    @PostMapping("/reserve")
-    public Result<?> reserveInventory(@RequestParam Integer modelId,
-                                      @RequestParam Integer quantity) {
-        try {
-            boolean success = cameraInventoryService.reserveInventory(modelId, quantity);
-            if (success) {
-                return Result.success("预订库存成功");
-            } else {
-                return Result.error("预订库存失败");
-            }
-        } catch (IllegalArgumentException e) {
-            return Result.error(ResultCode.BAD_REQUEST.getCode(), e.getMessage());
-        } catch (Exception e) {
-            log.error("预订库存失败: modelId={}, quantity={}", modelId, quantity, e);
-            return Result.error("预订库存失败: " + e.getMessage());
-        }
-    }
-
-    /**
-     * 取消预订
-     * POST /api/camera-inventory/cancel-reservation
-     */
-    @PostMapping("/cancel-reservation")
-    public Result<?> cancelReservation(@RequestParam Integer modelId,
-                                       @RequestParam Integer quantity) {
-        try {
-            boolean success = cameraInventoryService.cancelReservation(modelId, quantity);
-            if (success) {
-                return Result.success("取消预订成功");
-            } else {
-                return Result.error("取消预订失败");
-            }
-        } catch (IllegalArgumentException e) {
-            return Result.error(ResultCode.BAD_REQUEST.getCode(), e.getMessage());
-        } catch (Exception e) {
-            log.error("取消预订失败: modelId={}, quantity={}", modelId, quantity, e);
-            return Result.error("取消预订失败: " + e.getMessage());
-        }
-    }
-
-    /**
-     * 租出设备
-     * POST /api/camera-inventory/rent
-     */
-    @PostMapping("/rent")
-    public Result<?> rentInventory(@RequestParam Integer modelId,
-                                   @RequestParam Integer quantity) {
-        try {
-            boolean success = cameraInventoryService.rentInventory(modelId, quantity);
-            if (success) {
-                return Result.success("租出设备成功");
-            } else {
-                return Result.error("租出设备失败");
-            }
-        } catch (IllegalArgumentException e) {
-            return Result.error(ResultCode.BAD_REQUEST.getCode(), e.getMessage());
-        } catch (Exception e) {
-            log.error("租出设备失败: modelId={}, quantity={}", modelId, quantity, e);
-            return Result.error("租出设备失败: " + e.getMessage());
-        }
-    }
-
-    /**
-     * 归还设备
-     * POST /api/camera-inventory/return
-     */
-    @PostMapping("/return")
-    public Result<?> returnInventory(@RequestParam Integer modelId,
-                                     @RequestParam Integer quantity) {
-        try {
-            boolean success = cameraInventoryService.returnInventory(modelId, quantity);
-            if (success) {
-                return Result.success("归还设备成功");
-            } else {
-                return Result.error("归还设备失败");
-            }
-        } catch (IllegalArgumentException e) {
-            return Result.error(ResultCode.BAD_REQUEST.getCode(), e.getMessage());
-        } catch (Exception e) {
-            log.error("归还设备失败: modelId={}, quantity={}", modelId, quantity, e);
-            return Result.error("归还设备失败: " + e.getMessage());
-        }
-    }
-
     /**
      * 检查库存是否足够
      * GET /api/camera-inventory/check-stock
@@ -192,7 +69,7 @@ public class CameraInventoryController {
     public Result<?> checkStockAvailable(@RequestParam Integer modelId,
                                          @RequestParam Integer requiredQuantity) {
         try {
-            boolean available = cameraInventoryService.checkStockAvailable(modelId, requiredQuantity);
+            boolean available = inventoryProjection.checkStockAvailable(modelId, requiredQuantity);
             Map<String, Object> result = new java.util.HashMap<>();
             result.put("available", available);
             result.put("message", available ? "库存足够" : "库存不足");
@@ -210,11 +87,14 @@ public class CameraInventoryController {
     @GetMapping("/stats")
     public Result<?> getInventoryStats() {
         try {
-            // 这里可以添加统计逻辑，例如总库存、可用库存、预订库存等
-            List<CameraInventory> inventoryList = cameraInventoryService.list();
+            List<CameraInventory> inventoryList = inventoryProjection.list();
             Map<String, Object> stats = new java.util.HashMap<>();
             stats.put("totalModels", inventoryList.size());
-            // 可以添加更多统计信息
+            stats.put("totalQuantity", sum(inventoryList, CameraInventory::getTotalQuantity));
+            stats.put("availableQuantity", sum(inventoryList, CameraInventory::getAvailableQuantity));
+            stats.put("reservedQuantity", sum(inventoryList, CameraInventory::getReservedQuantity));
+            stats.put("rentedQuantity", sum(inventoryList, CameraInventory::getRentedQuantity));
+            stats.put("maintenanceQuantity", sum(inventoryList, CameraInventory::getMaintenanceQuantity));
             return Result.success(stats);
         } catch (Exception e) {
             log.error("获取库存统计信息失败", e);
@@ -223,16 +103,26 @@ public class CameraInventoryController {
     }
 
     /**
-     * 更新库存信息
+     * 更新库存信息（阈值、仓位、损坏数量；各状态数量由投影维护，请求中的数量字段忽略）
      * PUT /api/camera-inventory/{id}
      */
     @PutMapping("/{id}")
+    @RequireAdmin
     public Result<?> updateInventory(@PathVariable Integer id,
                                      @RequestBody CameraInventory inventory) {
         try {
-            inventory.setId(id);
-            boolean success = cameraInventoryService.updateById(inventory);
+            CameraInventory update = new CameraInventory();
+            update.setId(id);
+            update.setLowStockThreshold(inventory.getLowStockThreshold());
+            update.setReorderPoint(inventory.getReorderPoint());
+            update.setWarehouse(inventory.getWarehouse());
+            update.setShelf(inventory.getShelf());
+            update.setPosition(inventory.getPosition());
+            // 损坏数量无法由实例状态推出，投影和对账都不覆盖，只能在这里维护
+            update.setDamagedQuantity(inventory.getDamagedQuantity());
+            boolean success = cameraInventoryService.updateById(update);
             if (success) {
+                inventoryProjection.reloadRows();
                 return Result.success("更新库存信息成功");
             } else {
                 return Result.error("更新库存信息失败");
@@ -245,36 +135,41 @@ public class CameraInventoryController {
 
     /**
      * 初始化库存（为没有库存记录的型号创建库存记录）
+     * 请求中只取阈值和仓位，各状态数量由对账按设备实例统计后写入
      * POST /api/camera-inventory/init/{modelId}
      */
     @PostMapping("/init/{modelId}")
+    @RequireAdmin
     public Result<?> initInventory(@PathVariable Integer modelId,
-                                   @RequestBody(required = false) CameraInventory inventory) {
+                                   @RequestBody(required = false) CameraInventory request) {
         try {
-            if (inventory == null) {
-                inventory = new CameraInventory();
-            }
+            CameraInventory inventory = new CameraInventory();
             inventory.setModelId(modelId);
-
-            // 设置默认值
-            if (inventory.getTotalQuantity() == null) {
-                // 获取该型号的设备实例数量作为初始库存
-                int instanceCount = 0; // 这里需要查询设备实例数量，简化处理
-                inventory.setTotalQuantity(instanceCount);
-                inventory.setAvailableQuantity(instanceCount);
-            }
-
-            if (inventory.getLowStockThreshold() == null) {
-                inventory.setLowStockThreshold(2);
-            }
-
-            if (inventory.getReorderPoint() == null) {
-                inventory.setReorderPoint(1);
+            inventory.setTotalQuantity(0);
+            inventory.setAvailableQuantity(0);
+            inventory.setReservedQuantity(0);
+            inventory.setRentedQuantity(0);
+            inventory.setMaintenanceQuantity(0);
+            inventory.setDamagedQuantity(0);
+            inventory.setLowStockThreshold(2);
+            inventory.setReorderPoint(1);
+            if (request != null) {
+                if (request.getLowStockThreshold() != null) {
+                    inventory.setLowStockThreshold(request.getLowStockThreshold());
+                }
+                if (request.getReorderPoint() != null) {
+                    inventory.setReorderPoint(request.getReorderPoint());
+                }
+                inventory.setWarehouse(request.getWarehouse());
+                inventory.setShelf(request.getShelf());
+                inventory.setPosition(request.getPosition());
             }
 
             boolean success = cameraInventoryService.save(inventory);
             if (success) {
-                return Result.success("初始化库存成功", inventory);
+                // 对账按设备实例统计数量并写入新记录，同时重新加载投影中的库存记录
+                inventoryProjection.reconcile();
+                return Result.success("初始化库存成功", inventoryProjection.getByModelId(modelId));
             } else {
                 return Result.error("初始化库存失败");
             }
@@ -283,4 +178,24 @@ public class CameraInventoryController {
             return Result.error("初始化库存失败: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 库存对账：按设备实例重新统计并修正库存表，返回存在偏差的型号
+     * POST /api/camera-inventory/reconcile
+     */
+    @PostMapping("/reconcile")
+    @RequireAdmin
+    public Result<?> reconcile() {
+        List<Map<String, Object>> drifts = inventoryProjection.reconcile();
+        return Result.success(drifts);
+    }
+
+    private static int sum(List<CameraInventory> inventoryList, Function<CameraInventory, Integer> getter) {
+        int total = 0;
+        for (CameraInventory inventory : inventoryList) {
+            Integer value = getter.apply(inventory);
+            total += value != null ? value : 0;
+        }
+        return total;
+    }
+}
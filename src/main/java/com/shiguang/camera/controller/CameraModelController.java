@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.shiguang.camera.common.Result;
 import com.shiguang.camera.common.ResultCode;
 import com.shiguang.camera.entity.CameraModel;
+import com.shiguang.camera.exception.BusinessException;
 import com.shiguang.camera.service.CameraModelService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -23,19 +24,29 @@ public class CameraModelController {
     /**
      * 获取相机型号列表（分页）
      * GET /api/camera-models?page=1&size=10&brandId=1&keyword=相机&status=1
+     * 游标分页：GET /api/camera-models?cursor=&size=10，之后传入上一页返回的 nextCursor；
+     * 游标模式默认不统计总数，需要时传 withTotal=true
      */
     @GetMapping
     public Result<?> getCameraModelList(
             @RequestParam(defaultValue = "1") Integer page,
             @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean withTotal,
             @RequestParam(required = false) Integer brandId,
             @RequestParam(required = false) String keyword,
             @RequestParam(required = false) Integer status) {
 
         try {
+            if (cursor != null) {
+                return Result.success(cameraModelService.getModelCursorPage(
+                        cursor, size, withTotal, brandId, keyword, status));
+            }
             IPage<CameraModel> pageResult = cameraModelService.getModelPage(
                     page, size, brandId, keyword, status);
             return Result.success(pageResult);
+        } catch (BusinessException e) {
+            return Result.error(e.getCode(), e.getMessage());
         } catch (Exception e) {
             log.error("获取相机型号列表失败", e);
             return Result.error("获取相机型号列表失败: " + e.getMessage());
@@ -179,7 +190,7 @@ public class CameraModelController {
     @DeleteMapping("/{id}")
     public Result<?> deleteCameraModel(@PathVariable Integer id) {
         try {
-            boolean success = cameraModelService.removeById(id);
+            boolean success = cameraModelService.deleteCameraModel(id);
             if (success) {
                 return Result.success("删除相机型号成功");
             } else {
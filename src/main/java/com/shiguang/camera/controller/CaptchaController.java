@@ -1,6 +1,7 @@
 package com.shiguang.camera.controller;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.shiguang.camera.annotation.RateLimit;
 import com.shiguang.camera.common.Result;
 import com.shiguang.camera.common.ResultCode;
 import com.shiguang.camera.entity.Captcha;
@@ -27,6 +28,8 @@ public class CaptchaController {
      * 发送验证码（支持不区分大小写的type参数）
      */
     @PostMapping("/send")
+    @RateLimit(name = "captcha-send", key = RateLimit.KeyType.PARAM, param = "phone",
+            capacity = 1, refillMillis = 60000, message = "验证码发送过于频繁，请1分钟后再试")
     public Result<?> sendCaptcha(@RequestParam String phone,
                                  @RequestParam(defaultValue = "REGISTER") String type) {
         try {
@@ -49,7 +52,7 @@ public class CaptchaController {
             log.warn("验证码发送参数错误: {}", e.getMessage());
             return Result.error(ResultCode.BAD_REQUEST.getCode(), e.getMessage());
         } catch (RuntimeException e) {
-            log.warn("验证码发送频率限制: {}", e.getMessage());
+            log.warn("验证码发送失败: {}", e.getMessage());
             return Result.error(ResultCode.CAPTCHA_ERROR.getCode(), e.getMessage());
         } catch (Exception e) {
             log.error("验证码发送异常: ", e);
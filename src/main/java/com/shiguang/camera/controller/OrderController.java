@@ -4,15 +4,22 @@ import com.shiguang.camera.annotation.RequireAdmin;
 import com.shiguang.camera.annotation.RequireLogin;
 import com.shiguang.camera.annotation.RequireVerifiedUser;
 import com.shiguang.camera.entity.Order;
+import com.shiguang.camera.export.ExportFormat;
+import com.shiguang.camera.export.StreamingExportWriter;
+import com.shiguang.camera.service.ExportService;
 import com.shiguang.camera.service.OrderService;
 import com.shiguang.camera.vo.CreateOrderVO;
 import com.shiguang.camera.vo.ReturnDeviceVO;
 import com.shiguang.camera.vo.Result;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -21,6 +28,7 @@ import java.util.List;
 public class OrderController {
 
     private final OrderService orderService;
+    private final ExportService exportService;
 
     /**
      * 创建订单 - 需要实名认证的用户才能下单
@@ -104,18 +112,34 @@ public class OrderController {
     }
 
     /**
-     * 获取所有订单 - 需要管理员权限（需要先在OrderService中添加此方法）
-     * 注意：你的OrderService接口中目前没有这个方法
-     * 如果你需要这个功能，需要在OrderService中添加
+     * 获取所有订单 - 需要管理员权限
+     * 按游标分页：首页不传 cursor（或传空串），之后传上一页返回的 nextCursor
      */
     @GetMapping
     @RequireAdmin
-    public Result<List<Order>> getAllOrders(@RequestParam(required = false) Integer status) {
-        // 由于你的OrderService中没有这个方法，暂时注释掉
-        // List<Order> orders = orderService.getAllOrders(status);
-        // return Result.success(orders);
+    public Result<?> getAllOrders(@RequestParam(required = false) Integer status,
+                                  @RequestParam(required = false) String cursor,
+                                  @RequestParam(defaultValue = "20") Integer size,
+                                  @RequestParam(defaultValue = "false") boolean withTotal) {
+        return Result.success(orderService.getOrderCursorPage(status, cursor != null ? cursor : "", size, withTotal));
+    }
 
-        // 临时返回空列表，实际使用时需要实现这个方法
-        return Result.success(null, "功能待实现");
+    /**
+     * 导出订单（管理员）- 流式写出 CSV / NDJSON，内存占用与数据量无关
+     * GET /api/orders/export?format=csv&status=&from=2024-01-01&to=2024-01-31（日期均含当天）
+     */
+    @GetMapping("/export")
+    @RequireAdmin
+    public void exportOrders(@RequestParam(required = false) String format,
+                             @RequestParam(required = false) Integer status,
+                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                             HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        StreamingExportWriter.prepareResponse(response, exportFormat, "orders");
+        exportService.exportOrders(status,
+                from != null ? from.atStartOfDay() : null,
+                to != null ? to.plusDays(1).atStartOfDay() : null,
+                exportFormat, response.getOutputStream());
     }
-}
\ No newline at end of file
+}
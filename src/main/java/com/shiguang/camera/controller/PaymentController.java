@@ -1,15 +1,24 @@
 package com.shiguang.camera.controller;
 
+import com.shiguang.camera.annotation.RateLimit;
+import com.shiguang.camera.annotation.RequireAdmin;
 import com.shiguang.camera.entity.Payment;
+import com.shiguang.camera.export.ExportFormat;
+import com.shiguang.camera.export.StreamingExportWriter;
+import com.shiguang.camera.service.ExportService;
 import com.shiguang.camera.service.PaymentService;
 import com.shiguang.camera.vo.CreatePaymentVO;
 import com.shiguang.camera.vo.PaymentResultVO;
 import com.shiguang.camera.vo.Result;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -18,6 +27,7 @@ import java.util.List;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final ExportService exportService;
 
     /**
      * 创建支付
@@ -34,6 +44,8 @@ public class PaymentController {
      * 模拟支付
      */
     @PostMapping("/{id}/simulate")
+    @RateLimit(name = "payment-simulate", key = RateLimit.KeyType.USER,
+            capacity = 5, refillMillis = 12000, message = "支付操作过于频繁，请稍后再试")
     public Result<PaymentResultVO> simulatePayment(@PathVariable Integer id,
                                                    @RequestParam String password) {
         PaymentResultVO result = paymentService.simulatePayment(id, password);
@@ -115,4 +127,23 @@ public class PaymentController {
         );
         return Result.success(payments);
     }
-}
\ No newline at end of file
+
+    /**
+     * 导出支付记录（管理员）- 流式写出 CSV / NDJSON，内存占用与数据量无关
+     * GET /api/payments/export?format=csv&status=&from=2024-01-01&to=2024-01-31（日期均含当天）
+     */
+    @GetMapping("/export")
+    @RequireAdmin
+    public void exportPayments(@RequestParam(required = false) String format,
+                               @RequestParam(required = false) Integer status,
+                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                               HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        StreamingExportWriter.prepareResponse(response, exportFormat, "payments");
+        exportService.exportPayments(status,
+                from != null ? from.atStartOfDay() : null,
+                to != null ? to.plusDays(1).atStartOfDay() : null,
+                exportFormat, response.getOutputStream());
+    }
+}
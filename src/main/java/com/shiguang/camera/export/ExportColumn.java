@@ -0,0 +1,29 @@
+package com.shiguang.camera.export;
+
+import java.util.function.Function;
+
+/**
+ * 导出列：列名及取值方法
+ */
+public final class ExportColumn<T> {
+
+    private final String name;
+    private final Function<T, ?> getter;
+
+    private ExportColumn(String name, Function<T, ?> getter) {
+        this.name = name;
+        this.getter = getter;
+    }
+
+    public static <T> ExportColumn<T> of(String name, Function<T, ?> getter) {
+        return new ExportColumn<>(name, getter);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Object valueOf(T row) {
+        return getter.apply(row);
+    }
+}
@@ -0,0 +1,44 @@
+package com.shiguang.camera.export;
+
+import com.shiguang.camera.common.ResultCode;
+import com.shiguang.camera.exception.BusinessException;
+
+/**
+ * 导出格式
+ */
+public enum ExportFormat {
+
+    CSV("text/csv;charset=UTF-8", "csv"),
+    NDJSON("application/x-ndjson;charset=UTF-8", "ndjson");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * 按参数解析格式，不区分大小写，未指定时为 CSV
+     */
+    public static ExportFormat of(String value) {
+        if (value == null || value.isEmpty()) {
+            return CSV;
+        }
+        for (ExportFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new BusinessException(ResultCode.BAD_REQUEST.getCode(), "不支持的导出格式: " + value);
+    }
+}
@@ -0,0 +1,128 @@
+package com.shiguang.camera.export;
+
+import com.alibaba.fastjson.JSON;
+
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 逐行写出导出数据（CSV / NDJSON）
+ *
+ * 只持有当前一行和一个固定大小的缓冲区，内存占用与行数无关。
+ * 每写满 flushRows 行刷新一次到响应流：响应未设置长度，容器以 chunked 方式发送；
+ * 客户端读得慢时写操作在 socket 上阻塞，游标随之暂停读取，形成自然的背压。
+ */
+public class StreamingExportWriter<T> {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Writer writer;
+    private final ExportFormat format;
+    private final List<ExportColumn<T>> columns;
+    private final int flushRows;
+    private long rowCount;
+
+    /**
+     * 设置下载响应头（不设置 Content-Length，由容器分块发送）
+     */
+    public static void prepareResponse(HttpServletResponse response, ExportFormat format, String baseName) {
+        String fileName = baseName + "-" + LocalDate.now() + "." + format.getExtension();
+        response.setContentType(format.getContentType());
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+        response.setHeader("Cache-Control", "no-store");
+    }
+
+    public StreamingExportWriter(OutputStream out, ExportFormat format, List<ExportColumn<T>> columns, int flushRows) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.format = format;
+        this.columns = columns;
+        this.flushRows = Math.max(1, flushRows);
+    }
+
+    /**
+     * 写出表头（CSV 带 BOM，Excel 打开中文不乱码；NDJSON 没有表头）
+     */
+    public void writeHeader() throws IOException {
+        if (format != ExportFormat.CSV) {
+            return;
+        }
+        writer.write('\uFEFF');
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeCsvValue(columns.get(i).getName());
+        }
+        writer.write("\r\n");
+    }
+
+    public void write(T row) throws IOException {
+        if (format == ExportFormat.CSV) {
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                Object value = columns.get(i).valueOf(row);
+                if (value != null) {
+                    writeCsvValue(value.toString());
+                }
+            }
+            writer.write("\r\n");
+        } else {
+            Map<String, Object> line = new LinkedHashMap<>(columns.size() * 2);
+            for (ExportColumn<T> column : columns) {
+                line.put(column.getName(), column.valueOf(row));
+            }
+            writer.write(JSON.toJSONString(line));
+            writer.write('\n');
+        }
+        if (++rowCount % flushRows == 0) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * 写出剩余内容（不关闭响应流，由容器负责）
+     */
+    public void finish() throws IOException {
+        writer.flush();
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    private void writeCsvValue(String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                quote = true;
+                break;
+            }
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+}
@@ -0,0 +1,53 @@
+package com.shiguang.camera.imports;
+
+import java.util.Map;
+
+/**
+ * 导入文件中的一条记录：字段（键已规范化）或解析错误
+ */
+public class ImportRecord {
+
+    private final int line;
+    private final Map<String, String> fields;
+    private final String error;
+
+    private ImportRecord(int line, Map<String, String> fields, String error) {
+        this.line = line;
+        this.fields = fields;
+        this.error = error;
+    }
+
+    static ImportRecord of(int line, Map<String, String> fields) {
+        return new ImportRecord(line, fields, null);
+    }
+
+    static ImportRecord error(int line, String error) {
+        return new ImportRecord(line, null, error);
+    }
+
+    /**
+     * 记录在文件中的起始行号（从1开始）
+     */
+    public int getLine() {
+        return line;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * 按字段名取值（字段名规则同 StreamingImportReader），空白值视为 null
+     */
+    public String get(String name) {
+        if (fields == null) {
+            return null;
+        }
+        String value = fields.get(StreamingImportReader.normalizeKey(name));
+        if (value == null) {
+            return null;
+        }
+        value = value.trim();
+        return value.isEmpty() ? null : value;
+    }
+}
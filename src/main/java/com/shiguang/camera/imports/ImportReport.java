@@ -0,0 +1,54 @@
+package com.shiguang.camera.imports;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量导入结果
+ * 被拒绝的行只保留前 maxRejections 条明细，计数始终完整。
+ */
+@Data
+public class ImportReport {
+
+    // 读取到的记录数（不含表头和空行）
+    private long totalRows;
+
+    // 成功写入的行数
+    private long importedRows;
+
+    // 被拒绝的行数
+    private long rejectedRows;
+
+    // 已提交的块数
+    private int committedChunks;
+
+    // 是否处理完整个文件；为 false 时已提交的块保留，error 为中止原因
+    private boolean completed;
+
+    private String error;
+
+    private long elapsedMs;
+
+    private List<Rejection> rejections = new ArrayList<>();
+
+    // 明细是否因超过上限被截断
+    private boolean rejectionsTruncated;
+
+    public void reject(int line, String key, String reason, int maxRejections) {
+        rejectedRows++;
+        if (rejections.size() < maxRejections) {
+            rejections.add(new Rejection(line, key, reason));
+        } else {
+            rejectionsTruncated = true;
+        }
+    }
+
+    @Data
+    public static class Rejection {
+        private final int line;
+        private final String key;
+        private final String reason;
+    }
+}
@@ -0,0 +1,241 @@
+package com.shiguang.camera.imports;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.JSONObject;
+import com.shiguang.camera.common.ResultCode;
+import com.shiguang.camera.exception.BusinessException;
+import com.shiguang.camera.export.ExportFormat;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 逐条读取导入数据（CSV / NDJSON），与 StreamingExportWriter 的格式对应
+ *
+ * 只持有当前一条记录和一个固定大小的缓冲区，内存占用与文件大小无关；单条记录超过长度上限时终止读取，
+ * 避免引号未闭合等格式错误把剩余内容当作一个字段读入内存。
+ * CSV 第一行为表头，可带 BOM，字段按 RFC 4180 解析（双引号包裹、"" 转义、字段内可换行）。
+ * 字段名不区分大小写并忽略下划线、短横线，serialNumber、serial_number、SERIAL-NUMBER 视为同一列。
+ */
+public class StreamingImportReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // 单条记录的最大字符数
+    private static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+    private final BufferedReader reader;
+    private final ExportFormat format;
+    private final StringBuilder buffer = new StringBuilder();
+
+    private List<String> header;
+
+    // 已读取的换行数
+    private int lineCount;
+
+    public StreamingImportReader(InputStream in, ExportFormat format) throws IOException {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.format = format;
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+    }
+
+    /**
+     * 读取下一条记录，跳过空行
+     * @return 文件结束时返回 null
+     */
+    public ImportRecord next() throws IOException {
+        if (format == ExportFormat.CSV) {
+            if (header == null && !readHeader()) {
+                return null;
+            }
+            return nextCsv();
+        }
+        return nextJson();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private boolean readHeader() throws IOException {
+        List<String> values;
+        do {
+            values = readCsvRecord();
+            if (values == null) {
+                return false;
+            }
+        } while (isBlank(values));
+        header = new ArrayList<>(values.size());
+        for (String value : values) {
+            header.add(normalizeKey(value));
+        }
+        return true;
+    }
+
+    private ImportRecord nextCsv() throws IOException {
+        while (true) {
+            int line = lineCount + 1;
+            List<String> values = readCsvRecord();
+            if (values == null) {
+                return null;
+            }
+            if (isBlank(values)) {
+                continue;
+            }
+            if (values.size() != header.size()) {
+                return ImportRecord.error(line, "列数与表头不一致（" + values.size() + " / " + header.size() + "）");
+            }
+            Map<String, String> fields = new HashMap<>(header.size() * 2);
+            for (int i = 0; i < values.size(); i++) {
+                fields.put(header.get(i), values.get(i));
+            }
+            return ImportRecord.of(line, fields);
+        }
+    }
+
+    private ImportRecord nextJson() throws IOException {
+        while (true) {
+            int line = lineCount + 1;
+            String text = readLine();
+            if (text == null) {
+                return null;
+            }
+            if (text.trim().isEmpty()) {
+                continue;
+            }
+            JSONObject object;
+            try {
+                object = JSON.parseObject(text);
+            } catch (JSONException | ClassCastException e) {
+                return ImportRecord.error(line, "JSON 格式错误");
+            }
+            if (object == null) {
+                return ImportRecord.error(line, "JSON 格式错误");
+            }
+            Map<String, String> fields = new HashMap<>(object.size() * 2);
+            for (Map.Entry<String, Object> entry : object.entrySet()) {
+                Object value = entry.getValue();
+                fields.put(normalizeKey(entry.getKey()), value != null ? value.toString() : null);
+            }
+            return ImportRecord.of(line, fields);
+        }
+    }
+
+    /**
+     * 读取一条 CSV 记录
+     * @return 文件结束时返回 null
+     */
+    private List<String> readCsvRecord() throws IOException {
+        int startLine = lineCount + 1;
+        List<String> values = new ArrayList<>();
+        buffer.setLength(0);
+        boolean quoted = false;
+        boolean read = false;
+        int length = 0;
+        while (true) {
+            int c = reader.read();
+            if (c == -1) {
+                if (quoted) {
+                    throw new BusinessException(ResultCode.BAD_REQUEST.getCode(),
+                            "第 " + startLine + " 行起引号未闭合");
+                }
+                if (!read) {
+                    return null;
+                }
+                values.add(buffer.toString());
+                return values;
+            }
+            read = true;
+            checkLength(++length, startLine);
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        buffer.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else {
+                    if (c == '\n') {
+                        lineCount++;
+                    }
+                    buffer.append((char) c);
+                }
+            } else if (c == '"' && buffer.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(buffer.toString());
+                buffer.setLength(0);
+            } else if (c == '\n') {
+                lineCount++;
+                values.add(buffer.toString());
+                return values;
+            } else if (c != '\r') {
+                buffer.append((char) c);
+            }
+        }
+    }
+
+    /**
+     * 读取一行（不含换行符）
+     * @return 文件结束时返回 null
+     */
+    private String readLine() throws IOException {
+        buffer.setLength(0);
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        while (c != -1 && c != '\n') {
+            if (c != '\r') {
+                checkLength(buffer.length() + 1, lineCount + 1);
+                buffer.append((char) c);
+            }
+            c = reader.read();
+        }
+        if (c == '\n') {
+            lineCount++;
+        }
+        return buffer.toString();
+    }
+
+    private static void checkLength(int length, int line) {
+        if (length > MAX_RECORD_LENGTH) {
+            throw new BusinessException(ResultCode.BAD_REQUEST.getCode(),
+                    "第 " + line + " 行超过单条记录长度上限 " + MAX_RECORD_LENGTH + " 字符");
+        }
+    }
+
+    private static boolean isBlank(List<String> values) {
+        return values.size() == 1 && values.get(0).trim().isEmpty();
+    }
+
+    static String normalizeKey(String key) {
+        if (key == null) {
+            return "";
+        }
+        StringBuilder result = new StringBuilder(key.length());
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c != '_' && c != '-' && !Character.isWhitespace(c)) {
+                result.append(c);
+            }
+        }
+        return result.toString().toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,33 +1,55 @@
 package com.shiguang.camera.interceptor;
 
+import com.shiguang.camera.cache.UserCache;
 import com.shiguang.camera.entity.User;
+import com.shiguang.camera.metrics.MethodMetrics;
 import com.shiguang.camera.service.TokenService;
-import com.shiguang.camera.service.UserService;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
 
+import javax.annotation.PostConstruct;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class AuthInterceptor implements HandlerInterceptor {
 
+    // 通过日志的采样率（每N次输出一次）
+    private static final int PASS_LOG_SAMPLE_RATE = 100;
+
     private final TokenService tokenService;
-    private final UserService userService;
+    private final UserCache userCache;
+    private final MethodMetrics methodMetrics;
+
+    private Timer preHandleTimer;
+
+    @PostConstruct
+    public void initMetrics() {
+        preHandleTimer = methodMetrics.timer(AuthInterceptor.class, "preHandle", "interceptor");
+    }
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
-        String requestPath = request.getRequestURI();
-        log.debug("认证拦截器拦截请求: {} {}", request.getMethod(), requestPath);
+        long start = System.nanoTime();
+        try {
+            return authenticate(request, response);
+        } finally {
+            preHandleTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
 
+    private boolean authenticate(HttpServletRequest request, HttpServletResponse response) throws Exception {
         // 从请求头获取 token
         String token = request.getHeader("Authorization");
         if (token == null) {
-            log.warn("请求缺少 Authorization 头，路径: {}", requestPath);
+            log.warn("认证失败 reason=缺少Authorization头 path={}", request.getRequestURI());
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             response.getWriter().write("{\"code\":401,\"message\":\"未授权，请先登录\"}");
             return false;
@@ -41,16 +63,17 @@ public class AuthInterceptor implements HandlerInterceptor {
         // 验证 token
         Integer userId = tokenService.verifyToken(token);
         if (userId == null) {
-            log.warn("Token 验证失败，token: {}，路径: {}", token, requestPath);
+            // 不输出 token 原文
+            log.warn("认证失败 reason=Token无效 path={}", request.getRequestURI());
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             response.getWriter().write("{\"code\":401,\"message\":\"登录已过期，请重新登录\"}");
             return false;
         }
 
-        // 获取用户信息
-        User user = userService.getById(userId);
+        // 获取用户信息（优先读取缓存）
+        User user = userCache.get(userId);
         if (user == null) {
-            log.error("Token 有效但用户不存在，用户ID: {}，token: {}", userId, token);
+            log.error("认证失败 reason=用户不存在 userId={} path={}", userId, request.getRequestURI());
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             response.getWriter().write("{\"code\":401,\"message\":\"用户不存在\"}");
             return false;
@@ -63,8 +86,10 @@ public class AuthInterceptor implements HandlerInterceptor {
         request.setAttribute("isVerified", user.isVerified());
         request.setAttribute("token", token);
 
-        log.debug("认证通过，用户ID: {}，姓名: {}，路径: {}",
-                userId, user.getRealName(), requestPath);
+        // 通过日志按 1/PASS_LOG_SAMPLE_RATE 采样
+        if (log.isDebugEnabled() && ThreadLocalRandom.current().nextInt(PASS_LOG_SAMPLE_RATE) == 0) {
+            log.debug("认证通过(采样1/{}) userId={} path={}", PASS_LOG_SAMPLE_RATE, userId, request.getRequestURI());
+        }
 
         return true;
     }
@@ -0,0 +1,84 @@
+package com.shiguang.camera.loader;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 按键批量加载并记住结果（一个请求内使用）
+ *
+ * loadMany 只对尚未加载过的键调用一次批量函数（如 selectBatchIds），键多时按 maxBatchSize 分块，
+ * 不存在的键也会记住，同一请求内不会重复查询。线程安全。
+ */
+public class BatchLoader<K, V> {
+
+    private final Function<Collection<K>, Map<K, V>> batchFunction;
+    private final int maxBatchSize;
+
+    // 已加载的键，值为 null 表示不存在
+    private final Map<K, V> resolved = new HashMap<>();
+
+    private int batchCount;
+
+    /**
+     * @param batchFunction 按一批键加载，返回键到值的映射（不存在的键不出现在结果中）
+     */
+    public BatchLoader(Function<Collection<K>, Map<K, V>> batchFunction, int maxBatchSize) {
+        this.batchFunction = batchFunction;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    /**
+     * 批量加载，返回存在的键到值的映射（按传入顺序）
+     */
+    public synchronized Map<K, V> loadMany(Collection<K> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Set<K> distinct = new LinkedHashSet<>(keys);
+        distinct.remove(null);
+        List<K> missing = new ArrayList<>();
+        for (K key : distinct) {
+            if (!resolved.containsKey(key)) {
+                missing.add(key);
+            }
+        }
+        for (int from = 0; from < missing.size(); from += maxBatchSize) {
+            List<K> chunk = missing.subList(from, Math.min(from + maxBatchSize, missing.size()));
+            Map<K, V> loaded = batchFunction.apply(new ArrayList<>(chunk));
+            batchCount++;
+            for (K key : chunk) {
+                resolved.put(key, loaded.get(key));
+            }
+        }
+        Map<K, V> result = new LinkedHashMap<>(distinct.size() * 2);
+        for (K key : distinct) {
+            V value = resolved.get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 加载单个键，不存在时返回 null
+     */
+    public V load(K key) {
+        return key == null ? null : loadMany(Collections.singletonList(key)).get(key);
+    }
+
+    /**
+     * 已执行的批量查询次数
+     */
+    public synchronized int getBatchCount() {
+        return batchCount;
+    }
+}
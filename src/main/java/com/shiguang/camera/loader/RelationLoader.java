@@ -0,0 +1,207 @@
+package com.shiguang.camera.loader;
+
+import com.shiguang.camera.async.LookupExecutor;
+import com.shiguang.camera.cache.CatalogCache;
+import com.shiguang.camera.entity.CameraInstance;
+import com.shiguang.camera.entity.CameraModel;
+import com.shiguang.camera.entity.Order;
+import com.shiguang.camera.entity.Reservation;
+import com.shiguang.camera.entity.ReservationInstances;
+import com.shiguang.camera.entity.User;
+import com.shiguang.camera.mapper.CameraInstanceMapper;
+import com.shiguang.camera.mapper.ReservationInstancesMapper;
+import com.shiguang.camera.mapper.ReservationMapper;
+import com.shiguang.camera.mapper.UserMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * 预订、订单关联数据的批量装配
+ *
+ * 先收集一批记录引用的用户、型号、设备实例、预订ID，再按实体类型各执行一次 selectBatchIds，
+ * 列表接口的查询次数与实体类型数相关，与行数无关。
+ * 加载结果按请求记住（保存在请求属性中），同一请求内重复引用的实体不再查询；没有请求上下文时（定时任务等）每次调用单独加载。
+ * 不同实体类型之间互不依赖，通过 LookupExecutor 并行加载，耗时接近其中最慢的一次查询而不是各次之和。
+ * 型号走目录缓存，未命中的也是一次批量加载。装配出的用户对象不含密码。
+ */
+@Component
+public class RelationLoader {
+
+    private static final String ATTRIBUTE = RelationLoader.class.getName() + ".LOADERS";
+
+    // 每条 IN 查询的最大ID数
+    private static final int MAX_BATCH_SIZE = 500;
+
+    private final UserMapper userMapper;
+    private final CameraInstanceMapper cameraInstanceMapper;
+    private final ReservationMapper reservationMapper;
+    private final ReservationInstancesMapper reservationInstancesMapper;
+    private final CatalogCache catalogCache;
+    private final LookupExecutor lookupExecutor;
+
+    public RelationLoader(UserMapper userMapper,
+                          CameraInstanceMapper cameraInstanceMapper,
+                          ReservationMapper reservationMapper,
+                          ReservationInstancesMapper reservationInstancesMapper,
+                          CatalogCache catalogCache,
+                          LookupExecutor lookupExecutor) {
+        this.userMapper = userMapper;
+        this.cameraInstanceMapper = cameraInstanceMapper;
+        this.reservationMapper = reservationMapper;
+        this.reservationInstancesMapper = reservationInstancesMapper;
+        this.catalogCache = catalogCache;
+        this.lookupExecutor = lookupExecutor;
+    }
+
+    /**
+     * 为预订装配用户、型号和分配的设备实例
+     */
+    public void hydrateReservations(Collection<Reservation> reservations) {
+        if (reservations == null || reservations.isEmpty()) {
+            return;
+        }
+        Loaders loaders = current();
+        List<Integer> userIds = new ArrayList<>();
+        List<Integer> modelIds = new ArrayList<>();
+        List<Integer> reservationIds = new ArrayList<>();
+        for (Reservation reservation : reservations) {
+            userIds.add(reservation.getUserId());
+            modelIds.add(reservation.getModelId());
+            reservationIds.add(reservation.getId());
+        }
+
+        // 用户、型号、设备实例（先查关联再查实例）三路并行
+        CompletableFuture<Map<Integer, User>> users = lookupExecutor.supply(() -> loaders.users.loadMany(userIds));
+        CompletableFuture<Map<Integer, CameraModel>> models = lookupExecutor.supply(() -> loaders.models.loadMany(modelIds));
+        CompletableFuture<Map<Integer, List<CameraInstance>>> assigned =
+                lookupExecutor.supply(() -> loadAssignedInstances(loaders, reservationIds));
+        lookupExecutor.join(CompletableFuture.allOf(users, models, assigned));
+
+        for (Reservation reservation : reservations) {
+            reservation.setUser(users.join().get(reservation.getUserId()));
+            reservation.setCameraModel(models.join().get(reservation.getModelId()));
+            reservation.setAssignedInstances(
+                    new ArrayList<>(assigned.join().getOrDefault(reservation.getId(), Collections.emptyList())));
+        }
+    }
+
+    /**
+     * 为订单装配预订和型号
+     */
+    public void hydrateOrders(Collection<Order> orders) {
+        if (orders == null || orders.isEmpty()) {
+            return;
+        }
+        Loaders loaders = current();
+        List<Integer> reservationIds = new ArrayList<>();
+        List<Integer> modelIds = new ArrayList<>();
+        for (Order order : orders) {
+            reservationIds.add(order.getReservationId());
+            modelIds.add(order.getModelId());
+        }
+
+        CompletableFuture<Map<Integer, Reservation>> reservations =
+                lookupExecutor.supply(() -> loaders.reservations.loadMany(reservationIds));
+        CompletableFuture<Map<Integer, CameraModel>> models = lookupExecutor.supply(() -> loaders.models.loadMany(modelIds));
+        lookupExecutor.join(CompletableFuture.allOf(reservations, models));
+
+        for (Order order : orders) {
+            order.setReservation(reservations.join().get(order.getReservationId()));
+            order.setCameraModel(models.join().get(order.getModelId()));
+        }
+    }
+
+    /**
+     * 当前请求的加载器，没有请求上下文时返回新实例
+     */
+    private Loaders current() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return new Loaders();
+        }
+        synchronized (attributes) {
+            Loaders loaders = (Loaders) attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            if (loaders == null) {
+                loaders = new Loaders();
+                attributes.setAttribute(ATTRIBUTE, loaders, RequestAttributes.SCOPE_REQUEST);
+            }
+            return loaders;
+        }
+    }
+
+    /**
+     * 预订ID -> 分配的设备实例（按关联顺序）
+     */
+    private static Map<Integer, List<CameraInstance>> loadAssignedInstances(Loaders loaders, List<Integer> reservationIds) {
+        Map<Integer, List<Integer>> instanceIdsByReservation = loaders.reservationInstanceIds.loadMany(reservationIds);
+        List<Integer> instanceIds = new ArrayList<>();
+        instanceIdsByReservation.values().forEach(instanceIds::addAll);
+        Map<Integer, CameraInstance> instances = loaders.instances.loadMany(instanceIds);
+
+        Map<Integer, List<CameraInstance>> result = new HashMap<>(instanceIdsByReservation.size() * 2);
+        instanceIdsByReservation.forEach((reservationId, ids) -> {
+            List<CameraInstance> assigned = new ArrayList<>(ids.size());
+            for (Integer instanceId : ids) {
+                CameraInstance instance = instances.get(instanceId);
+                if (instance != null) {
+                    assigned.add(instance);
+                }
+            }
+            result.put(reservationId, assigned);
+        });
+        return result;
+    }
+
+    private Map<Integer, User> loadUsers(Collection<Integer> ids) {
+        Map<Integer, User> result = byId(userMapper.selectBatchIds(ids), User::getId);
+        result.values().forEach(user -> user.setPassword(null));
+        return result;
+    }
+
+    private Map<Integer, List<Integer>> loadReservationInstanceIds(Collection<Integer> reservationIds) {
+        Map<Integer, List<Integer>> result = new HashMap<>(reservationIds.size() * 2);
+        for (ReservationInstances ri : reservationInstancesMapper.selectByReservationIds(reservationIds)) {
+            result.computeIfAbsent(ri.getReservationId(), id -> new ArrayList<>()).add(ri.getInstanceId());
+        }
+        // 没有关联的预订也记住（空列表）
+        for (Integer reservationId : reservationIds) {
+            result.putIfAbsent(reservationId, Collections.emptyList());
+        }
+        return result;
+    }
+
+    private static <T> Map<Integer, T> byId(Collection<T> rows, Function<T, Integer> idGetter) {
+        Map<Integer, T> result = new LinkedHashMap<>(rows.size() * 2);
+        for (T row : rows) {
+            result.put(idGetter.apply(row), row);
+        }
+        return result;
+    }
+
+    /**
+     * 一个请求内的加载器
+     */
+    private class Loaders {
+        final BatchLoader<Integer, User> users =
+                new BatchLoader<>(RelationLoader.this::loadUsers, MAX_BATCH_SIZE);
+        final BatchLoader<Integer, CameraModel> models =
+                new BatchLoader<>(catalogCache::getModels, MAX_BATCH_SIZE);
+        final BatchLoader<Integer, CameraInstance> instances =
+                new BatchLoader<>(ids -> byId(cameraInstanceMapper.selectBatchIds(ids), CameraInstance::getId), MAX_BATCH_SIZE);
+        final BatchLoader<Integer, Reservation> reservations =
+                new BatchLoader<>(ids -> byId(reservationMapper.selectBatchIds(ids), Reservation::getId), MAX_BATCH_SIZE);
+        final BatchLoader<Integer, List<Integer>> reservationInstanceIds =
+                new BatchLoader<>(RelationLoader.this::loadReservationInstanceIds, MAX_BATCH_SIZE);
+    }
+}
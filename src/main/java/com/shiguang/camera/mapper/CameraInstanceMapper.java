@@ -2,10 +2,17 @@ package com.shiguang.camera.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.shiguang.camera.entity.CameraInstance;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultType;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
@@ -30,27 +37,129 @@ public interface CameraInstanceMapper extends BaseMapper<CameraInstance> {
     @Select("SELECT status, COUNT(*) as count FROM camera_instance WHERE model_id = #{modelId} GROUP BY status")
     List<StatusCount> countByStatus(@Param("modelId") Integer modelId);
 
+    /**
+     * 按型号、状态统计全部设备数量（库存对账用）
+     */
+    @Select("SELECT model_id, status, COUNT(*) as count FROM camera_instance GROUP BY model_id, status")
+    List<StatusCount> countByModelAndStatus();
+
+    /**
+     * 按型号、状态、状况统计设备数量，modelIds 为空时统计全部型号
+     */
+    @Select("<script>" +
+            "SELECT model_id, status, `condition`, COUNT(*) as count FROM camera_instance " +
+            "<if test='modelIds != null and modelIds.size() > 0'>WHERE model_id IN " +
+            "<foreach collection='modelIds' item='id' open='(' separator=',' close=')'>#{id}</foreach></if> " +
+            "GROUP BY model_id, status, `condition`" +
+            "</script>")
+    List<StatusCount> countByModelStatusCondition(@Param("modelIds") Collection<Integer> modelIds);
+
     /**
      * 根据序列号查询
      */
     @Select("SELECT * FROM camera_instance WHERE serial_number = #{serialNumber}")
     CameraInstance selectBySerialNumber(@Param("serialNumber") String serialNumber);
 
+    /**
+     * 返回给定序列号中已存在的序列号（批量导入时按块查重）
+     */
+    @Select("<script>" +
+            "SELECT serial_number FROM camera_instance WHERE serial_number IN " +
+            "<foreach collection='serialNumbers' item='sn' open='(' separator=',' close=')'>#{sn}</foreach>" +
+            "</script>")
+    List<String> selectExistingSerialNumbers(@Param("serialNumbers") Collection<String> serialNumbers);
+
+    /**
+     * 批量插入设备实例（单条多值 INSERT），自增ID回填到对象
+     */
+    @Insert("<script>" +
+            "INSERT INTO camera_instance (model_id, serial_number, asset_tag, status, `condition`, location, notes, " +
+            "purchase_date, warranty_expiry, create_time, update_time) VALUES " +
+            "<foreach collection='instances' item='item' separator=','>" +
+            "(#{item.modelId}, #{item.serialNumber}, #{item.assetTag}, #{item.status}, #{item.condition}, " +
+            "#{item.location}, #{item.notes}, #{item.purchaseDate}, #{item.warrantyExpiry}, NOW(), NOW())" +
+            "</foreach>" +
+            "</script>")
+    @Options(useGeneratedKeys = true, keyProperty = "id", keyColumn = "id")
+    int insertBatch(@Param("instances") List<CameraInstance> instances);
+
+    /**
+     * 统计特定型号指定状态的设备实例数量
+     */
+    @Select("SELECT COUNT(*) FROM camera_instance WHERE model_id = #{modelId} AND status = #{status}")
+    long countByModelIdAndStatus(@Param("modelId") Integer modelId, @Param("status") Integer status);
+
     /**
      * 统计特定型号的设备实例数量（排除特定状态）
      */
     @Select("SELECT COUNT(*) FROM camera_instance WHERE model_id = #{modelId} AND status != #{excludeStatus}")
     Long countByModelIdAndStatusNot(@Param("modelId") Integer modelId, @Param("excludeStatus") Integer excludeStatus);
 
+    /**
+     * 批量转换预订关联设备实例的状态（仅转换当前处于 fromStatus 的实例）
+     * @return 实际转换的实例数量
+     */
+    @Update("UPDATE camera_instance ci " +
+            "JOIN reservation_instances ri ON ri.instance_id = ci.id " +
+            "SET ci.status = #{toStatus}, ci.update_time = NOW() " +
+            "WHERE ri.reservation_id = #{reservationId} AND ci.status = #{fromStatus}")
+    int transitionStatus(@Param("reservationId") Integer reservationId,
+                         @Param("fromStatus") Integer fromStatus,
+                         @Param("toStatus") Integer toStatus);
+
+    /**
+     * 锁定并获取指定数量的可用设备实例ID（跳过已被其他事务锁定的行）
+     */
+    @Select("SELECT id FROM camera_instance WHERE model_id = #{modelId} AND status = 0 " +
+            "ORDER BY id LIMIT #{limit} FOR UPDATE SKIP LOCKED")
+    List<Integer> selectAvailableIdsForUpdate(@Param("modelId") Integer modelId, @Param("limit") Integer limit);
+
+    /**
+     * 按ID批量转换设备实例状态（仅转换当前处于 fromStatus 的实例）
+     * @return 实际转换的实例数量
+     */
+    @Update("<script>" +
+            "UPDATE camera_instance SET status = #{toStatus}, update_time = NOW() " +
+            "WHERE status = #{fromStatus} AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int transitionStatusByIds(@Param("ids") List<Integer> ids,
+                              @Param("fromStatus") Integer fromStatus,
+                              @Param("toStatus") Integer toStatus);
+
+    /**
+     * 逐行读取搜索索引字段（MySQL 流式读取），按ID升序
+     */
+    @Select("SELECT id, serial_number, asset_tag, notes FROM camera_instance ORDER BY id")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(CameraInstance.class)
+    void scanSearchFields(ResultHandler<CameraInstance> handler);
+
+    /**
+     * 逐行读取全部序列号（MySQL 流式读取，构建唯一性过滤器用）
+     */
+    @Select("SELECT serial_number FROM camera_instance")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(String.class)
+    void scanSerialNumbers(ResultHandler<String> handler);
+
     // 状态统计内部类
     class StatusCount {
+        private Integer modelId;
         private Integer status;
+        private Integer condition;
         private Long count;
 
         // getter/setter
+        public Integer getModelId() { return modelId; }
+        public void setModelId(Integer modelId) { this.modelId = modelId; }
+
         public Integer getStatus() { return status; }
         public void setStatus(Integer status) { this.status = status; }
 
+        public Integer getCondition() { return condition; }
+        public void setCondition(Integer condition) { this.condition = condition; }
+
         public Long getCount() { return count; }
         public void setCount(Long count) { this.count = count; }
     }
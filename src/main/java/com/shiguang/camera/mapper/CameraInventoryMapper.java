@@ -92,4 +92,53 @@ public interface CameraInventoryMapper extends BaseMapper<CameraInventory> {
      */
     @Select("SELECT * FROM camera_inventory WHERE model_id = #{modelId}")
     CameraInventory selectByModelId(@Param("modelId") Integer modelId);
+
+    /**
+     * 按增量更新各数量（库存投影批量刷新用）
+     */
+    @Update("UPDATE camera_inventory SET total_quantity = total_quantity + #{total}, " +
+            "available_quantity = available_quantity + #{available}, " +
+            "reserved_quantity = reserved_quantity + #{reserved}, " +
+            "rented_quantity = rented_quantity + #{rented}, " +
+            "maintenance_quantity = maintenance_quantity + #{maintenance}, " +
+            "last_updated = NOW() WHERE model_id = #{modelId}")
+    int applyDelta(InventoryQuantities delta);
+
+    /**
+     * 直接覆盖各数量（库存对账修正用）
+     */
+    @Update("UPDATE camera_inventory SET total_quantity = #{total}, available_quantity = #{available}, " +
+            "reserved_quantity = #{reserved}, rented_quantity = #{rented}, " +
+            "maintenance_quantity = #{maintenance}, last_updated = NOW() WHERE model_id = #{modelId}")
+    int overwriteQuantities(InventoryQuantities quantities);
+
+    // 各数量（增量或绝对值）
+    class InventoryQuantities {
+        private Integer modelId;
+        private int total;
+        private int available;
+        private int reserved;
+        private int rented;
+        private int maintenance;
+
+        public InventoryQuantities(Integer modelId, int total, int available, int reserved, int rented, int maintenance) {
+            this.modelId = modelId;
+            this.total = total;
+            this.available = available;
+            this.reserved = reserved;
+            this.rented = rented;
+            this.maintenance = maintenance;
+        }
+
+        public Integer getModelId() { return modelId; }
+        public int getTotal() { return total; }
+        public int getAvailable() { return available; }
+        public int getReserved() { return reserved; }
+        public int getRented() { return rented; }
+        public int getMaintenance() { return maintenance; }
+
+        public boolean isZero() {
+            return total == 0 && available == 0 && reserved == 0 && rented == 0 && maintenance == 0;
+        }
+    }
 }
\ No newline at end of file
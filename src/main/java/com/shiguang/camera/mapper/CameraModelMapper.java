@@ -34,16 +34,10 @@ public interface CameraModelMapper extends BaseMapper<CameraModel> {
     List<CameraModel> searchModels(@Param("keyword") String keyword);
 
     /**
-     * 分页查询相机型号（带品牌信息）
+     * 读取全部型号的搜索索引字段
      */
-    @Select("SELECT cm.*, b.name as brand_name, b.logo as brand_logo " +
-            "FROM camera_model cm " +
-            "LEFT JOIN brand b ON cm.brand_id = b.id " +
-            "WHERE cm.status = 1 " +
-            "ORDER BY cm.create_time DESC " +
-            "LIMIT #{offset}, #{pageSize}")
-    List<CameraModel> selectPageWithBrand(@Param("offset") Integer offset,
-                                          @Param("pageSize") Integer pageSize);
+    @Select("SELECT id, name, model, description FROM camera_model ORDER BY id")
+    List<CameraModel> selectSearchFields();
 
     /**
      * 按品牌统计相机型号数量
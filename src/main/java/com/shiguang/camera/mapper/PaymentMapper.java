@@ -3,9 +3,12 @@ package com.shiguang.camera.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.shiguang.camera.entity.Payment;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -27,4 +30,24 @@ public interface PaymentMapper extends BaseMapper<Payment> {
                      @Param("status") Integer status,
                      @Param("confirmedTime") LocalDateTime confirmedTime,
                      @Param("confirmedBy") Integer confirmedBy);
+
+    /**
+     * 流式读取导出数据（MySQL 逐行读取，fetchSize = Integer.MIN_VALUE），需在事务内遍历
+     * @param status 状态（可选）
+     * @param from 创建时间起（含，可选）
+     * @param to 创建时间止（不含，可选）
+     */
+    @Select("<script>" +
+            "SELECT * FROM payment " +
+            "<where>" +
+            "<if test='status != null'>AND status = #{status} </if>" +
+            "<if test='from != null'>AND create_time &gt;= #{from} </if>" +
+            "<if test='to != null'>AND create_time &lt; #{to} </if>" +
+            "</where>" +
+            "ORDER BY id" +
+            "</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<Payment> streamForExport(@Param("status") Integer status,
+                                    @Param("from") LocalDateTime from,
+                                    @Param("to") LocalDateTime to);
 }
\ No newline at end of file
@@ -2,21 +2,46 @@ package com.shiguang.camera.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.shiguang.camera.entity.ReservationInstances;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
 public interface ReservationInstancesMapper extends BaseMapper<ReservationInstances> {
 
+    /**
+     * 批量插入预订与设备实例的关联（单条多值 INSERT）
+     * 分块由 BatchWriter 控制，instanceIds 不能为空
+     */
+    @Insert("<script>" +
+            "INSERT INTO reservation_instances (reservation_id, instance_id) VALUES " +
+            "<foreach collection='instanceIds' item='instanceId' separator=','>" +
+            "(#{reservationId}, #{instanceId})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("reservationId") Integer reservationId,
+                    @Param("instanceIds") List<Integer> instanceIds);
+
     /**
      * 根据预订ID获取关联的设备实例
      */
     @Select("SELECT * FROM reservation_instances WHERE reservation_id = #{reservationId}")
     List<ReservationInstances> selectByReservationId(@Param("reservationId") Integer reservationId);
 
+    /**
+     * 根据多个预订ID获取关联（按关联ID升序）
+     */
+    @Select("<script>" +
+            "SELECT * FROM reservation_instances WHERE reservation_id IN " +
+            "<foreach collection='reservationIds' item='id' open='(' separator=',' close=')'>#{id}</foreach> " +
+            "ORDER BY id" +
+            "</script>")
+    List<ReservationInstances> selectByReservationIds(@Param("reservationIds") Collection<Integer> reservationIds);
+
     /**
      * 根据实例ID查询预订关联
      */
@@ -7,37 +7,29 @@ import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
 import java.time.LocalDate;
-import java.time.LocalTime;
+import java.util.List;
 
 @Mapper
 public interface ReservationMapper extends BaseMapper<Reservation> {
 
     /**
-     * 检查时间段内的预订冲突
-     * 注意：这里假设预订是按天计算的，不考虑具体时间段的冲突
+     * 获取与时间段有重叠的占用中预订（按天计算，不考虑具体时间段），用于计算单日已预订数量的峰值
      */
-    @Select("SELECT SUM(quantity) FROM reservation " +
+    @Select("SELECT id, model_id, quantity, start_date, end_date, status FROM reservation " +
             "WHERE model_id = #{modelId} " +
             "AND status IN (0, 1) " + // 原来是：AND status IN ('PENDING', 'CONFIRMED')
             "AND NOT (end_date < #{startDate} OR start_date > #{endDate}) " +
             "AND (id != #{excludeId} OR #{excludeId} IS NULL)")
-    Integer checkTimeConflict(@Param("modelId") Integer modelId,
-                              @Param("startDate") LocalDate startDate,
-                              @Param("endDate") LocalDate endDate,
-                              @Param("startTime") LocalTime startTime,
-                              @Param("endTime") LocalTime endTime,
-                              @Param("excludeId") Integer excludeId);
+    List<Reservation> selectOverlapping(@Param("modelId") Integer modelId,
+                                        @Param("startDate") LocalDate startDate,
+                                        @Param("endDate") LocalDate endDate,
+                                        @Param("excludeId") Integer excludeId);
 
     /**
-
-    /**
-     * 获取特定时间段内的已预订数量
+     * 获取指定日期之后仍在占用的预订（用于预热预订占用日历）
      */
-    @Select("SELECT SUM(quantity) FROM reservation " +
-            "WHERE model_id = #{modelId} " +
-            "AND status IN (0, 1) " + // 原来是：AND status IN ('PENDING', 'CONFIRMED')
-            "AND NOT (end_date < #{startDate} OR start_date > #{endDate})")
-    Integer getBookedQuantity(@Param("modelId") Integer modelId,
-                              @Param("startDate") LocalDate startDate,
-                              @Param("endDate") LocalDate endDate);
-}
\ No newline at end of file
+    @Select("SELECT id, model_id, quantity, start_date, end_date, status FROM reservation " +
+            "WHERE status IN (0, 1) " +
+            "AND end_date >= #{fromDate}")
+    List<Reservation> selectActiveSince(@Param("fromDate") LocalDate fromDate);
+}
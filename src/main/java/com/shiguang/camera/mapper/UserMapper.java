@@ -3,9 +3,13 @@ package com.shiguang.camera.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.shiguang.camera.entity.User;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultType;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
 @Mapper
 public interface UserMapper extends BaseMapper<User> {
@@ -26,6 +30,14 @@ public interface UserMapper extends BaseMapper<User> {
     @Select("SELECT * FROM user WHERE id_card = #{idCard}")
     User selectByIdCard(@Param("idCard") String idCard);
 
+    /**
+     * 逐行读取全部手机号、身份证号（MySQL 流式读取，构建唯一性过滤器用）
+     */
+    @Select("SELECT phone, id_card FROM user")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(User.class)
+    void scanUniqueFields(ResultHandler<User> handler);
+
     /**
      * 更新用户实名认证状态
      * @param userId 用户ID
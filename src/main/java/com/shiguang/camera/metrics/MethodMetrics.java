@@ -0,0 +1,125 @@
+package com.shiguang.camera.metrics;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.noop.NoopTimer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 方法耗时指标
+ *
+ * app.method：服务、拦截器、切面方法耗时，标签 layer/class/method
+ * app.mapper：Mapper 语句耗时，标签 mapper/method/command
+ * 均以直方图导出到 /actuator/prometheus（管理端口 management.server.port），可用 histogram_quantile 计算 p50/p99。
+ * Timer 按方法/语句缓存，记录时只有一次 Map 查找和 record 调用，不创建额外对象；
+ * 不在 app.metrics.packages 中的包返回空实现，记录为空操作。
+ */
+@Component
+public class MethodMetrics {
+
+    public static final String METHOD_METRIC = "app.method";
+    public static final String MAPPER_METRIC = "app.mapper";
+
+    private static final String BASE_PACKAGE = "com.shiguang.camera.";
+
+    private static final Timer DISABLED = new NoopTimer(
+            new Meter.Id("app.disabled", Tags.empty(), null, null, Meter.Type.TIMER));
+
+    private final MeterRegistry registry;
+    private final String[] enabledPackages;
+
+    // Method 或语句ID -> Timer
+    private final ConcurrentHashMap<Object, Timer> timers = new ConcurrentHashMap<>();
+
+    public MethodMetrics(MeterRegistry registry,
+                         @Value("${app.metrics.packages:service.impl,mapper,interceptor,aspect}") String[] packages) {
+        this.registry = registry;
+        this.enabledPackages = new String[packages.length];
+        for (int i = 0; i < packages.length; i++) {
+            this.enabledPackages[i] = BASE_PACKAGE + packages[i].trim() + ".";
+        }
+    }
+
+    /**
+     * 获取方法的计时器
+     * @param layer 所属层：service / interceptor / aspect
+     */
+    public Timer methodTimer(Method method, String layer) {
+        Timer timer = timers.get(method);
+        if (timer != null) {
+            return timer;
+        }
+        return timers.computeIfAbsent(method, key -> {
+            Class<?> type = method.getDeclaringClass();
+            if (!isEnabled(type.getName())) {
+                return DISABLED;
+            }
+            return register(Timer.builder(METHOD_METRIC)
+                    .tag("layer", layer)
+                    .tag("class", type.getSimpleName())
+                    .tag("method", method.getName()));
+        });
+    }
+
+    /**
+     * 获取指定类、方法名的计时器（由调用方持有，不进入缓存）
+     * @param layer 所属层：service / interceptor / aspect
+     */
+    public Timer timer(Class<?> type, String methodName, String layer) {
+        if (!isEnabled(type.getName())) {
+            return DISABLED;
+        }
+        return register(Timer.builder(METHOD_METRIC)
+                .tag("layer", layer)
+                .tag("class", type.getSimpleName())
+                .tag("method", methodName));
+    }
+
+    /**
+     * 获取 Mapper 语句的计时器
+     * @param statementId MyBatis 语句ID（Mapper 全限定名.方法名）
+     * @param command SQL 类型：SELECT / INSERT / UPDATE / DELETE
+     */
+    public Timer mapperTimer(String statementId, String command) {
+        Timer timer = timers.get(statementId);
+        if (timer != null) {
+            return timer;
+        }
+        return timers.computeIfAbsent(statementId, key -> {
+            // 启用包内的语句ID至少形如 com.shiguang.camera.mapper.XxxMapper.method
+            if (!isEnabled(statementId)) {
+                return DISABLED;
+            }
+            int dot = statementId.lastIndexOf('.');
+            String mapperName = statementId.substring(statementId.lastIndexOf('.', dot - 1) + 1, dot);
+            return register(Timer.builder(MAPPER_METRIC)
+                    .tag("mapper", mapperName)
+                    .tag("method", statementId.substring(dot + 1))
+                    .tag("command", command));
+        });
+    }
+
+    private Timer register(Timer.Builder builder) {
+        return builder
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(50_000))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(registry);
+    }
+
+    private boolean isEnabled(String className) {
+        for (String enabledPackage : enabledPackages) {
+            if (className.startsWith(enabledPackage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
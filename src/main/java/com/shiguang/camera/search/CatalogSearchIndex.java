@@ -0,0 +1,233 @@
+package com.shiguang.camera.search;
+
+import com.shiguang.camera.entity.CameraInstance;
+import com.shiguang.camera.entity.CameraModel;
+import com.shiguang.camera.mapper.CameraInstanceMapper;
+import com.shiguang.camera.mapper.CameraModelMapper;
+import com.shiguang.camera.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 相机型号、设备实例的关键词搜索索引
+ *
+ * 型号索引名称、型号、描述，设备实例索引序列号、资产标签、备注（权重依次递减）。
+ * 启动时从数据库全量构建，写操作提交后按主键重新读取并增量更新，另有定时全量重建修正其他节点或直接改库造成的偏差。
+ * 全量重建时先释放旧索引再构建，重建期间（以及构建失败、等待 app.search.retry-interval 重试期间）搜索回退到数据库查询；
+ * 索引没有命中时调用方同样查数据库，其他节点新增、本节点尚未索引的记录不会因此查不到；
+ * 但索引有命中时这些记录不在结果中，排序搜索的结果只是尽力而为。
+ * 列表接口的关键词筛选不经过索引，直接 LIKE 查询，结果完整。
+ * 索引只返回按相关度排序的ID，记录由调用方按主键取回。
+ */
+@Slf4j
+@Component
+public class CatalogSearchIndex {
+
+    private final CameraModelMapper cameraModelMapper;
+    private final CameraInstanceMapper cameraInstanceMapper;
+
+    private final TextIndex models = new TextIndex("models", 3, 2, 1);
+    private final TextIndex instances = new TextIndex("instances", 3, 2, 1);
+
+    // 上次构建失败，等待重试
+    private volatile boolean modelsFailed;
+    private volatile boolean instancesFailed;
+
+    public CatalogSearchIndex(CameraModelMapper cameraModelMapper,
+                              CameraInstanceMapper cameraInstanceMapper) {
+        this.cameraModelMapper = cameraModelMapper;
+        this.cameraInstanceMapper = cameraInstanceMapper;
+    }
+
+    /**
+     * 启动完成后构建索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    /**
+     * 定时全量重建
+     */
+    @Scheduled(cron = "${app.search.rebuild-cron:0 40 3 * * ?}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    /**
+     * 定时把增量合并进主段
+     */
+    @Scheduled(fixedDelayString = "${app.search.compact-interval:30000}")
+    public void compact() {
+        models.compact();
+        instances.compact();
+    }
+
+    /**
+     * 重试构建失败的索引：旧主段在构建开始时已释放，失败后索引不可用、覆盖层只增不减，不能等到下次定时重建
+     */
+    @Scheduled(fixedDelayString = "${app.search.retry-interval:60000}")
+    public synchronized void retryFailed() {
+        if (modelsFailed) {
+            log.info("重试构建型号搜索索引，型号: {}", rebuildModels());
+        }
+        if (instancesFailed) {
+            log.info("重试构建设备实例搜索索引，设备实例: {}", rebuildInstances());
+        }
+    }
+
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        int modelCount = rebuildModels();
+        int instanceCount = rebuildInstances();
+        log.info("搜索索引已构建，型号: {}，设备实例: {}，耗时: {}ms",
+                modelCount, instanceCount, System.currentTimeMillis() - start);
+    }
+
+    private int rebuildModels() {
+        TextIndex.Builder modelBuilder = models.builder();
+        try {
+            for (CameraModel model : cameraModelMapper.selectSearchFields()) {
+                modelBuilder.add(model.getId(), model.getName(), model.getModel(), model.getDescription());
+            }
+            modelBuilder.publish();
+            modelsFailed = false;
+        } catch (Exception e) {
+            modelBuilder.abandon();
+            modelsFailed = true;
+            log.error("构建型号搜索索引失败，稍后重试", e);
+        }
+        return modelBuilder.getDocCount();
+    }
+
+    private int rebuildInstances() {
+        TextIndex.Builder instanceBuilder = instances.builder();
+        try {
+            cameraInstanceMapper.scanSearchFields(context -> {
+                CameraInstance instance = context.getResultObject();
+                instanceBuilder.add(instance.getId(), instance.getSerialNumber(), instance.getAssetTag(), instance.getNotes());
+            });
+            instanceBuilder.publish();
+            instancesFailed = false;
+        } catch (Exception e) {
+            instanceBuilder.abandon();
+            instancesFailed = true;
+            log.error("构建设备实例搜索索引失败，稍后重试", e);
+        }
+        return instanceBuilder.getDocCount();
+    }
+
+    /**
+     * 搜索型号
+     * @return 按相关度排序的型号ID，索引不可用时返回 null
+     */
+    public List<Integer> searchModels(String keyword, int limit) {
+        return models.search(keyword, limit);
+    }
+
+    /**
+     * 搜索设备实例
+     * @return 按相关度排序的设备实例ID，索引不可用时返回 null
+     */
+    public List<Integer> searchInstances(String keyword, int limit) {
+        return instances.search(keyword, limit);
+    }
+
+    /**
+     * 在当前事务提交后重新索引型号
+     */
+    public void modelChangedAfterCommit(Integer modelId) {
+        TransactionUtils.afterCommit(() -> safely(() -> {
+            CameraModel model = cameraModelMapper.selectById(modelId);
+            if (model == null) {
+                models.remove(modelId);
+            } else {
+                models.put(modelId, model.getName(), model.getModel(), model.getDescription());
+            }
+        }));
+    }
+
+    /**
+     * 在当前事务提交后重新索引设备实例
+     */
+    public void instanceChangedAfterCommit(Integer instanceId) {
+        TransactionUtils.afterCommit(() -> safely(() -> {
+            CameraInstance instance = cameraInstanceMapper.selectById(instanceId);
+            if (instance == null) {
+                instances.remove(instanceId);
+            } else {
+                indexInstance(instance);
+            }
+        }));
+    }
+
+    /**
+     * 在当前事务提交后索引新建的设备实例（对象字段完整，无需重新读取）
+     */
+    public void instancesCreatedAfterCommit(Collection<CameraInstance> created) {
+        TransactionUtils.afterCommit(() -> safely(() -> created.forEach(this::indexInstance)));
+    }
+
+    /**
+     * 在当前事务提交后从索引中移除设备实例
+     */
+    public void instanceRemovedAfterCommit(Integer instanceId) {
+        TransactionUtils.afterCommit(() -> instances.remove(instanceId));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("models", models.stats());
+        result.put("instances", instances.stats());
+        return result;
+    }
+
+    /**
+     * 按索引给出的顺序排列取回的记录，并剔除不满足条件的记录
+     */
+    public static <T> List<T> inRankOrder(List<Integer> rankedIds, Collection<T> rows,
+                                          Function<T, Integer> idGetter, Predicate<T> filter) {
+        Map<Integer, T> byId = new HashMap<>(rows.size() * 2);
+        for (T row : rows) {
+            byId.put(idGetter.apply(row), row);
+        }
+        List<T> result = new ArrayList<>(rows.size());
+        for (Integer id : rankedIds) {
+            T row = byId.get(id);
+            if (row != null && filter.test(row)) {
+                result.add(row);
+            }
+        }
+        return result;
+    }
+
+    private void indexInstance(CameraInstance instance) {
+        if (instance.getId() != null) {
+            instances.put(instance.getId(), instance.getSerialNumber(), instance.getAssetTag(), instance.getNotes());
+        }
+    }
+
+    /**
+     * 索引更新失败不影响已提交的业务操作，由定时重建修正
+     */
+    private void safely(Runnable action) {
+        try {
+            action.run();
+        } catch (Exception e) {
+            log.error("更新搜索索引失败", e);
+        }
+    }
+}
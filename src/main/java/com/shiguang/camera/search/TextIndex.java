@@ -0,0 +1,649 @@
+package com.shiguang.camera.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 内存倒排索引（二元组 n-gram，适用于中文和序列号等无分词文本）
+ *
+ * 每个文档有若干字段，字段文本规范化（全角转半角、小写）后切成相邻两字符的二元组，
+ * 倒排表的元素为 (文档ID << 2 | 字段序号)，按升序存放在 int 数组中。
+ * 查询时取关键词全部二元组的倒排表求交集，得到候选 (文档, 字段)，再用保存的规范化文本确认字段确实包含关键词，
+ * 按命中字段的权重之和排序，得分相同时ID大的（较新的）在前。
+ *
+ * 主段不可变，启动时整体构建；之后的新增、修改、删除先记入覆盖层，查询时逐条匹配，
+ * 由 {@link #compact()} 定期合并进新的主段并原子替换。
+ *
+ * 内存：全量构建开始时先释放旧主段（构建期间 search 返回 null，调用方查数据库），堆中不会同时存在两份主段；
+ * 合并时只重写变更文档涉及的二元组倒排表，文本按页（4096 个文档一页）写时复制，未变更的倒排表和页与旧主段共用。
+ */
+public class TextIndex {
+
+    private static final int FIELD_BITS = 2;
+
+    private static final int MAX_FIELDS = 1 << FIELD_BITS;
+
+    // 文档ID上限（左移后不能溢出）
+    private static final int MAX_DOC_ID = Integer.MAX_VALUE >> FIELD_BITS;
+
+    // 保存文本时的字段分隔符
+    private static final char FIELD_SEPARATOR = '\u0000';
+
+    // 覆盖层中表示已删除的占位
+    private static final String DELETED = new String();
+
+    // 文本分页：每页的文档数
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    private static final int[] NO_KEYS = new int[0];
+
+    private final String name;
+    private final int[] weights;
+
+    private final AtomicReference<Segment> main = new AtomicReference<>(Segment.EMPTY);
+
+    // 文档ID -> 规范化后以分隔符拼接的字段文本（DELETED 表示已删除），优先于主段
+    private final ConcurrentHashMap<Integer, String> overlay = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+
+    // 正在构建主段时不做合并
+    private volatile boolean building;
+
+    /**
+     * @param weights 各字段的排序权重，字段数不超过 4
+     */
+    public TextIndex(String name, int... weights) {
+        if (weights.length == 0 || weights.length > MAX_FIELDS) {
+            throw new IllegalArgumentException("字段数必须在 1-" + MAX_FIELDS + " 之间");
+        }
+        this.name = name;
+        this.weights = weights.clone();
+    }
+
+    /**
+     * 新建构建器，添加完全部文档后调用 {@link Builder#publish()} 替换主段
+     * 应在开始读取数据之前创建，此前已记入覆盖层的变更视为已包含在构建数据中。
+     * 旧主段在此释放，构建完成前索引不可用
+     */
+    public synchronized Builder builder() {
+        building = true;
+        ready = false;
+        main.set(Segment.EMPTY);
+        return new Builder(new HashMap<>(overlay));
+    }
+
+    /**
+     * 新增或更新文档
+     */
+    public void put(int id, String... fields) {
+        if (id >= 0 && id <= MAX_DOC_ID) {
+            overlay.put(id, join(fields));
+        }
+    }
+
+    public void remove(int id) {
+        overlay.put(id, DELETED);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 搜索
+     * @param limit 最多返回条数
+     * @return 按相关度排序的文档ID；索引未就绪或关键词不足两个字符时返回 null，调用方应回退到数据库查询
+     */
+    public List<Integer> search(String keyword, int limit) {
+        String query = normalize(keyword);
+        if (!ready || query == null || query.length() < 2 || limit <= 0) {
+            return null;
+        }
+        TopK top = new TopK(limit);
+        scan(query, (doc, score) -> {
+            top.offer(doc, score);
+            return true;
+        });
+        return top.result();
+    }
+
+    /**
+     * 依次输出包含关键词的文档及得分，先主段后覆盖层
+     * @return 被 sink 中止时返回 false
+     */
+    private boolean scan(String query, DocSink sink) {
+        Map<Integer, String> pending = overlay;
+        boolean hasPending = !pending.isEmpty();
+        // 两个字符的关键词只有一个二元组，倒排表命中即包含，无需再比对文本
+        boolean verify = query.length() > 2;
+
+        // 主段：求交集后逐个确认，同一文档的各字段相邻，按文档累计得分
+        Segment segment = main.get();
+        int[] keys = segment.intersect(grams(query));
+        int lastDoc = -1;
+        int score = 0;
+        String text = null;
+        boolean skip = false;
+        for (int key : keys) {
+            int doc = key >>> FIELD_BITS;
+            if (doc != lastDoc) {
+                if (score > 0 && !sink.accept(lastDoc, score)) {
+                    return false;
+                }
+                lastDoc = doc;
+                score = 0;
+                // 覆盖层中有的文档以覆盖层为准
+                skip = hasPending && pending.containsKey(doc);
+                text = verify && !skip ? segment.text(doc) : null;
+            }
+            int field = key & (MAX_FIELDS - 1);
+            if (!skip && (!verify || text != null && fieldContains(text, field, query))) {
+                score += weights[field];
+            }
+        }
+        if (score > 0 && !sink.accept(lastDoc, score)) {
+            return false;
+        }
+
+        // 覆盖层：直接匹配文本
+        if (hasPending) {
+            for (Map.Entry<Integer, String> entry : pending.entrySet()) {
+                int docScore = score(entry.getValue(), query);
+                if (docScore > 0 && !sink.accept(entry.getKey(), docScore)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 把覆盖层合并进新的主段，只重写变更文档的新旧文本中出现的二元组
+     */
+    public synchronized void compact() {
+        // 主段构建完成前或构建期间不合并，避免被构建结果覆盖
+        if (!ready || building || overlay.isEmpty()) {
+            return;
+        }
+        Map<Integer, String> merging = new HashMap<>(overlay);
+        Segment old = main.get();
+
+        int maxId = Collections.max(merging.keySet());
+        String[][] pages = Arrays.copyOf(old.pages, Math.max(old.pages.length, (maxId >>> PAGE_BITS) + 1));
+        Set<Integer> copiedPages = new HashSet<>();
+        Set<Integer> affected = new HashSet<>();
+        Map<Integer, IntList> additions = new HashMap<>();
+        for (Map.Entry<Integer, String> entry : merging.entrySet()) {
+            int id = entry.getKey();
+            collectGrams(old.text(id), affected);
+            String text = entry.getValue() == DELETED ? null : entry.getValue();
+            int page = id >>> PAGE_BITS;
+            if (copiedPages.add(page)) {
+                pages[page] = pages[page] != null ? pages[page].clone() : new String[PAGE_SIZE];
+            }
+            pages[page][id & (PAGE_SIZE - 1)] = text;
+            addDocument(additions, id, text);
+        }
+        affected.addAll(additions.keySet());
+
+        // 未受影响的倒排表直接沿用
+        Map<Integer, int[]> postings = new HashMap<>(old.postings);
+        for (Integer gram : affected) {
+            int[] existing = old.postings.get(gram);
+            int[] kept = existing != null ? without(existing, merging) : NO_KEYS;
+            IntList added = additions.get(gram);
+            int[] merged = added != null ? merge(kept, added.toSortedArray()) : kept;
+            if (merged.length > 0) {
+                postings.put(gram, merged);
+            } else {
+                postings.remove(gram);
+            }
+        }
+        main.set(new Segment(postings, pages));
+
+        // 合并期间再次修改的文档保留在覆盖层
+        for (Map.Entry<Integer, String> entry : merging.entrySet()) {
+            overlay.remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Segment segment = main.get();
+        long postingCount = 0;
+        for (int[] list : segment.postings.values()) {
+            postingCount += list.length;
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("name", name);
+        result.put("ready", ready);
+        result.put("grams", segment.postings.size());
+        result.put("postings", postingCount);
+        result.put("pendingDocs", overlay.size());
+        return result;
+    }
+
+    /**
+     * 规范化：全角转半角（NFKC）并转小写，空白文本返回 null
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return null;
+        }
+        String trimmed = text.trim();
+        if (trimmed.isEmpty()) {
+            return null;
+        }
+        return Normalizer.normalize(trimmed, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 校验文本是否包含关键词（按同样的规范化规则）
+     */
+    public static boolean matches(String text, String keyword) {
+        String normalizedText = normalize(text);
+        String normalizedKeyword = normalize(keyword);
+        return normalizedText != null && normalizedKeyword != null && normalizedText.contains(normalizedKeyword);
+    }
+
+    /**
+     * 规范化各字段并以分隔符拼接
+     */
+    private String join(String[] fields) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < weights.length; i++) {
+            if (i > 0) {
+                builder.append(FIELD_SEPARATOR);
+            }
+            String field = i < fields.length ? normalize(fields[i]) : null;
+            if (field != null) {
+                builder.append(field.replace(FIELD_SEPARATOR, ' '));
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 文档得分：包含关键词的字段的权重之和
+     */
+    private int score(String text, String query) {
+        if (text == DELETED) {
+            return 0;
+        }
+        int result = 0;
+        for (int field = 0; field < weights.length; field++) {
+            if (fieldContains(text, field, query)) {
+                result += weights[field];
+            }
+        }
+        return result;
+    }
+
+    private static boolean fieldContains(String text, int field, String query) {
+        int start = 0;
+        for (int i = 0; i < field; i++) {
+            start = text.indexOf(FIELD_SEPARATOR, start) + 1;
+            if (start == 0) {
+                return false;
+            }
+        }
+        int end = text.indexOf(FIELD_SEPARATOR, start);
+        int found = text.indexOf(query, start);
+        return found >= 0 && (end < 0 || found + query.length() <= end);
+    }
+
+    /**
+     * 文本中不重复的二元组（两个字符拼成一个 int）
+     */
+    private static int[] grams(String text) {
+        if (text.length() < 2) {
+            return new int[0];
+        }
+        int[] result = new int[text.length() - 1];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = text.charAt(i) << 16 | text.charAt(i + 1);
+        }
+        Arrays.sort(result);
+        int count = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (count == 0 || result[count - 1] != result[i]) {
+                result[count++] = result[i];
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * 收集文档各字段的二元组（不跨越字段分隔符）
+     */
+    private static void collectGrams(String text, Set<Integer> result) {
+        if (text == null) {
+            return;
+        }
+        int start = 0;
+        while (start <= text.length()) {
+            int end = text.indexOf(FIELD_SEPARATOR, start);
+            if (end < 0) {
+                end = text.length();
+            }
+            for (int gram : grams(text.substring(start, end))) {
+                result.add(gram);
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * 把文档各字段的二元组加入倒排表（不跨越字段分隔符）
+     */
+    private static void addDocument(Map<Integer, IntList> postings, int id, String text) {
+        if (text == null) {
+            return;
+        }
+        int field = 0;
+        int start = 0;
+        while (start <= text.length()) {
+            int end = text.indexOf(FIELD_SEPARATOR, start);
+            if (end < 0) {
+                end = text.length();
+            }
+            int key = id << FIELD_BITS | field;
+            for (int gram : grams(text.substring(start, end))) {
+                postings.computeIfAbsent(gram, g -> new IntList()).add(key);
+            }
+            field++;
+            start = end + 1;
+        }
+    }
+
+    private static int[] without(int[] keys, Map<Integer, ?> removed) {
+        int count = 0;
+        for (int key : keys) {
+            if (!removed.containsKey(key >>> FIELD_BITS)) {
+                count++;
+            }
+        }
+        if (count == keys.length) {
+            return keys;
+        }
+        int[] result = new int[count];
+        int i = 0;
+        for (int key : keys) {
+            if (!removed.containsKey(key >>> FIELD_BITS)) {
+                result[i++] = key;
+            }
+        }
+        return result;
+    }
+
+    private static int[] merge(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length && j < b.length) {
+            result[k++] = a[i] <= b[j] ? a[i++] : b[j++];
+        }
+        while (i < a.length) {
+            result[k++] = a[i++];
+        }
+        while (j < b.length) {
+            result[k++] = b[j++];
+        }
+        return result;
+    }
+
+    /**
+     * 主段构建器（单线程使用）
+     */
+    public final class Builder {
+        private final Map<Integer, IntList> postings = new HashMap<>();
+        private final Map<Integer, String> includedChanges;
+        private String[][] pages = new String[16][];
+        private int docCount;
+
+        private Builder(Map<Integer, String> includedChanges) {
+            this.includedChanges = includedChanges;
+        }
+
+        public Builder add(int id, String... fields) {
+            if (id < 0 || id > MAX_DOC_ID) {
+                return this;
+            }
+            String text = join(fields);
+            int page = id >>> PAGE_BITS;
+            if (page >= pages.length) {
+                pages = Arrays.copyOf(pages, Math.max(page + 1, pages.length * 2));
+            }
+            if (pages[page] == null) {
+                pages[page] = new String[PAGE_SIZE];
+            }
+            pages[page][id & (PAGE_SIZE - 1)] = text;
+            addDocument(postings, id, text);
+            docCount++;
+            return this;
+        }
+
+        /**
+         * 替换主段并标记索引就绪；构建开始后的变更仍保留在覆盖层
+         */
+        public void publish() {
+            // 逐个转换并移除，转换过程中只多占用一个倒排表的内存
+            Map<Integer, int[]> result = new HashMap<>(Math.max(16, postings.size() * 4 / 3));
+            Iterator<Map.Entry<Integer, IntList>> iterator = postings.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Integer, IntList> entry = iterator.next();
+                result.put(entry.getKey(), entry.getValue().toSortedArray());
+                iterator.remove();
+            }
+            synchronized (TextIndex.this) {
+                main.set(new Segment(result, pages));
+                for (Map.Entry<Integer, String> entry : includedChanges.entrySet()) {
+                    overlay.remove(entry.getKey(), entry.getValue());
+                }
+                ready = true;
+                building = false;
+            }
+        }
+
+        /**
+         * 构建失败时调用：原主段在 builder() 中已释放，索引保持不可用（搜索回退到数据库），
+         * 覆盖层不再合并，直到再次构建成功，调用方应尽快重试
+         */
+        public void abandon() {
+            building = false;
+        }
+
+        public int getDocCount() {
+            return docCount;
+        }
+    }
+
+    /**
+     * 不可变主段：二元组 -> 升序的 (文档ID << 2 | 字段序号)，以及按文档ID分页存放的规范化文本
+     */
+    private static final class Segment {
+        private static final Segment EMPTY = new Segment(Collections.emptyMap(), new String[0][]);
+
+        private final Map<Integer, int[]> postings;
+        private final String[][] pages;
+
+        private Segment(Map<Integer, int[]> postings, String[][] pages) {
+            this.postings = postings;
+            this.pages = pages;
+        }
+
+        private String text(int doc) {
+            int page = doc >>> PAGE_BITS;
+            return page < pages.length && pages[page] != null ? pages[page][doc & (PAGE_SIZE - 1)] : null;
+        }
+
+        private int[] intersect(int[] grams) {
+            int[][] lists = new int[grams.length][];
+            for (int i = 0; i < grams.length; i++) {
+                lists[i] = postings.get(grams[i]);
+                if (lists[i] == null) {
+                    return new int[0];
+                }
+            }
+            // 从最短的倒排表开始，在其余表中跳跃查找
+            Arrays.sort(lists, (x, y) -> Integer.compare(x.length, y.length));
+            int[] result = lists[0];
+            for (int i = 1; i < lists.length && result.length > 0; i++) {
+                result = intersect(result, lists[i]);
+            }
+            return result;
+        }
+
+        private static int[] intersect(int[] small, int[] large) {
+            int[] result = new int[small.length];
+            int count = 0;
+            int from = 0;
+            for (int key : small) {
+                int index = gallop(large, from, key);
+                if (index >= large.length) {
+                    break;
+                }
+                if (large[index] == key) {
+                    result[count++] = key;
+                    from = index + 1;
+                } else {
+                    from = index;
+                }
+            }
+            return count == result.length ? result : Arrays.copyOf(result, count);
+        }
+
+        /**
+         * 返回 from 之后第一个不小于 key 的位置
+         */
+        private static int gallop(int[] array, int from, int key) {
+            int step = 1;
+            int low = from;
+            int high = from;
+            while (high < array.length && array[high] < key) {
+                low = high + 1;
+                high = from + step;
+                step <<= 1;
+            }
+            int index = Arrays.binarySearch(array, low, Math.min(high + 1, array.length), key);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+
+    private interface DocSink {
+        /**
+         * @return 返回 false 时停止扫描
+         */
+        boolean accept(int doc, int score);
+    }
+
+    /**
+     * 按 (得分, 文档ID) 取前 K 个（小顶堆）
+     */
+    private static final class TopK {
+        private final int limit;
+        private long[] heap = new long[16];
+        private int size;
+
+        private TopK(int limit) {
+            this.limit = limit;
+        }
+
+        private void offer(int doc, int score) {
+            long value = (long) score << 32 | doc;
+            if (size < limit) {
+                if (size == heap.length) {
+                    heap = Arrays.copyOf(heap, Math.min(limit, size * 2));
+                }
+                heap[size] = value;
+                siftUp(size++);
+            } else if (value > heap[0]) {
+                heap[0] = value;
+                siftDown(0);
+            }
+        }
+
+        private List<Integer> result() {
+            long[] sorted = Arrays.copyOf(heap, size);
+            Arrays.sort(sorted);
+            List<Integer> ids = new ArrayList<>(size);
+            for (int i = sorted.length - 1; i >= 0; i--) {
+                ids.add((int) sorted[i]);
+            }
+            return ids;
+        }
+
+        private void siftUp(int index) {
+            long value = heap[index];
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (heap[parent] <= value) {
+                    break;
+                }
+                heap[index] = heap[parent];
+                index = parent;
+            }
+            heap[index] = value;
+        }
+
+        private void siftDown(int index) {
+            long value = heap[index];
+            int half = size >>> 1;
+            while (index < half) {
+                int child = 2 * index + 1;
+                if (child + 1 < size && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (value <= heap[child]) {
+                    break;
+                }
+                heap[index] = heap[child];
+                index = child;
+            }
+            heap[index] = value;
+        }
+    }
+
+    /**
+     * 可增长的 int 数组
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+        private boolean sorted = true;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            if (size > 0 && values[size - 1] > value) {
+                sorted = false;
+            }
+            values[size++] = value;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+        private int[] toSortedArray() {
+            int[] result = toArray();
+            if (!sorted) {
+                Arrays.sort(result);
+            }
+            return result;
+        }
+    }
+}
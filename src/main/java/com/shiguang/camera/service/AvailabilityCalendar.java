@@ -0,0 +1,337 @@
+package com.shiguang.camera.service;
+
+import com.shiguang.camera.entity.Reservation;
+import com.shiguang.camera.enums.CameraInstanceStatus;
+import com.shiguang.camera.enums.ReservationStatus;
+import com.shiguang.camera.mapper.CameraInstanceMapper;
+import com.shiguang.camera.mapper.ReservationMapper;
+import com.shiguang.camera.utils.TransactionUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 预订占用日历（内存）
+ * 按型号、按天维护已预订数量（状态 0-已预订 / 1-已确认），
+ * 使用带懒标记的线段树支持 O(log n) 的区间加减与区间最大值查询，
+ * 供时间冲突检查和库存检查使用，避免每次都去数据库做 SUM 查询。
+ *
+ * 日历只覆盖 [今天-HISTORY_DAYS, 今天-HISTORY_DAYS+WINDOW_DAYS) 的窗口，
+ * 超出窗口或尚未预热完成时 peakBookedQuantity 回退到数据库：取出重叠的预订，按天扫描求同样的单日峰值，
+ * 保证日历是否可用不影响同一请求的判定结果。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AvailabilityCalendar {
+
+    // 窗口天数（线段树叶子数，需为2的幂）
+    private static final int WINDOW_DAYS = 1024;
+
+    // 窗口起点相对今天向前保留的天数
+    private static final int HISTORY_DAYS = 30;
+
+    private final ReservationMapper reservationMapper;
+    private final CameraInstanceMapper cameraInstanceMapper;
+
+    // 型号ID -> 占用线段树
+    private final ConcurrentHashMap<Integer, DayOccupancyTree> calendars = new ConcurrentHashMap<>();
+
+    // 预订ID -> 占用记录（用于释放和排除指定预订）
+    private final ConcurrentHashMap<Integer, Booking> bookings = new ConcurrentHashMap<>();
+
+    // 型号ID -> 总设备实例数（排除已下架）
+    private final ConcurrentHashMap<Integer, Long> capacities = new ConcurrentHashMap<>();
+
+    // 重建时独占，日常增减和查询共享
+    private final ReentrantReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    private volatile long baseEpochDay;
+    private volatile boolean ready = false;
+
+    /**
+     * 启动完成后预热
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    /**
+     * 每天凌晨重建一次，使窗口随日期滚动，同时修正可能的偏差
+     */
+    @Scheduled(cron = "0 30 3 * * ?")
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        LocalDate base = LocalDate.now().minusDays(HISTORY_DAYS);
+        List<Reservation> activeReservations;
+
+        // 加载与替换都在写锁内完成，避免加载期间提交的增减被清空
+        rebuildLock.writeLock().lock();
+        try {
+            activeReservations = reservationMapper.selectActiveSince(base);
+            calendars.clear();
+            bookings.clear();
+            capacities.clear();
+            baseEpochDay = base.toEpochDay();
+            for (Reservation reservation : activeReservations) {
+                addBooking(reservation);
+            }
+            ready = true;
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+
+        log.info("预订占用日历重建完成，活动预订 {} 条，型号 {} 个，耗时 {} ms",
+                activeReservations.size(), calendars.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 登记一条预订的占用（在当前事务提交后生效）
+     */
+    public void bookAfterCommit(Reservation reservation) {
+        TransactionUtils.afterCommit(() -> book(reservation));
+    }
+
+    /**
+     * 释放一条预订的占用（在当前事务提交后生效）
+     */
+    public void releaseAfterCommit(Integer reservationId) {
+        TransactionUtils.afterCommit(() -> release(reservationId));
+    }
+
+    /**
+     * 登记一条预订的占用
+     */
+    public void book(Reservation reservation) {
+        rebuildLock.readLock().lock();
+        try {
+            addBooking(reservation);
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 释放一条预订的占用，重复释放无副作用
+     */
+    public void release(Integer reservationId) {
+        if (reservationId == null) {
+            return;
+        }
+        rebuildLock.readLock().lock();
+        try {
+            Booking booking = bookings.remove(reservationId);
+            if (booking != null) {
+                calendarOf(booking.modelId).add(booking.from, booking.to, -booking.quantity);
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 查询时间段内每日已预订数量的最大值
+     * @param excludeId 需要排除的预订ID（可为空）
+     * @return 最大已预订数量；日历未就绪或时间段超出窗口时返回 null
+     */
+    public Integer maxBookedQuantity(Integer modelId, LocalDate startDate, LocalDate endDate, Integer excludeId) {
+        if (!ready || modelId == null || startDate == null || endDate == null) {
+            return null;
+        }
+
+        rebuildLock.readLock().lock();
+        try {
+            int from = (int) (startDate.toEpochDay() - baseEpochDay);
+            int to = (int) (endDate.toEpochDay() - baseEpochDay);
+            if (from < 0 || to >= WINDOW_DAYS || from > to) {
+                return null;
+            }
+
+            DayOccupancyTree tree = calendars.get(modelId);
+            if (tree == null) {
+                return 0;
+            }
+
+            Booking excluded = excludeId != null ? bookings.get(excludeId) : null;
+            if (excluded == null || !excluded.modelId.equals(modelId)) {
+                return tree.max(from, to);
+            }
+
+            // 临时扣除被排除预订的占用后再查询
+            synchronized (tree) {
+                tree.add(excluded.from, excluded.to, -excluded.quantity);
+                try {
+                    return tree.max(from, to);
+                } finally {
+                    tree.add(excluded.from, excluded.to, excluded.quantity);
+                }
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 查询时间段内每日已预订数量的最大值，日历不可用时从数据库计算（结果与日历一致）
+     * @param excludeId 需要排除的预订ID（可为空）
+     */
+    public int peakBookedQuantity(Integer modelId, LocalDate startDate, LocalDate endDate, Integer excludeId) {
+        Integer peak = maxBookedQuantity(modelId, startDate, endDate, excludeId);
+        if (peak != null) {
+            return peak;
+        }
+        return peakOf(reservationMapper.selectOverlapping(modelId, startDate, endDate, excludeId), startDate, endDate);
+    }
+
+    /**
+     * 按天扫描预订，求 [startDate, endDate] 内单日已预订数量的最大值
+     */
+    static int peakOf(List<Reservation> reservations, LocalDate startDate, LocalDate endDate) {
+        // 日期 -> 当天起的数量变化（开始日 +quantity，结束日次日 -quantity）
+        TreeMap<LocalDate, Integer> deltas = new TreeMap<>();
+        for (Reservation reservation : reservations) {
+            if (reservation.getQuantity() == null || reservation.getStartDate() == null
+                    || reservation.getEndDate() == null) {
+                continue;
+            }
+            LocalDate from = reservation.getStartDate().isBefore(startDate) ? startDate : reservation.getStartDate();
+            LocalDate to = reservation.getEndDate().isAfter(endDate) ? endDate : reservation.getEndDate();
+            if (from.isAfter(to)) {
+                continue;
+            }
+            deltas.merge(from, reservation.getQuantity(), Integer::sum);
+            deltas.merge(to.plusDays(1), -reservation.getQuantity(), Integer::sum);
+        }
+        int current = 0;
+        int peak = 0;
+        for (Map.Entry<LocalDate, Integer> entry : deltas.entrySet()) {
+            current += entry.getValue();
+            peak = Math.max(peak, current);
+        }
+        return peak;
+    }
+
+    /**
+     * 获取型号的总设备实例数量（排除已下架的），首次访问时从数据库加载
+     */
+    public Long capacity(Integer modelId) {
+        return capacities.computeIfAbsent(modelId, id -> {
+            Long count = cameraInstanceMapper.countByModelIdAndStatusNot(id, CameraInstanceStatus.OFFLINE.getCode());
+            return count != null ? count : 0L;
+        });
+    }
+
+    /**
+     * 设备实例变更后使型号的实例数量缓存失效
+     */
+    public void invalidateCapacity(Integer modelId) {
+        if (modelId != null) {
+            TransactionUtils.afterCommit(() -> capacities.remove(modelId));
+        }
+    }
+
+    private void addBooking(Reservation reservation) {
+        if (reservation == null || reservation.getId() == null || reservation.getModelId() == null
+                || reservation.getQuantity() == null || reservation.getStatus() == null) {
+            return;
+        }
+        if (!ReservationStatus.已预订.getCode().equals(reservation.getStatus())
+                && !ReservationStatus.已确认.getCode().equals(reservation.getStatus())) {
+            return;
+        }
+
+        // 裁剪到窗口内，完全落在窗口外的预订不影响窗口内的查询
+        int from = (int) Math.max(0, reservation.getStartDate().toEpochDay() - baseEpochDay);
+        int to = (int) Math.min(WINDOW_DAYS - 1, reservation.getEndDate().toEpochDay() - baseEpochDay);
+        if (from > to) {
+            return;
+        }
+
+        Booking booking = new Booking(reservation.getModelId(), from, to, reservation.getQuantity());
+        if (bookings.putIfAbsent(reservation.getId(), booking) == null) {
+            calendarOf(booking.modelId).add(from, to, booking.quantity);
+        }
+    }
+
+    private DayOccupancyTree calendarOf(Integer modelId) {
+        return calendars.computeIfAbsent(modelId, id -> new DayOccupancyTree(WINDOW_DAYS));
+    }
+
+    /**
+     * 预订占用记录（已换算为窗口内的天下标）
+     */
+    private static final class Booking {
+        private final Integer modelId;
+        private final int from;
+        private final int to;
+        private final int quantity;
+
+        private Booking(Integer modelId, int from, int to, int quantity) {
+            this.modelId = modelId;
+            this.from = from;
+            this.to = to;
+            this.quantity = quantity;
+        }
+    }
+
+    /**
+     * 按天的占用线段树：区间加、区间最大值，基于原始 int 数组
+     */
+    static final class DayOccupancyTree {
+        private final int size;
+        private final int[] max;
+        private final int[] lazy;
+
+        DayOccupancyTree(int size) {
+            this.size = size;
+            this.max = new int[size * 2];
+            this.lazy = new int[size * 2];
+        }
+
+        synchronized void add(int from, int to, int delta) {
+            add(1, 0, size - 1, from, to, delta);
+        }
+
+        synchronized int max(int from, int to) {
+            return max(1, 0, size - 1, from, to);
+        }
+
+        private void add(int node, int lo, int hi, int from, int to, int delta) {
+            if (to < lo || hi < from) {
+                return;
+            }
+            if (from <= lo && hi <= to) {
+                max[node] += delta;
+                lazy[node] += delta;
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            add(node * 2, lo, mid, from, to, delta);
+            add(node * 2 + 1, mid + 1, hi, from, to, delta);
+            max[node] = Math.max(max[node * 2], max[node * 2 + 1]) + lazy[node];
+        }
+
+        private int max(int node, int lo, int hi, int from, int to) {
+            if (to < lo || hi < from) {
+                return Integer.MIN_VALUE;
+            }
+            if (from <= lo && hi <= to) {
+                return max[node];
+            }
+            int mid = (lo + hi) >>> 1;
+            int childMax = Math.max(max(node * 2, lo, mid, from, to), max(node * 2 + 1, mid + 1, hi, from, to));
+            return childMax + lazy[node];
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.shiguang.camera.service;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.shiguang.camera.entity.CameraInstance;
+import com.shiguang.camera.vo.CursorPage;
 import java.util.List;
 import java.util.Map;
 
@@ -25,6 +26,22 @@ public interface CameraInstanceService extends IService<CameraInstance> {
                                           Integer modelId, String serialNumber,
                                           Integer status, String keyword);
 
+    /**
+     * 游标分页查询设备实例（按创建时间、ID倒序）
+     * @param cursor 上一页返回的游标，为空时查询第一页
+     * @param withTotal 是否同时统计总数
+     */
+    CursorPage<CameraInstance> getInstanceCursorPage(String cursor, Integer size, boolean withTotal,
+                                                     Integer modelId, String serialNumber,
+                                                     Integer status, String keyword);
+
+    /**
+     * 关键词搜索设备实例（序列号、资产标签、备注），按相关度排序
+     * 结果尽力而为：索引有命中时只返回本节点索引中的记录，其他节点新增或直接改库的记录在全量重建前可能缺失，
+     * 需要完整结果时用列表接口的关键词筛选
+     */
+    List<CameraInstance> searchInstances(String keyword, Integer limit);
+
     /**
      * 创建设备实例
      */
@@ -71,7 +88,7 @@ public interface CameraInstanceService extends IService<CameraInstance> {
     boolean batchCreateInstances(Integer modelId, List<CameraInstance> instances);
 
     /**
-     * 检查序列号是否唯一
+     * 检查序列号是否唯一（写入前的预判，写入时以序列号唯一索引为准）
      */
     boolean isSerialNumberUnique(String serialNumber, Integer excludeId);
 }
\ No newline at end of file
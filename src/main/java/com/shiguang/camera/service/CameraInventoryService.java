@@ -2,6 +2,9 @@ package com.shiguang.camera.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.shiguang.camera.entity.CameraInventory;
+import com.shiguang.camera.mapper.CameraInventoryMapper.InventoryQuantities;
+
+import java.util.Collection;
 
 public interface CameraInventoryService extends IService<CameraInventory> {
 
@@ -59,4 +62,14 @@ public interface CameraInventoryService extends IService<CameraInventory> {
      * 标记设备损坏（减少可用数量，增加损坏数量）
      */
     boolean markDamaged(Integer modelId, Integer quantity);
-}
\ No newline at end of file
+
+    /**
+     * 批量按增量更新各型号库存数量（一次批量提交）
+     */
+    void applyDeltas(Collection<InventoryQuantities> deltas);
+
+    /**
+     * 覆盖型号的库存数量，没有库存记录时创建
+     */
+    void overwriteQuantities(InventoryQuantities quantities);
+}
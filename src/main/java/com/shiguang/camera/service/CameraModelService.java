@@ -3,6 +3,7 @@ package com.shiguang.camera.service;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.shiguang.camera.entity.CameraModel;
+import com.shiguang.camera.vo.CursorPage;
 import java.util.List;
 import java.util.Map;
 
@@ -19,7 +20,9 @@ public interface CameraModelService extends IService<CameraModel> {
     List<CameraModel> getModelsByBrandId(Integer brandId);
 
     /**
-     * 搜索相机型号
+     * 搜索相机型号，按相关度排序
+     * 结果尽力而为：索引有命中时只返回本节点索引中的记录，其他节点新增或直接改库的记录在全量重建前可能缺失，
+     * 需要完整结果时用分页接口的关键词筛选
      */
     List<CameraModel> searchModels(String keyword);
 
@@ -29,6 +32,14 @@ public interface CameraModelService extends IService<CameraModel> {
     IPage<CameraModel> getModelPage(Integer page, Integer size,
                                     Integer brandId, String keyword, Integer status);
 
+    /**
+     * 游标分页查询相机型号（按创建时间、ID倒序）
+     * @param cursor 上一页返回的游标，为空时查询第一页
+     * @param withTotal 是否同时统计总数
+     */
+    CursorPage<CameraModel> getModelCursorPage(String cursor, Integer size, boolean withTotal,
+                                               Integer brandId, String keyword, Integer status);
+
     /**
      * 添加相机型号
      */
@@ -44,6 +55,11 @@ public interface CameraModelService extends IService<CameraModel> {
      */
     boolean toggleModelStatus(Integer id, Integer status);
 
+    /**
+     * 删除相机型号
+     */
+    boolean deleteCameraModel(Integer id);
+
     /**
      * 获取相机型号详情（包含品牌信息）
      */
@@ -0,0 +1,26 @@
+package com.shiguang.camera.service;
+
+import com.shiguang.camera.entity.Captcha;
+
+/**
+ * 验证码存储
+ * 默认使用进程内存储（app.captcha.store=memory），多节点部署且无会话粘滞时改为 database。
+ */
+public interface CaptchaStore {
+
+    /**
+     * 保存验证码，同一手机号+类型下之前的验证码随之失效
+     * @param ttlSeconds 有效期（秒）
+     */
+    void save(String phone, String type, String code, long ttlSeconds);
+
+    /**
+     * 校验并消费验证码：仅当验证码匹配且未过期时返回 true，并原子地移除，保证只能使用一次
+     */
+    boolean consume(String phone, String type, String code);
+
+    /**
+     * 获取当前有效的验证码，没有时返回 null
+     */
+    Captcha find(String phone, String type);
+}
@@ -0,0 +1,138 @@
+package com.shiguang.camera.service;
+
+import com.shiguang.camera.entity.Order;
+import com.shiguang.camera.entity.Payment;
+import com.shiguang.camera.export.ExportColumn;
+import com.shiguang.camera.export.ExportFormat;
+import com.shiguang.camera.export.StreamingExportWriter;
+import com.shiguang.camera.mapper.OrderMapper;
+import com.shiguang.camera.mapper.PaymentMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 订单、支付数据导出（财务月结用）
+ *
+ * 通过 MyBatis Cursor 逐行读取并直接写到响应流，不在内存中构建完整列表。
+ * 游标只在事务内有效，因此整个导出在只读事务中完成；导出期间连接被占用，导出结束或客户端断开后释放。
+ * 导出列不包含姓名、身份证号等个人信息。
+ */
+@Slf4j
+@Service
+public class ExportService {
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final List<ExportColumn<Order>> ORDER_COLUMNS = Arrays.asList(
+            ExportColumn.of("id", Order::getId),
+            ExportColumn.of("orderNo", Order::getOrderNo),
+            ExportColumn.of("userId", Order::getUserId),
+            ExportColumn.of("reservationId", Order::getReservationId),
+            ExportColumn.of("modelId", Order::getModelId),
+            ExportColumn.of("quantity", Order::getQuantity),
+            ExportColumn.of("startDate", Order::getStartDate),
+            ExportColumn.of("endDate", Order::getEndDate),
+            ExportColumn.of("totalDays", Order::getTotalDays),
+            ExportColumn.of("dailyPrice", Order::getDailyPrice),
+            ExportColumn.of("totalPrice", Order::getTotalPrice),
+            ExportColumn.of("deposit", Order::getDeposit),
+            ExportColumn.of("overdueFee", Order::getOverdueFee),
+            ExportColumn.of("damageFee", Order::getDamageFee),
+            ExportColumn.of("refundAmount", Order::getRefundAmount),
+            ExportColumn.of("status", Order::getStatus),
+            ExportColumn.of("paymentMethod", Order::getPaymentMethod),
+            ExportColumn.of("payTime", o -> format(o.getPayTime())),
+            ExportColumn.of("refundTime", o -> format(o.getRefundTime())),
+            ExportColumn.of("createTime", o -> format(o.getCreateTime())));
+
+    private static final List<ExportColumn<Payment>> PAYMENT_COLUMNS = Arrays.asList(
+            ExportColumn.of("id", Payment::getId),
+            ExportColumn.of("paymentNo", Payment::getPaymentNo),
+            ExportColumn.of("userId", Payment::getUserId),
+            ExportColumn.of("reservationId", Payment::getReservationId),
+            ExportColumn.of("orderId", Payment::getOrderId),
+            ExportColumn.of("amount", Payment::getAmount),
+            ExportColumn.of("rentalAmount", Payment::getRentalAmount),
+            ExportColumn.of("depositAmount", Payment::getDepositAmount),
+            ExportColumn.of("paymentMethod", Payment::getPaymentMethod),
+            ExportColumn.of("status", Payment::getStatus),
+            ExportColumn.of("transactionNo", Payment::getTransactionNo),
+            ExportColumn.of("paidTime", p -> format(p.getPaidTime())),
+            ExportColumn.of("confirmedTime", p -> format(p.getConfirmedTime())),
+            ExportColumn.of("confirmedBy", Payment::getConfirmedBy),
+            ExportColumn.of("refundAmount", Payment::getRefundAmount),
+            ExportColumn.of("refundReason", Payment::getRefundReason),
+            ExportColumn.of("refundTime", p -> format(p.getRefundTime())),
+            ExportColumn.of("createTime", p -> format(p.getCreateTime())));
+
+    private final OrderMapper orderMapper;
+    private final PaymentMapper paymentMapper;
+
+    // 每写出多少行刷新一次响应流
+    private final int flushRows;
+
+    public ExportService(OrderMapper orderMapper, PaymentMapper paymentMapper,
+                         @Value("${app.export.flush-rows:500}") int flushRows) {
+        this.orderMapper = orderMapper;
+        this.paymentMapper = paymentMapper;
+        this.flushRows = flushRows;
+    }
+
+    /**
+     * 导出订单
+     * @return 导出行数
+     */
+    @Transactional(readOnly = true)
+    public long exportOrders(Integer status, LocalDateTime from, LocalDateTime to,
+                             ExportFormat format, OutputStream out) throws IOException {
+        try (Cursor<Order> cursor = orderMapper.streamForExport(status, from, to)) {
+            return export("订单", cursor, ORDER_COLUMNS, format, out);
+        }
+    }
+
+    /**
+     * 导出支付记录
+     * @return 导出行数
+     */
+    @Transactional(readOnly = true)
+    public long exportPayments(Integer status, LocalDateTime from, LocalDateTime to,
+                               ExportFormat format, OutputStream out) throws IOException {
+        try (Cursor<Payment> cursor = paymentMapper.streamForExport(status, from, to)) {
+            return export("支付记录", cursor, PAYMENT_COLUMNS, format, out);
+        }
+    }
+
+    private <T> long export(String name, Cursor<T> cursor, List<ExportColumn<T>> columns,
+                            ExportFormat format, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        StreamingExportWriter<T> writer = new StreamingExportWriter<>(out, format, columns, flushRows);
+        try {
+            writer.writeHeader();
+            for (T row : cursor) {
+                writer.write(row);
+            }
+            writer.finish();
+        } catch (IOException e) {
+            // 多为客户端中途断开，游标由调用方关闭
+            log.warn("导出{}中断，已写出 {} 行: {}", name, writer.getRowCount(), e.getMessage());
+            throw e;
+        }
+        log.info("导出{}完成 format={} rows={} 耗时={}ms",
+                name, format, writer.getRowCount(), System.currentTimeMillis() - start);
+        return writer.getRowCount();
+    }
+
+    private static String format(LocalDateTime time) {
+        return time != null ? TIME_FORMATTER.format(time) : null;
+    }
+}
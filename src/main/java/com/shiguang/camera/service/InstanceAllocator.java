@@ -0,0 +1,81 @@
+package com.shiguang.camera.service;
+
+import com.shiguang.camera.enums.CameraInstanceStatus;
+import com.shiguang.camera.exception.BusinessException;
+import com.shiguang.camera.mapper.CameraInstanceMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 设备实例分配器
+ * 在当前事务内原子地占用指定数量的可用设备实例（0-可用 → 5-预占中）：
+ * 1. 进程内按型号分段加锁，同一型号的并发请求在本机排队，避免同时争抢同一批行；
+ * 2. SELECT ... FOR UPDATE SKIP LOCKED 跳过其他事务（包括其他节点）已锁定的行；
+ * 3. 带状态条件的 UPDATE 再次校验，实际更新数量不足时整体失败并回滚。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InstanceAllocator {
+
+    // 分段锁数量（2的幂）
+    private static final int STRIPES = 64;
+
+    private final CameraInstanceMapper cameraInstanceMapper;
+    private final InventoryProjection inventoryProjection;
+
+    private final ReentrantLock[] locks = createLocks();
+
+    /**
+     * 为型号占用指定数量的可用设备实例，必须在事务中调用
+     * @return 占用到的设备实例ID
+     */
+    @Transactional(propagation = Propagation.MANDATORY, rollbackFor = Exception.class)
+    public List<Integer> claim(Integer modelId, int quantity) {
+        if (quantity <= 0) {
+            throw new BusinessException("预订数量必须大于0");
+        }
+
+        ReentrantLock lock = lockOf(modelId);
+        lock.lock();
+        try {
+            List<Integer> instanceIds = cameraInstanceMapper.selectAvailableIdsForUpdate(modelId, quantity);
+            if (instanceIds.size() < quantity) {
+                throw new BusinessException("可用设备数量不足，当前可用：" + instanceIds.size());
+            }
+
+            int claimed = cameraInstanceMapper.transitionStatusByIds(instanceIds,
+                    CameraInstanceStatus.AVAILABLE.getCode(), CameraInstanceStatus.PRE_RESERVED.getCode());
+            if (claimed != quantity) {
+                throw new BusinessException("设备分配冲突，请重试");
+            }
+            inventoryProjection.recordTransition(modelId,
+                    CameraInstanceStatus.AVAILABLE.getCode(), CameraInstanceStatus.PRE_RESERVED.getCode(), claimed);
+
+            log.debug("型号 {} 占用设备实例：{}", modelId, instanceIds);
+            return instanceIds;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockOf(Integer modelId) {
+        int h = modelId.hashCode();
+        h ^= (h >>> 16);
+        return locks[h & (STRIPES - 1)];
+    }
+
+    private static ReentrantLock[] createLocks() {
+        ReentrantLock[] result = new ReentrantLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            result[i] = new ReentrantLock();
+        }
+        return result;
+    }
+}
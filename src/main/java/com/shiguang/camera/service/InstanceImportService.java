@@ -0,0 +1,281 @@
+package com.shiguang.camera.service;
+
+import com.shiguang.camera.cache.UniqueValueFilters;
+import com.shiguang.camera.common.ResultCode;
+import com.shiguang.camera.entity.CameraInstance;
+import com.shiguang.camera.entity.CameraModel;
+import com.shiguang.camera.exception.BusinessException;
+import com.shiguang.camera.export.ExportFormat;
+import com.shiguang.camera.imports.ImportRecord;
+import com.shiguang.camera.imports.ImportReport;
+import com.shiguang.camera.imports.StreamingImportReader;
+import com.shiguang.camera.mapper.CameraInstanceMapper;
+import com.shiguang.camera.search.CatalogSearchIndex;
+import com.shiguang.camera.utils.BatchWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 设备实例批量导入（整批到货入库用）
+ *
+ * 请求体逐条解析，攒满 chunkSize 条为一块：块内用 HashSet 去重（保留第一条），再用一条 IN 查询剔除库中已存在的序列号，
+ * 剩余记录一条多值 INSERT 写入并单独提交。前面的块提交后，后面块中与之重复的序列号会被 IN 查询查出，
+ * 因此整个文件的去重只需要保存当前块，内存占用与文件大小无关。
+ * 中途失败时已提交的块保留，结果中 completed=false 并给出原因，修正后重新导入即可（已导入的序列号会被拒绝）。
+ */
+@Slf4j
+@Service
+public class InstanceImportService {
+
+    // 导入设备的默认状态：可用、状况优
+    private static final int DEFAULT_STATUS = 0;
+    private static final int DEFAULT_CONDITION = 0;
+
+    private final CameraInstanceMapper cameraInstanceMapper;
+    private final CameraModelService cameraModelService;
+    private final InventoryProjection inventoryProjection;
+    private final AvailabilityCalendar availabilityCalendar;
+    private final CatalogSearchIndex catalogSearchIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final UniqueValueFilters uniqueValueFilters;
+
+    // 每块记录数（一次查重、一条 INSERT、一次提交）
+    private final int chunkSize;
+
+    // 结果中最多保留的拒绝明细条数
+    private final int maxRejections;
+
+    public InstanceImportService(CameraInstanceMapper cameraInstanceMapper,
+                                 CameraModelService cameraModelService,
+                                 InventoryProjection inventoryProjection,
+                                 AvailabilityCalendar availabilityCalendar,
+                                 CatalogSearchIndex catalogSearchIndex,
+                                 TransactionTemplate transactionTemplate,
+                                 UniqueValueFilters uniqueValueFilters,
+                                 @Value("${app.import.chunk-size:500}") int chunkSize,
+                                 @Value("${app.import.max-rejections:1000}") int maxRejections) {
+        this.cameraInstanceMapper = cameraInstanceMapper;
+        this.cameraModelService = cameraModelService;
+        this.inventoryProjection = inventoryProjection;
+        this.availabilityCalendar = availabilityCalendar;
+        this.catalogSearchIndex = catalogSearchIndex;
+        this.transactionTemplate = transactionTemplate;
+        this.uniqueValueFilters = uniqueValueFilters;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxRejections = Math.max(0, maxRejections);
+    }
+
+    /**
+     * 导入设备实例到指定型号
+     * 字段：serialNumber（必填）、assetTag、status、condition、location、notes、purchaseDate、warrantyExpiry
+     */
+    public ImportReport importInstances(Integer modelId, ExportFormat format, InputStream in) throws IOException {
+        if (modelId == null) {
+            throw new BusinessException(ResultCode.BAD_REQUEST.getCode(), "相机型号ID不能为空");
+        }
+        CameraModel cameraModel = cameraModelService.getById(modelId);
+        if (cameraModel == null) {
+            throw new BusinessException(ResultCode.BAD_REQUEST.getCode(), "相机型号不存在");
+        }
+
+        long start = System.currentTimeMillis();
+        ImportReport report = new ImportReport();
+        List<PendingRow> chunk = new ArrayList<>(chunkSize);
+        Set<String> chunkKeys = new HashSet<>(chunkSize * 2);
+        try (StreamingImportReader reader = new StreamingImportReader(in, format)) {
+            ImportRecord record;
+            while ((record = reader.next()) != null) {
+                report.setTotalRows(report.getTotalRows() + 1);
+                PendingRow row = toRow(modelId, record, report);
+                if (row == null) {
+                    continue;
+                }
+                if (!chunkKeys.add(row.key)) {
+                    report.reject(row.line, row.instance.getSerialNumber(), "文件内设备序列号重复", maxRejections);
+                    continue;
+                }
+                chunk.add(row);
+                if (chunk.size() >= chunkSize) {
+                    writeChunk(modelId, chunk, report);
+                    chunk.clear();
+                    chunkKeys.clear();
+                }
+            }
+            writeChunk(modelId, chunk, report);
+            report.setCompleted(true);
+        } catch (BusinessException | IOException e) {
+            // 文件格式错误或客户端断开：已提交的块保留，当前块未写入
+            report.setError(e.getMessage());
+            log.warn("导入设备实例中断 modelId={} 已导入 {} 行: {}", modelId, report.getImportedRows(), e.getMessage());
+        } catch (RuntimeException e) {
+            report.setError("导入中断: " + e.getMessage());
+            log.error("导入设备实例失败 modelId={} 已导入 {} 行", modelId, report.getImportedRows(), e);
+        }
+        report.setElapsedMs(System.currentTimeMillis() - start);
+        log.info("导入设备实例 modelId={} format={} 读取={} 导入={} 拒绝={} 块={} 耗时={}ms",
+                modelId, format, report.getTotalRows(), report.getImportedRows(), report.getRejectedRows(),
+                report.getCommittedChunks(), report.getElapsedMs());
+        return report;
+    }
+
+    /**
+     * 查重并在独立事务中写入一块
+     */
+    private void writeChunk(Integer modelId, List<PendingRow> chunk, ImportReport report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<PendingRow> accepted = rejectExisting(chunk, report);
+        if (accepted.isEmpty()) {
+            return;
+        }
+        try {
+            insert(modelId, accepted);
+        } catch (DuplicateKeyException e) {
+            // 查重与写入之间被其他请求写入了相同序列号（依赖序列号唯一索引），重新查重后重试一次
+            accepted = rejectExisting(accepted, report);
+            if (accepted.isEmpty()) {
+                return;
+            }
+            insert(modelId, accepted);
+        }
+        report.setImportedRows(report.getImportedRows() + accepted.size());
+        report.setCommittedChunks(report.getCommittedChunks() + 1);
+        if (report.getCommittedChunks() % 20 == 0) {
+            log.info("导入设备实例进行中 modelId={} 已导入 {} 行", modelId, report.getImportedRows());
+        }
+    }
+
+    private void insert(Integer modelId, List<PendingRow> rows) {
+        List<CameraInstance> instances = rows.stream().map(row -> row.instance).collect(Collectors.toList());
+        instances.forEach(instance -> uniqueValueFilters.serialNumbers().add(instance.getSerialNumber()));
+        transactionTemplate.executeWithoutResult(status -> {
+            BatchWriter.writeAll(instances, cameraInstanceMapper::insertBatch, "导入设备实例失败");
+            availabilityCalendar.invalidateCapacity(modelId);
+            instances.stream()
+                    .collect(Collectors.groupingBy(CameraInstance::getStatus, Collectors.counting()))
+                    .forEach((s, count) -> inventoryProjection.recordTransition(modelId, null, s, count.intValue()));
+            catalogSearchIndex.instancesCreatedAfterCommit(instances);
+        });
+    }
+
+    /**
+     * 剔除库中已存在的序列号（一条 IN 查询，只查过滤器判定可能已存在的），返回剩余记录
+     */
+    private List<PendingRow> rejectExisting(List<PendingRow> rows, ImportReport report) {
+        Set<String> serialNumbers = new HashSet<>(rows.size() * 2);
+        for (PendingRow row : rows) {
+            if (uniqueValueFilters.serialNumbers().mightExist(row.instance.getSerialNumber())) {
+                serialNumbers.add(row.instance.getSerialNumber());
+            }
+        }
+        if (serialNumbers.isEmpty()) {
+            return rows;
+        }
+        Set<String> existing = new HashSet<>();
+        for (String serialNumber : cameraInstanceMapper.selectExistingSerialNumbers(serialNumbers)) {
+            existing.add(serialKey(serialNumber));
+        }
+        if (existing.isEmpty()) {
+            return rows;
+        }
+        List<PendingRow> remaining = new ArrayList<>(rows.size());
+        for (PendingRow row : rows) {
+            if (existing.contains(row.key)) {
+                report.reject(row.line, row.instance.getSerialNumber(), "设备序列号已存在", maxRejections);
+            } else {
+                remaining.add(row);
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * 校验并转换一条记录，不合法时记入拒绝明细并返回 null
+     */
+    private PendingRow toRow(Integer modelId, ImportRecord record, ImportReport report) {
+        if (record.getError() != null) {
+            report.reject(record.getLine(), null, record.getError(), maxRejections);
+            return null;
+        }
+        String serialNumber = record.get("serialNumber");
+        try {
+            if (serialNumber == null) {
+                throw new IllegalArgumentException("设备序列号不能为空");
+            }
+            CameraInstance instance = new CameraInstance();
+            instance.setModelId(modelId);
+            instance.setSerialNumber(serialNumber);
+            instance.setAssetTag(record.get("assetTag"));
+            instance.setStatus(parseCode(record.get("status"), "status", DEFAULT_STATUS, 4));
+            instance.setCondition(parseCode(record.get("condition"), "condition", DEFAULT_CONDITION, 3));
+            instance.setLocation(record.get("location"));
+            instance.setNotes(record.get("notes"));
+            instance.setPurchaseDate(parseDate(record.get("purchaseDate"), "purchaseDate"));
+            instance.setWarrantyExpiry(parseDate(record.get("warrantyExpiry"), "warrantyExpiry"));
+            return new PendingRow(record.getLine(), serialKey(serialNumber), instance);
+        } catch (IllegalArgumentException e) {
+            report.reject(record.getLine(), serialNumber, e.getMessage(), maxRejections);
+            return null;
+        }
+    }
+
+    private static Integer parseCode(String value, String field, int defaultValue, int max) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int code = Integer.parseInt(value);
+            if (code >= 0 && code <= max) {
+                return code;
+            }
+        } catch (NumberFormatException ignored) {
+            // 与越界一并提示
+        }
+        throw new IllegalArgumentException(field + " 取值无效: " + value);
+    }
+
+    private static LocalDate parseDate(String value, String field) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(field + " 日期格式应为 yyyy-MM-dd: " + value);
+        }
+    }
+
+    /**
+     * 序列号比较键：与数据库默认排序规则一致，不区分大小写
+     */
+    private static String serialKey(String serialNumber) {
+        return serialNumber.toUpperCase(Locale.ROOT);
+    }
+
+    private static class PendingRow {
+        private final int line;
+        private final String key;
+        private final CameraInstance instance;
+
+        PendingRow(int line, String key, CameraInstance instance) {
+            this.line = line;
+            this.key = key;
+            this.instance = instance;
+        }
+    }
+}
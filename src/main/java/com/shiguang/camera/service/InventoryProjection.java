@@ -0,0 +1,385 @@
+package com.shiguang.camera.service;
+
+import com.shiguang.camera.cache.FleetStatsSnapshot;
+import com.shiguang.camera.entity.CameraInventory;
+import com.shiguang.camera.enums.CameraInstanceStatus;
+import com.shiguang.camera.mapper.CameraInstanceMapper;
+import com.shiguang.camera.mapper.CameraInventoryMapper.InventoryQuantities;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 库存投影（内存）
+ * 以 camera_instance 为准，按型号维护各状态的设备数量，库存查询接口直接读取投影。
+ * 每次设备实例状态变更在事务提交后记一笔增量，增量按型号合并，
+ * 每隔 app.inventory.flush-interval 毫秒批量写回 camera_inventory。
+ * 对账任务从 camera_instance 重新统计，修正投影和 camera_inventory，并输出偏差。
+ *
+ * 数量与状态的对应：可用=0，已预订=1+5（预占中），已租出=2，维修中=3，总数不含已下架(4)；
+ * 损坏数量无法由实例状态推出，保持库存表中的值。
+ * 对账重新统计时不能有事务在"已提交、增量未计入"的中间状态，否则该事务既被统计又被计入增量，
+ * 多出的数量会写回库存表直到下一次对账（最长一小时）。因此记录了状态变更的事务在提交前取得对账锁的读锁，
+ * 计入增量后才释放；对账持有写锁期间这类事务在提交前等待，通常只是一次分组统计的时间。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InventoryProjection {
+
+    // 状态码 0-5
+    private static final int STATUS_COUNT = 6;
+
+    private final CameraInstanceMapper cameraInstanceMapper;
+    private final CameraInventoryService cameraInventoryService;
+    private final FleetStatsSnapshot fleetStatsSnapshot;
+
+    // 型号ID -> 各状态设备数量（对账时整体替换，读取方无锁）
+    private volatile ConcurrentHashMap<Integer, AtomicIntegerArray> counts = new ConcurrentHashMap<>();
+
+    // 型号ID -> 尚未写回的各状态增量
+    private final ConcurrentHashMap<Integer, AtomicIntegerArray> pending = new ConcurrentHashMap<>();
+
+    // 型号ID -> 库存表中的记录（阈值、仓位等非数量字段）
+    private volatile Map<Integer, CameraInventory> rows = Collections.emptyMap();
+
+    // 对账时独占；日常增减以及记录了状态变更的事务从提交前到计入增量期间共享
+    private final ReentrantReadWriteLock reconcileLock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready = false;
+
+    /**
+     * 启动完成后从 camera_instance 构建投影
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        reconcile();
+    }
+
+    /**
+     * 记录设备实例状态变更，事务提交后计入投影（应在写入实例的事务内调用）
+     * @param fromStatus 原状态，新增实例时为 null
+     * @param toStatus 新状态，删除实例时为 null
+     * @param quantity 变更的实例数量
+     */
+    public void recordTransition(Integer modelId, Integer fromStatus, Integer toStatus, int quantity) {
+        if (modelId == null || quantity <= 0 || (fromStatus == null ? toStatus == null : fromStatus.equals(toStatus))) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(modelId, fromStatus, toStatus, quantity);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean locked;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                // 提交到计入增量之间不允许对账重新统计
+                reconcileLock.readLock().lock();
+                locked = true;
+            }
+
+            @Override
+            public void afterCommit() {
+                apply(modelId, fromStatus, toStatus, quantity);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (locked) {
+                    locked = false;
+                    reconcileLock.readLock().unlock();
+                }
+            }
+        });
+    }
+
+    private void apply(Integer modelId, Integer fromStatus, Integer toStatus, int quantity) {
+        reconcileLock.readLock().lock();
+        try {
+            AtomicIntegerArray current = counts.computeIfAbsent(modelId, key -> new AtomicIntegerArray(STATUS_COUNT));
+            AtomicIntegerArray delta = pending.computeIfAbsent(modelId, key -> new AtomicIntegerArray(STATUS_COUNT));
+            if (fromStatus != null) {
+                current.addAndGet(fromStatus, -quantity);
+                delta.addAndGet(fromStatus, -quantity);
+            }
+            if (toStatus != null) {
+                current.addAndGet(toStatus, quantity);
+                delta.addAndGet(toStatus, quantity);
+            }
+        } finally {
+            reconcileLock.readLock().unlock();
+        }
+        fleetStatsSnapshot.markDirty(modelId);
+    }
+
+    /**
+     * 把合并后的增量批量写回 camera_inventory
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.flush-interval:1000}")
+    public synchronized void flush() {
+        List<InventoryQuantities> deltas = new ArrayList<>();
+        for (Map.Entry<Integer, AtomicIntegerArray> entry : pending.entrySet()) {
+            // 逐项取走并清零，取走之后的并发增量留到下一次
+            int[] byStatus = new int[STATUS_COUNT];
+            for (int i = 0; i < STATUS_COUNT; i++) {
+                byStatus[i] = entry.getValue().getAndSet(i, 0);
+            }
+            InventoryQuantities delta = toQuantities(entry.getKey(), byStatus);
+            if (!delta.isZero()) {
+                deltas.add(delta);
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try {
+            cameraInventoryService.applyDeltas(deltas);
+            log.debug("库存投影写回 {} 个型号", deltas.size());
+        } catch (Exception e) {
+            log.error("库存投影写回失败，{} 个型号的增量留待下次重试", deltas.size(), e);
+            restore(deltas);
+        }
+    }
+
+    /**
+     * 对账：从 camera_instance 重新统计，修正投影与库存表
+     * @return 存在偏差的型号及其库存表数值/实际数值
+     */
+    @Scheduled(cron = "${app.inventory.reconcile-cron:0 20 * * * ?}")
+    public synchronized List<Map<String, Object>> reconcile() {
+        long start = System.currentTimeMillis();
+        List<Map<String, Object>> drifts = new ArrayList<>();
+
+        reconcileLock.writeLock().lock();
+        try {
+            // 先写回未提交的增量，再与数据库比较
+            flush();
+
+            Map<Integer, int[]> actual = new HashMap<>();
+            for (CameraInstanceMapper.StatusCount sc : cameraInstanceMapper.countByModelAndStatus()) {
+                if (sc.getStatus() != null && sc.getStatus() >= 0 && sc.getStatus() < STATUS_COUNT) {
+                    actual.computeIfAbsent(sc.getModelId(), key -> new int[STATUS_COUNT])[sc.getStatus()] =
+                            sc.getCount().intValue();
+                }
+            }
+
+            Map<Integer, CameraInventory> stored = new HashMap<>();
+            for (CameraInventory inventory : cameraInventoryService.list()) {
+                stored.put(inventory.getModelId(), inventory);
+            }
+
+            Set<Integer> modelIds = new HashSet<>(actual.keySet());
+            modelIds.addAll(stored.keySet());
+            for (Integer modelId : modelIds) {
+                InventoryQuantities expected = toQuantities(modelId, actual.getOrDefault(modelId, new int[STATUS_COUNT]));
+                CameraInventory row = stored.get(modelId);
+                if (row == null || !matches(row, expected)) {
+                    drifts.add(drift(modelId, row, expected));
+                    cameraInventoryService.overwriteQuantities(expected);
+                }
+            }
+
+            // 构建新的计数表后整体替换，读取方不会看到清空到一半的状态
+            ConcurrentHashMap<Integer, AtomicIntegerArray> rebuilt = new ConcurrentHashMap<>(actual.size() * 2);
+            for (Map.Entry<Integer, int[]> entry : actual.entrySet()) {
+                rebuilt.put(entry.getKey(), new AtomicIntegerArray(entry.getValue()));
+            }
+            pending.clear();
+            loadRows();
+            counts = rebuilt;
+            ready = true;
+        } catch (Exception e) {
+            log.error("库存对账失败", e);
+            return drifts;
+        } finally {
+            reconcileLock.writeLock().unlock();
+        }
+
+        if (drifts.isEmpty()) {
+            log.info("库存对账完成，无偏差，型号数: {}，耗时 {} ms", counts.size(), System.currentTimeMillis() - start);
+        } else {
+            log.warn("库存对账完成，{} 个型号存在偏差并已修正: {}", drifts.size(), drifts);
+        }
+        return drifts;
+    }
+
+    /**
+     * 重新加载库存表中的非数量字段（阈值、仓位等被修改后调用）
+     */
+    public void reloadRows() {
+        reconcileLock.readLock().lock();
+        try {
+            loadRows();
+        } finally {
+            reconcileLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 获取型号库存，投影尚未就绪时回退到数据库
+     */
+    public CameraInventory getByModelId(Integer modelId) {
+        if (!ready) {
+            return cameraInventoryService.getByModelId(modelId);
+        }
+        CameraInventory row = rows.get(modelId);
+        AtomicIntegerArray current = counts.get(modelId);
+        if (row == null && current == null) {
+            return null;
+        }
+        return view(modelId, row, current);
+    }
+
+    /**
+     * 获取全部型号库存，投影尚未就绪时回退到数据库
+     */
+    public List<CameraInventory> list() {
+        if (!ready) {
+            return cameraInventoryService.list();
+        }
+        Map<Integer, CameraInventory> rows = this.rows;
+        Map<Integer, AtomicIntegerArray> counts = this.counts;
+        Set<Integer> modelIds = new HashSet<>(rows.keySet());
+        modelIds.addAll(counts.keySet());
+        List<CameraInventory> result = new ArrayList<>(modelIds.size());
+        for (Integer modelId : modelIds) {
+            result.add(view(modelId, rows.get(modelId), counts.get(modelId)));
+        }
+        result.sort((a, b) -> Integer.compare(a.getModelId(), b.getModelId()));
+        return result;
+    }
+
+    /**
+     * 检查可用数量是否足够
+     */
+    public boolean checkStockAvailable(Integer modelId, Integer requiredQuantity) {
+        if (!ready) {
+            return cameraInventoryService.checkStockAvailable(modelId, requiredQuantity);
+        }
+        if (requiredQuantity <= 0) {
+            return true;
+        }
+        AtomicIntegerArray current = counts.get(modelId);
+        return current != null && current.get(CameraInstanceStatus.AVAILABLE.getCode()) >= requiredQuantity;
+    }
+
+    public Map<String, Object> stats() {
+        long pendingModels = pending.values().stream().filter(delta -> {
+            for (int i = 0; i < STATUS_COUNT; i++) {
+                if (delta.get(i) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }).count();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("ready", ready);
+        result.put("models", counts.size());
+        result.put("pendingModels", pendingModels);
+        return result;
+    }
+
+    private void loadRows() {
+        Map<Integer, CameraInventory> loaded = new HashMap<>();
+        for (CameraInventory inventory : cameraInventoryService.list()) {
+            loaded.put(inventory.getModelId(), inventory);
+        }
+        rows = loaded;
+    }
+
+    private void restore(List<InventoryQuantities> deltas) {
+        // 写回失败时把列增量折算回状态增量，放回待写队列
+        for (InventoryQuantities delta : deltas) {
+            AtomicIntegerArray target = pending.computeIfAbsent(delta.getModelId(), key -> new AtomicIntegerArray(STATUS_COUNT));
+            target.addAndGet(CameraInstanceStatus.AVAILABLE.getCode(), delta.getAvailable());
+            target.addAndGet(CameraInstanceStatus.RESERVED.getCode(), delta.getReserved());
+            target.addAndGet(CameraInstanceStatus.RENTING.getCode(), delta.getRented());
+            target.addAndGet(CameraInstanceStatus.MAINTENANCE.getCode(), delta.getMaintenance());
+        }
+    }
+
+    private CameraInventory view(Integer modelId, CameraInventory row, AtomicIntegerArray current) {
+        CameraInventory result = new CameraInventory();
+        if (row != null) {
+            BeanUtils.copyProperties(row, result);
+        } else {
+            result.setModelId(modelId);
+            result.setDamagedQuantity(0);
+        }
+        int[] byStatus = new int[STATUS_COUNT];
+        if (current != null) {
+            for (int i = 0; i < STATUS_COUNT; i++) {
+                byStatus[i] = current.get(i);
+            }
+        }
+        InventoryQuantities quantities = toQuantities(modelId, byStatus);
+        result.setTotalQuantity(quantities.getTotal());
+        result.setAvailableQuantity(quantities.getAvailable());
+        result.setReservedQuantity(quantities.getReserved());
+        result.setRentedQuantity(quantities.getRented());
+        result.setMaintenanceQuantity(quantities.getMaintenance());
+        return result;
+    }
+
+    private static InventoryQuantities toQuantities(Integer modelId, int[] byStatus) {
+        int available = byStatus[CameraInstanceStatus.AVAILABLE.getCode()];
+        int reserved = byStatus[CameraInstanceStatus.RESERVED.getCode()] + byStatus[CameraInstanceStatus.PRE_RESERVED.getCode()];
+        int rented = byStatus[CameraInstanceStatus.RENTING.getCode()];
+        int maintenance = byStatus[CameraInstanceStatus.MAINTENANCE.getCode()];
+        return new InventoryQuantities(modelId, available + reserved + rented + maintenance,
+                available, reserved, rented, maintenance);
+    }
+
+    private static boolean matches(CameraInventory row, InventoryQuantities expected) {
+        return valueOf(row.getTotalQuantity()) == expected.getTotal()
+                && valueOf(row.getAvailableQuantity()) == expected.getAvailable()
+                && valueOf(row.getReservedQuantity()) == expected.getReserved()
+                && valueOf(row.getRentedQuantity()) == expected.getRented()
+                && valueOf(row.getMaintenanceQuantity()) == expected.getMaintenance();
+    }
+
+    private static Map<String, Object> drift(Integer modelId, CameraInventory row, InventoryQuantities expected) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("modelId", modelId);
+        result.put("stored", row == null ? null : quantities(valueOf(row.getTotalQuantity()),
+                valueOf(row.getAvailableQuantity()), valueOf(row.getReservedQuantity()),
+                valueOf(row.getRentedQuantity()), valueOf(row.getMaintenanceQuantity())));
+        result.put("actual", quantities(expected.getTotal(), expected.getAvailable(), expected.getReserved(),
+                expected.getRented(), expected.getMaintenance()));
+        return result;
+    }
+
+    private static Map<String, Integer> quantities(int total, int available, int reserved, int rented, int maintenance) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        result.put("total", total);
+        result.put("available", available);
+        result.put("reserved", reserved);
+        result.put("rented", rented);
+        result.put("maintenance", maintenance);
+        return result;
+    }
+
+    private static int valueOf(Integer value) {
+        return value != null ? value : 0;
+    }
+}
@@ -3,6 +3,7 @@ package com.shiguang.camera.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.shiguang.camera.entity.Order;
 import com.shiguang.camera.vo.CreateOrderVO;
+import com.shiguang.camera.vo.CursorPage;
 import com.shiguang.camera.vo.ReturnDeviceVO;
 
 import java.util.List;
@@ -31,9 +32,10 @@ public interface OrderService extends IService<Order> {
     Order getOrderDetail(Integer orderId);
 
     /**
-     * 获取所有订单（管理员专用）
+     * 游标分页获取订单（管理员专用，按创建时间、ID倒序）
      * @param status 订单状态（可选）
-     * @return 订单列表
+     * @param cursor 上一页返回的游标，为空时查询第一页
+     * @param withTotal 是否同时统计总数
      */
-    List<Order> getAllOrders(Integer status);
+    CursorPage<Order> getOrderCursorPage(Integer status, String cursor, Integer size, boolean withTotal);
 }
\ No newline at end of file
@@ -1,10 +1,8 @@
 package com.shiguang.camera.service;
 
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.shiguang.camera.cache.ConfigSnapshot;
 import com.shiguang.camera.entity.Reservation;
-import com.shiguang.camera.entity.SystemConfig;
 import com.shiguang.camera.entity.Order;  // 添加这个导入
-import com.shiguang.camera.mapper.SystemConfigMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -13,18 +11,13 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
-import java.util.HashMap;
-import java.util.Map;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class RefundCalculator {
 
-    private final SystemConfigMapper systemConfigMapper;
-
-    // 缓存配置
-    private Map<String, BigDecimal> configCache = new HashMap<>();
+    private final ConfigSnapshot configSnapshot;
 
     /**
      * 计算取消预订的退款金额
@@ -167,36 +160,9 @@ public class RefundCalculator {
     }
 
     /**
-     * 获取配置值
+     * 获取配置值（读取配置快照，不访问数据库）
      */
     private BigDecimal getConfigValue(String key, BigDecimal defaultValue) {
-        if (configCache.containsKey(key)) {
-            return configCache.get(key);
-        }
-
-        SystemConfig config = systemConfigMapper.selectOne(
-                new LambdaQueryWrapper<SystemConfig>()
-                        .eq(SystemConfig::getConfigKey, key)
-        );
-
-        if (config != null && config.getConfigValue() != null) {
-            try {
-                BigDecimal value = new BigDecimal(config.getConfigValue());
-                configCache.put(key, value);
-                return value;
-            } catch (NumberFormatException e) {
-                log.warn("配置值格式错误：{} = {}", key, config.getConfigValue());
-            }
-        }
-
-        configCache.put(key, defaultValue);
-        return defaultValue;
-    }
-
-    /**
-     * 清除配置缓存（当配置更新时调用）
-     */
-    public void clearConfigCache() {
-        configCache.clear();
+        return configSnapshot.getDecimal(key, defaultValue);
     }
-}
\ No newline at end of file
+}
@@ -7,8 +7,8 @@ import java.util.List;
 
 public interface ReservationInstancesService extends IService<ReservationInstances> {
 
-    // 批量创建预订与设备实例的关联
-    boolean batchCreate(Integer reservationId, List<Integer> instanceIds);
+    // 批量创建预订与设备实例的关联（多值 INSERT），写入失败时抛出异常
+    void batchCreate(Integer reservationId, List<Integer> instanceIds);
 
     // 根据预订ID获取关联的设备实例
     List<ReservationInstances> getByReservationId(Integer reservationId);
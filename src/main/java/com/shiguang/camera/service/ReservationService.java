@@ -22,6 +22,9 @@ public interface ReservationService extends IService<Reservation> {
     // 完成预订
     boolean completeReservation(Integer reservationId, Integer adminId);
 
+    // 过期预订自动取消（仅当仍为已预订且已过期时生效）
+    boolean expireReservation(Integer reservationId);
+
     // 检查时间冲突
     boolean checkTimeConflict(Integer modelId, LocalDate startDate, LocalDate endDate,
                               LocalTime startTime, LocalTime endTime, Integer excludeId);
@@ -1,13 +1,30 @@
 package com.shiguang.camera.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.shiguang.camera.entity.User;
 import com.shiguang.camera.utils.JwtUtil;
+import com.shiguang.camera.utils.JwtUtil.TokenClaims;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 /**
- * Token 服务类 - 无状态JWT版本
- * 完全依赖JWT的无状态特性，服务端不存储任何token
+ * Token 服务类 - JWT版本
+ * 已校验的token解析结果缓存到token过期为止，避免每次请求重复做签名校验和声明解析；
+ * 登出的token记入吊销集合（同样保留到过期为止），吊销仅在本节点内生效。
+ * 两个缓存都以token的 SHA-256 摘要为键，堆中不保留原始token。
+ * 吊销集合不设条数上限（按条数淘汰可能丢掉刚吊销的token，使其重新生效），条目数受token有效期内的登出次数约束。
  */
 @Slf4j
 @Service
@@ -15,8 +32,31 @@ public class TokenService {
 
     private final JwtUtil jwtUtil;
 
-    public TokenService(JwtUtil jwtUtil) {
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    // token摘要 -> 解析结果
+    private final Cache<String, TokenClaims> verifiedTokens;
+
+    // 已吊销的token摘要 -> 解析结果（只按过期时间移除）
+    private final Cache<String, TokenClaims> revokedTokens;
+
+    public TokenService(JwtUtil jwtUtil,
+                        @Value("${app.cache.token.max-size:50000}") long maxSize) {
         this.jwtUtil = jwtUtil;
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+        this.revokedTokens = Caffeine.newBuilder()
+                .expireAfter(new UntilTokenExpiry())
+                .build();
     }
 
     /**
@@ -35,37 +75,59 @@ public class TokenService {
      * 验证 token 有效性
      */
     public Integer verifyToken(String token) {
+        TokenClaims claims = verify(token);
+        return claims != null ? claims.getUserId() : null;
+    }
+
+    /**
+     * 验证 token 并返回解析结果（用户ID、手机号、过期时间），无效时返回 null
+     */
+    public TokenClaims verify(String token) {
         if (token == null || token.trim().isEmpty()) {
             log.warn("验证 token 失败：token 为空");
             return null;
         }
 
-        try {
-            // 验证JWT token（包括签名和过期时间）
-            if (!jwtUtil.validateToken(token)) {
+        String key = digest(token);
+        if (revokedTokens.getIfPresent(key) != null) {
+            log.warn("验证 token 失败：token 已登出");
+            return null;
+        }
+
+        TokenClaims claims = verifiedTokens.getIfPresent(key);
+        if (claims == null) {
+            // 验证JWT token（包括签名和过期时间），只解析一次
+            claims = jwtUtil.parseToken(token);
+            if (claims == null) {
                 log.warn("验证 token 失败：JWT token无效");
                 return null;
             }
+            verifiedTokens.put(key, claims);
+        }
 
-            // 获取用户ID
-            Integer userId = jwtUtil.getUserIdFromToken(token);
-            log.debug("验证 JWT token 成功，用户ID: {}", userId);
-            return userId;
-
-        } catch (Exception e) {
-            log.warn("验证 JWT token 异常: {}", e.getMessage());
+        if (claims.isExpired()) {
+            verifiedTokens.invalidate(key);
+            log.warn("验证 token 失败：JWT token已过期");
             return null;
         }
+
+        return claims;
     }
 
     /**
-     * 移除 token（空实现，因为JWT无状态）
-     * 客户端需要自己删除token
+     * 移除 token：记入吊销集合直到其过期
+     * 吊销只在当前节点生效，多节点部署时客户端仍需删除本地token
      */
     public void removeToken(String token) {
-        // JWT是无状态的，服务端无法强制token失效
-        // 客户端需要删除本地存储的token
-        log.info("客户端登出，token已无效（JWT无状态，服务端不存储）");
+        TokenClaims claims = verify(token);
+        if (claims == null) {
+            return;
+        }
+
+        String key = digest(token);
+        revokedTokens.put(key, claims);
+        verifiedTokens.invalidate(key);
+        log.info("token已吊销，用户ID: {}", claims.getUserId());
     }
 
     /**
@@ -73,19 +135,16 @@ public class TokenService {
      */
     public String refreshToken(String token) {
         try {
-            // 验证旧token
-            if (!jwtUtil.validateToken(token)) {
+            // 验证旧token并获取用户信息
+            TokenClaims claims = verify(token);
+            if (claims == null) {
                 throw new RuntimeException("旧token无效");
             }
 
-            // 从旧token中获取用户信息
-            Integer userId = jwtUtil.getUserIdFromToken(token);
-            String phone = jwtUtil.getPhoneFromToken(token);
-
             // 生成新token
-            String newToken = jwtUtil.generateToken(userId, phone);
+            String newToken = jwtUtil.generateToken(claims.getUserId(), claims.getPhone());
 
-            log.info("刷新token成功，用户ID: {}", userId);
+            log.info("刷新token成功，用户ID: {}", claims.getUserId());
 
             return newToken;
 
@@ -94,4 +153,49 @@ public class TokenService {
             return null;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * token缓存统计信息
+     */
+    public Map<String, Object> stats() {
+        CacheStats stats = verifiedTokens.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", verifiedTokens.estimatedSize());
+        result.put("revokedSize", revokedTokens.estimatedSize());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        return result;
+    }
+
+    /**
+     * token的 SHA-256 摘要（Base64，43个字符），作为缓存键
+     */
+    private static String digest(String token) {
+        byte[] hash = SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+    }
+
+    /**
+     * 缓存条目保留到token自身的过期时间
+     */
+    private static final class UntilTokenExpiry implements Expiry<String, TokenClaims> {
+
+        @Override
+        public long expireAfterCreate(String key, TokenClaims value, long currentTime) {
+            long remainingMillis = value.getExpiresAtMillis() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, TokenClaims value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, TokenClaims value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -42,6 +42,14 @@ public interface UserService extends IService<User> {
      */
     boolean changePassword(Integer userId, String oldPassword, String newPassword);
 
+    /**
+     * 更新用户角色
+     * @param userId 用户ID
+     * @param roleId 角色ID
+     * @return 是否更新成功
+     */
+    boolean updateRole(Integer userId, Integer roleId);
+
     /**
      * 根据手机号查询用户
      * @param phone 手机号
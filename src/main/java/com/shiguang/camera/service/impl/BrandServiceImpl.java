@@ -2,9 +2,11 @@ package com.shiguang.camera.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.shiguang.camera.cache.CatalogCache;
 import com.shiguang.camera.entity.Brand;
 import com.shiguang.camera.mapper.BrandMapper;
 import com.shiguang.camera.service.BrandService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.HashMap;
@@ -14,6 +16,9 @@ import java.util.Map;
 @Service
 public class BrandServiceImpl extends ServiceImpl<BrandMapper, Brand> implements BrandService {
 
+    @Autowired
+    private CatalogCache catalogCache;
+
     /**
      * 获取所有品牌列表（按排序号排序）
      */
@@ -51,7 +56,9 @@ public class BrandServiceImpl extends ServiceImpl<BrandMapper, Brand> implements
             brand.setSortOrder(0); // 默认排序为0
         }
 
-        return save(brand);
+        boolean success = save(brand);
+        catalogCache.invalidateBrand(brand.getId());
+        return success;
     }
 
     /**
@@ -60,7 +67,9 @@ public class BrandServiceImpl extends ServiceImpl<BrandMapper, Brand> implements
     @Override
     @Transactional
     public boolean updateBrand(Brand brand) {
-        return updateById(brand);
+        boolean success = updateById(brand);
+        catalogCache.invalidateBrand(brand.getId());
+        return success;
     }
 
     /**
@@ -69,7 +78,9 @@ public class BrandServiceImpl extends ServiceImpl<BrandMapper, Brand> implements
     @Override
     @Transactional
     public boolean deleteBrand(Integer id) {
-        return removeById(id); // 直接物理删除
+        boolean success = removeById(id); // 直接物理删除
+        catalogCache.invalidateBrand(id);
+        return success;
     }
 
     /**
@@ -88,7 +99,9 @@ public class BrandServiceImpl extends ServiceImpl<BrandMapper, Brand> implements
         }
 
         brand.setLogo(logoUrl);
-        return updateById(brand);
+        boolean success = updateById(brand);
+        catalogCache.invalidateBrand(id);
+        return success;
     }
 
     /**
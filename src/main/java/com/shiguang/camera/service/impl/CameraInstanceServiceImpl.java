@@ -4,32 +4,65 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.shiguang.camera.cache.CatalogCache;
+import com.shiguang.camera.cache.FleetStatsSnapshot;
+import com.shiguang.camera.cache.UniqueValueFilters;
 import com.shiguang.camera.entity.Brand;
 import com.shiguang.camera.entity.CameraInstance;
 import com.shiguang.camera.entity.CameraModel;
 import com.shiguang.camera.mapper.CameraInstanceMapper;
-import com.shiguang.camera.service.BrandService;
+import com.shiguang.camera.search.CatalogSearchIndex;
+import com.shiguang.camera.search.TextIndex;
+import com.shiguang.camera.service.AvailabilityCalendar;
 import com.shiguang.camera.service.CameraInstanceService;
 import com.shiguang.camera.service.CameraModelService;
+import com.shiguang.camera.service.InventoryProjection;
+import com.shiguang.camera.utils.PageCursor;
+import com.shiguang.camera.vo.CursorPage;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class CameraInstanceServiceImpl extends ServiceImpl<CameraInstanceMapper, CameraInstance>
         implements CameraInstanceService {
 
+    // 关键词搜索单次最多返回条数
+    private static final int SEARCH_MAX_LIMIT = 200;
+
+    // 批量创建时每条 IN 查重语句的序列号个数
+    private static final int SERIAL_CHECK_CHUNK = 500;
+
     @Autowired
     private CameraModelService cameraModelService;
 
     @Autowired
-    private BrandService brandService;
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private AvailabilityCalendar availabilityCalendar;
+
+    @Autowired
+    private InventoryProjection inventoryProjection;
+
+    @Autowired
+    private FleetStatsSnapshot fleetStatsSnapshot;
+
+    @Autowired
+    private CatalogSearchIndex catalogSearchIndex;
+
+    @Autowired
+    private UniqueValueFilters uniqueValueFilters;
 
     @Override
     public List<CameraInstance> getInstancesByModelId(Integer modelId) {
@@ -46,6 +79,52 @@ public class CameraInstanceServiceImpl extends ServiceImpl<CameraInstanceMapper,
                                                  Integer modelId, String serialNumber,
                                                  Integer status, String keyword) {
         Page<CameraInstance> pageParam = new Page<>(page, size);
+        LambdaQueryWrapper<CameraInstance> queryWrapper = buildInstanceQuery(modelId, serialNumber, status, keyword);
+
+        // 按创建时间倒序
+        queryWrapper.orderByDesc(CameraInstance::getCreateTime);
+
+        return page(pageParam, queryWrapper);
+    }
+
+    @Override
+    public CursorPage<CameraInstance> getInstanceCursorPage(String cursor, Integer size, boolean withTotal,
+                                                            Integer modelId, String serialNumber,
+                                                            Integer status, String keyword) {
+        Long total = withTotal ? count(buildInstanceQuery(modelId, serialNumber, status, keyword)) : null;
+        LambdaQueryWrapper<CameraInstance> queryWrapper = buildInstanceQuery(modelId, serialNumber, status, keyword);
+        PageCursor.seek(queryWrapper, cursor, size, CameraInstance::getCreateTime, CameraInstance::getId);
+        return PageCursor.toPage(list(queryWrapper), size,
+                CameraInstance::getCreateTime, CameraInstance::getId, total);
+    }
+
+    @Override
+    public List<CameraInstance> searchInstances(String keyword, Integer limit) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        String keywordTrimmed = keyword.trim();
+        int size = limit != null ? Math.max(1, Math.min(limit, SEARCH_MAX_LIMIT)) : 20;
+        List<Integer> rankedIds = catalogSearchIndex.searchInstances(keywordTrimmed, size);
+        if (rankedIds == null || rankedIds.isEmpty()) {
+            // 索引不可用或没有命中时回退到数据库查询（其他节点新增的设备在全量重建前不在本节点索引中）
+            LambdaQueryWrapper<CameraInstance> queryWrapper = buildInstanceQuery(null, null, null, keywordTrimmed);
+            queryWrapper.orderByDesc(CameraInstance::getId).last("LIMIT " + size);
+            return list(queryWrapper);
+        }
+        // 按主键取回，剔除已下架的设备以及索引尚未同步的变更
+        return CatalogSearchIndex.inRankOrder(rankedIds, listByIds(rankedIds), CameraInstance::getId,
+                instance -> !Integer.valueOf(4).equals(instance.getStatus())
+                        && (TextIndex.matches(instance.getSerialNumber(), keywordTrimmed)
+                        || TextIndex.matches(instance.getAssetTag(), keywordTrimmed)
+                        || TextIndex.matches(instance.getNotes(), keywordTrimmed)));
+    }
+
+    /**
+     * 设备实例列表的筛选条件（偏移分页和游标分页共用）
+     */
+    private LambdaQueryWrapper<CameraInstance> buildInstanceQuery(Integer modelId, String serialNumber,
+                                                                  Integer status, String keyword) {
         LambdaQueryWrapper<CameraInstance> queryWrapper = new LambdaQueryWrapper<>();
 
         // 按型号筛选
@@ -66,7 +145,7 @@ public class CameraInstanceServiceImpl extends ServiceImpl<CameraInstanceMapper,
             queryWrapper.ne(CameraInstance::getStatus, 4);
         }
 
-        // 关键词搜索（搜索序列号、资产标签、备注）
+        // 关键词搜索（搜索序列号、资产标签、备注）：列表筛选必须完整，直接 LIKE，不用本节点索引限定候选行
         if (keyword != null && !keyword.trim().isEmpty()) {
             String keywordTrimmed = keyword.trim();
             queryWrapper.and(wrapper -> wrapper
@@ -78,10 +157,7 @@ public class CameraInstanceServiceImpl extends ServiceImpl<CameraInstanceMapper,
             );
         }
 
-        // 按创建时间倒序
-        queryWrapper.orderByDesc(CameraInstance::getCreateTime);
-
-        return page(pageParam, queryWrapper);
+        return queryWrapper;
     }
 
     @Override
@@ -114,7 +190,20 @@ public class CameraInstanceServiceImpl extends ServiceImpl<CameraInstanceMapper,
             cameraInstance.setCondition(0); // 默认状况为优
         }
 
-        return save(cameraInstance);
+        availabilityCalendar.invalidateCapacity(cameraInstance.getModelId());
+        uniqueValueFilters.serialNumbers().add(cameraInstance.getSerialNumber());
+        boolean saved;
+        try {
+            saved = save(cameraInstance);
+        } catch (DuplicateKeyException e) {
+            // 其他节点或直接写库的序列号过滤器不知道，以序列号唯一索引为准
+            throw new IllegalArgumentException("设备序列号已存在");
+        }
+        if (saved) {
+            inventoryProjection.recordTransition(cameraInstance.getModelId(), null, cameraInstance.getStatus(), 1);
+            catalogSearchIndex.instancesCreatedAfterCommit(Collections.singletonList(cameraInstance));
+        }
+        return saved;
     }
 
     @Override
@@ -136,6 +225,7 @@ public class CameraInstanceServiceImpl extends ServiceImpl<CameraInstanceMapper,
             if (!isSerialNumberUnique(cameraInstance.getSerialNumber(), cameraInstance.getId())) {
                 throw new IllegalArgumentException("设备序列号已存在");
             }
+            uniqueValueFilters.serialNumbers().add(cameraInstance.getSerialNumber());
         }
 
         // 如果修改了型号ID，需要验证型号是否存在
@@ -147,7 +237,28 @@ public class CameraInstanceServiceImpl extends ServiceImpl<CameraInstanceMapper,
             }
         }
 
-        return updateById(cameraInstance);
+        availabilityCalendar.invalidateCapacity(existingInstance.getModelId());
+        availabilityCalendar.invalidateCapacity(cameraInstance.getModelId());
+        boolean updated;
+        try {
+            updated = updateById(cameraInstance);
+        } catch (DuplicateKeyException e) {
+            throw new IllegalArgumentException("设备序列号已存在");
+        }
+        if (updated) {
+            Integer newModelId = cameraInstance.getModelId() != null ? cameraInstance.getModelId() : existingInstance.getModelId();
+            Integer newStatus = cameraInstance.getStatus() != null ? cameraInstance.getStatus() : existingInstance.getStatus();
+            if (newModelId.equals(existingInstance.getModelId())) {
+                inventoryProjection.recordTransition(newModelId, existingInstance.getStatus(), newStatus, 1);
+            } else {
+                inventoryProjection.recordTransition(existingInstance.getModelId(), existingInstance.getStatus(), null, 1);
+                inventoryProjection.recordTransition(newModelId, null, newStatus, 1);
+            }
+            // 状况变化不经过库存投影，单独标记统计
+            fleetStatsSnapshot.markDirtyAfterCommit(newModelId);
+            catalogSearchIndex.instanceChangedAfterCommit(cameraInstance.getId());
+        }
+        return updated;
     }
 
     @Override
@@ -163,7 +274,13 @@ public class CameraInstanceServiceImpl extends ServiceImpl<CameraInstanceMapper,
             throw new IllegalArgumentException("只有可用状态的设备才能删除");
         }
 
-        return removeById(id);
+        availabilityCalendar.invalidateCapacity(instance.getModelId());
+        boolean removed = removeById(id);
+        if (removed) {
+            inventoryProjection.recordTransition(instance.getModelId(), instance.getStatus(), null, 1);
+            catalogSearchIndex.instanceRemovedAfterCommit(id);
+        }
+        return removed;
     }
 
     @Override
@@ -183,8 +300,14 @@ public class CameraInstanceServiceImpl extends ServiceImpl<CameraInstanceMapper,
             throw new IllegalArgumentException("不允许的状态转换");
         }
 
+        Integer fromStatus = instance.getStatus();
         instance.setStatus(status);
-        return updateById(instance);
+        availabilityCalendar.invalidateCapacity(instance.getModelId());
+        boolean updated = updateById(instance);
+        if (updated) {
+            inventoryProjection.recordTransition(instance.getModelId(), fromStatus, status, 1);
+        }
+        return updated;
     }
 
     @Override
@@ -202,11 +325,17 @@ public class CameraInstanceServiceImpl extends ServiceImpl<CameraInstanceMapper,
         instance.setCondition(condition);
 
         // 如果设备状况为"需维修"，自动将状态改为"维修中"
+        Integer fromStatus = instance.getStatus();
         if (condition == 3 && instance.getStatus() != 3) {
             instance.setStatus(3);
         }
 
-        return updateById(instance);
+        boolean updated = updateById(instance);
+        if (updated) {
+            inventoryProjection.recordTransition(instance.getModelId(), fromStatus, instance.getStatus(), 1);
+            fleetStatsSnapshot.markDirtyAfterCommit(instance.getModelId());
+        }
+        return updated;
     }
 
     @Override
@@ -233,7 +362,7 @@ public class CameraInstanceServiceImpl extends ServiceImpl<CameraInstanceMapper,
             }
             // 如果相机型号详情中没有品牌信息，但品牌ID存在，查询品牌信息
             else if (cameraModel != null && cameraModel.getBrandId() != null) {
-                Brand brand = brandService.getById(cameraModel.getBrandId());
+                Brand brand = catalogCache.getBrand(cameraModel.getBrandId());
                 instance.setBrand(brand);
             }
         }
@@ -243,46 +372,7 @@ public class CameraInstanceServiceImpl extends ServiceImpl<CameraInstanceMapper,
 
     @Override
     public Map<String, Object> getInstanceStats(Integer modelId) {
-        Map<String, Object> stats = new HashMap<>();
-
-        // 总设备数
-        Long totalInstances;
-        // 各状态设备数
-        List<CameraInstanceMapper.StatusCount> statusCounts;
-
-        if (modelId != null) {
-            totalInstances = lambdaQuery()
-                    .eq(CameraInstance::getModelId, modelId)
-                    .count();
-            statusCounts = baseMapper.countByStatus(modelId);
-        } else {
-            totalInstances = lambdaQuery().count();
-            // 对于所有型号，需要手动统计
-            statusCounts = lambdaQuery()
-                    .select(CameraInstance::getStatus)
-                    .groupBy(CameraInstance::getStatus)
-                    .list()
-                    .stream()
-                    .map(instance -> {
-                        CameraInstanceMapper.StatusCount sc = new CameraInstanceMapper.StatusCount();
-                        sc.setStatus(instance.getStatus());
-                        sc.setCount(1L); // 这里需要实际统计，简化处理
-                        return sc;
-                    })
-                    .collect(Collectors.toList());
-        }
-
-        // 可用设备数
-        Long availableCount = lambdaQuery()
-                .eq(CameraInstance::getStatus, 0)
-                .eq(modelId != null, CameraInstance::getModelId, modelId)
-                .count();
-
-        stats.put("totalInstances", totalInstances);
-        stats.put("availableInstances", availableCount);
-        stats.put("statusCounts", statusCounts);
-
-        return stats;
+        return fleetStatsSnapshot.get(modelId);
     }
 
     @Override
@@ -298,16 +388,16 @@ public class CameraInstanceServiceImpl extends ServiceImpl<CameraInstanceMapper,
             throw new IllegalArgumentException("相机型号不存在");
         }
 
-        // 验证序列号唯一性
+        // 验证序列号：列表内用 HashSet 去重，过滤器判定可能已存在的再按块各用一条 IN 查询
+        Set<String> serialNumbers = new HashSet<>(instances.size() * 2);
         for (CameraInstance instance : instances) {
             instance.setModelId(modelId);
 
             if (instance.getSerialNumber() == null || instance.getSerialNumber().trim().isEmpty()) {
                 throw new IllegalArgumentException("设备序列号不能为空");
             }
-
-            if (!isSerialNumberUnique(instance.getSerialNumber(), null)) {
-                throw new IllegalArgumentException("设备序列号已存在: " + instance.getSerialNumber());
+            if (!serialNumbers.add(instance.getSerialNumber().toUpperCase(Locale.ROOT))) {
+                throw new IllegalArgumentException("设备序列号重复: " + instance.getSerialNumber());
             }
 
             // 设置默认值
@@ -318,8 +408,34 @@ public class CameraInstanceServiceImpl extends ServiceImpl<CameraInstanceMapper,
                 instance.setCondition(0);
             }
         }
+        List<String> serialList = instances.stream()
+                .map(CameraInstance::getSerialNumber)
+                .filter(uniqueValueFilters.serialNumbers()::mightExist)
+                .collect(Collectors.toList());
+        for (int from = 0; from < serialList.size(); from += SERIAL_CHECK_CHUNK) {
+            List<String> existing = baseMapper.selectExistingSerialNumbers(
+                    serialList.subList(from, Math.min(from + SERIAL_CHECK_CHUNK, serialList.size())));
+            if (!existing.isEmpty()) {
+                throw new IllegalArgumentException("设备序列号已存在: " + existing.get(0));
+            }
+        }
 
-        return saveBatch(instances);
+        availabilityCalendar.invalidateCapacity(modelId);
+        instances.forEach(instance -> uniqueValueFilters.serialNumbers().add(instance.getSerialNumber()));
+        boolean saved;
+        try {
+            saved = saveBatch(instances);
+        } catch (DuplicateKeyException e) {
+            throw new IllegalArgumentException("设备序列号已存在");
+        }
+        if (saved) {
+            // 按状态合并后计入库存投影
+            instances.stream()
+                    .collect(Collectors.groupingBy(CameraInstance::getStatus, Collectors.counting()))
+                    .forEach((status, count) -> inventoryProjection.recordTransition(modelId, null, status, count.intValue()));
+            catalogSearchIndex.instancesCreatedAfterCommit(instances);
+        }
+        return saved;
     }
 
     @Override
@@ -331,7 +447,8 @@ public class CameraInstanceServiceImpl extends ServiceImpl<CameraInstanceMapper,
             queryWrapper.ne(CameraInstance::getId, excludeId);
         }
 
-        return count(queryWrapper) == 0;
+        // 序列号一定不存在时不查询数据库
+        return !uniqueValueFilters.serialNumbers().exists(serialNumber, () -> count(queryWrapper) > 0);
     }
 
     /**
@@ -4,10 +4,13 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.shiguang.camera.entity.CameraInventory;
 import com.shiguang.camera.mapper.CameraInventoryMapper;
+import com.shiguang.camera.mapper.CameraInventoryMapper.InventoryQuantities;
 import com.shiguang.camera.service.CameraInventoryService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+
 @Service
 public class CameraInventoryServiceImpl extends ServiceImpl<CameraInventoryMapper, CameraInventory>
         implements CameraInventoryService {
@@ -165,4 +168,31 @@ public class CameraInventoryServiceImpl extends ServiceImpl<CameraInventoryMappe
         inventory.setDamagedQuantity(inventory.getDamagedQuantity() + quantity);
         return updateById(inventory);
     }
-}
\ No newline at end of file
+
+    @Override
+    @Transactional
+    public void applyDeltas(Collection<InventoryQuantities> deltas) {
+        // 使用 BATCH 执行器，多条 UPDATE 一次提交
+        executeBatch(deltas, (sqlSession, delta) ->
+                sqlSession.getMapper(CameraInventoryMapper.class).applyDelta(delta));
+    }
+
+    @Override
+    @Transactional
+    public void overwriteQuantities(InventoryQuantities quantities) {
+        if (baseMapper.overwriteQuantities(quantities) > 0) {
+            return;
+        }
+        CameraInventory inventory = new CameraInventory();
+        inventory.setModelId(quantities.getModelId());
+        inventory.setTotalQuantity(quantities.getTotal());
+        inventory.setAvailableQuantity(quantities.getAvailable());
+        inventory.setReservedQuantity(quantities.getReserved());
+        inventory.setRentedQuantity(quantities.getRented());
+        inventory.setMaintenanceQuantity(quantities.getMaintenance());
+        inventory.setDamagedQuantity(0);
+        inventory.setLowStockThreshold(2);
+        inventory.setReorderPoint(1);
+        save(inventory);
+    }
+}
@@ -5,11 +5,17 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.shiguang.camera.cache.CatalogCache;
+import com.shiguang.camera.cache.FleetStatsSnapshot;
 import com.shiguang.camera.entity.Brand;
 import com.shiguang.camera.entity.CameraModel;
 import com.shiguang.camera.mapper.CameraModelMapper;
+import com.shiguang.camera.search.CatalogSearchIndex;
+import com.shiguang.camera.search.TextIndex;
 import com.shiguang.camera.service.BrandService;
 import com.shiguang.camera.service.CameraModelService;
+import com.shiguang.camera.utils.PageCursor;
+import com.shiguang.camera.vo.CursorPage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -23,9 +29,21 @@ import java.util.Map;
 public class CameraModelServiceImpl extends ServiceImpl<CameraModelMapper, CameraModel>
         implements CameraModelService {
 
+    // 关键词搜索最多返回的型号数
+    private static final int SEARCH_LIMIT = 500;
+
     @Autowired
     private BrandService brandService;
 
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private FleetStatsSnapshot fleetStatsSnapshot;
+
+    @Autowired
+    private CatalogSearchIndex catalogSearchIndex;
+
     @Override
     public List<CameraModel> getAllEnabledModels() {
         return baseMapper.selectEnabledModels();
@@ -41,13 +59,45 @@ public class CameraModelServiceImpl extends ServiceImpl<CameraModelMapper, Camer
         if (keyword == null || keyword.trim().isEmpty()) {
             return getAllEnabledModels();
         }
-        return baseMapper.searchModels(keyword.trim());
+        String keywordTrimmed = keyword.trim();
+        List<Integer> rankedIds = catalogSearchIndex.searchModels(keywordTrimmed, SEARCH_LIMIT);
+        // 索引不可用或没有命中时查数据库（其他节点新增的型号在全量重建前不在本节点索引中）
+        if (rankedIds == null || rankedIds.isEmpty()) {
+            return baseMapper.searchModels(keywordTrimmed);
+        }
+        // 按主键取回，剔除停用的型号以及索引尚未同步的变更
+        return CatalogSearchIndex.inRankOrder(rankedIds, listByIds(rankedIds), CameraModel::getId,
+                model -> Integer.valueOf(1).equals(model.getStatus())
+                        && (TextIndex.matches(model.getName(), keywordTrimmed)
+                        || TextIndex.matches(model.getModel(), keywordTrimmed)
+                        || TextIndex.matches(model.getDescription(), keywordTrimmed)));
     }
 
     @Override
     public IPage<CameraModel> getModelPage(Integer page, Integer size,
                                            Integer brandId, String keyword, Integer status) {
         Page<CameraModel> pageParam = new Page<>(page, size);
+        LambdaQueryWrapper<CameraModel> queryWrapper = buildModelQuery(brandId, keyword, status);
+
+        // 按创建时间倒序
+        queryWrapper.orderByDesc(CameraModel::getCreateTime);
+
+        return page(pageParam, queryWrapper);
+    }
+
+    @Override
+    public CursorPage<CameraModel> getModelCursorPage(String cursor, Integer size, boolean withTotal,
+                                                      Integer brandId, String keyword, Integer status) {
+        Long total = withTotal ? count(buildModelQuery(brandId, keyword, status)) : null;
+        LambdaQueryWrapper<CameraModel> queryWrapper = buildModelQuery(brandId, keyword, status);
+        PageCursor.seek(queryWrapper, cursor, size, CameraModel::getCreateTime, CameraModel::getId);
+        return PageCursor.toPage(list(queryWrapper), size, CameraModel::getCreateTime, CameraModel::getId, total);
+    }
+
+    /**
+     * 型号列表的筛选条件（偏移分页和游标分页共用）
+     */
+    private LambdaQueryWrapper<CameraModel> buildModelQuery(Integer brandId, String keyword, Integer status) {
         LambdaQueryWrapper<CameraModel> queryWrapper = new LambdaQueryWrapper<>();
 
         // 品牌筛选
@@ -62,7 +112,7 @@ public class CameraModelServiceImpl extends ServiceImpl<CameraModelMapper, Camer
             queryWrapper.eq(CameraModel::getStatus, 1); // 默认只查启用的
         }
 
-        // 关键词搜索
+        // 关键词搜索：列表筛选必须完整，直接 LIKE，不用本节点索引限定候选行
         if (keyword != null && !keyword.trim().isEmpty()) {
             String keywordTrimmed = keyword.trim();
             queryWrapper.and(wrapper -> wrapper
@@ -74,10 +124,7 @@ public class CameraModelServiceImpl extends ServiceImpl<CameraModelMapper, Camer
             );
         }
 
-        // 按创建时间倒序
-        queryWrapper.orderByDesc(CameraModel::getCreateTime);
-
-        return page(pageParam, queryWrapper);
+        return queryWrapper;
     }
 
     @Override
@@ -107,7 +154,10 @@ public class CameraModelServiceImpl extends ServiceImpl<CameraModelMapper, Camer
             }
         }
 
-        return save(cameraModel);
+        boolean success = save(cameraModel);
+        catalogCache.invalidateModel(cameraModel.getId());
+        catalogSearchIndex.modelChangedAfterCommit(cameraModel.getId());
+        return success;
     }
 
     @Override
@@ -125,7 +175,10 @@ public class CameraModelServiceImpl extends ServiceImpl<CameraModelMapper, Camer
             }
         }
 
-        return updateById(cameraModel);
+        boolean success = updateById(cameraModel);
+        catalogCache.invalidateModel(cameraModel.getId());
+        catalogSearchIndex.modelChangedAfterCommit(cameraModel.getId());
+        return success;
     }
 
     @Override
@@ -141,39 +194,45 @@ public class CameraModelServiceImpl extends ServiceImpl<CameraModelMapper, Camer
         }
 
         cameraModel.setStatus(status);
-        return updateById(cameraModel);
+        boolean success = updateById(cameraModel);
+        catalogCache.invalidateModel(id);
+        return success;
     }
 
     @Override
-    public CameraModel getModelDetail(Integer id) {
-        CameraModel cameraModel = getById(id);
-        if (cameraModel == null) {
-            return null;
-        }
-
-        // 如果品牌ID存在，查询品牌信息
-        if (cameraModel.getBrandId() != null) {
-            Brand brand = brandService.getById(cameraModel.getBrandId());
-            cameraModel.setBrand(brand);
-        }
+    @Transactional
+    public boolean deleteCameraModel(Integer id) {
+        boolean success = removeById(id);
+        // 预订、下单通过目录缓存读取型号，删除后须立即失效，否则缓存过期前仍可预订
+        catalogCache.invalidateModel(id);
+        catalogSearchIndex.modelChangedAfterCommit(id);
+        return success;
+    }
 
-        return cameraModel;
+    @Override
+    public CameraModel getModelDetail(Integer id) {
+        // 型号及品牌信息均走目录缓存
+        return catalogCache.getModelDetail(id);
     }
 
     @Override
     public Map<String, Object> getModelStats() {
-        // 相机型号总数
-        Long totalModels = lambdaQuery().count();
-
-        // 启用的相机型号数
-        Long enabledModels = lambdaQuery()
-                .eq(CameraModel::getStatus, 1)
-                .count();
-
-        // 停用的相机型号数
-        Long disabledModels = lambdaQuery()
-                .eq(CameraModel::getStatus, 0)
-                .count();
+        // 按状态一次统计型号数
+        long enabledModels = 0;
+        long disabledModels = 0;
+        long totalModels = 0;
+        for (Map<String, Object> row : baseMapper.selectMaps(new QueryWrapper<CameraModel>()
+                .select("status", "COUNT(*) AS count")
+                .groupBy("status"))) {
+            long count = ((Number) row.get("count")).longValue();
+            totalModels += count;
+            Object status = row.get("status");
+            if (status instanceof Number && ((Number) status).intValue() == 1) {
+                enabledModels += count;
+            } else if (status instanceof Number && ((Number) status).intValue() == 0) {
+                disabledModels += count;
+            }
+        }
 
         // 按品牌统计 - 使用Mapper中的自定义方法
         List<Map<String, Object>> brandStats = baseMapper.selectBrandStats();
@@ -183,6 +242,8 @@ public class CameraModelServiceImpl extends ServiceImpl<CameraModelMapper, Camer
         stats.put("enabledModels", enabledModels);
         stats.put("disabledModels", disabledModels);
         stats.put("brandStats", brandStats);
+        // 设备实例统计（快照）
+        stats.put("instanceStats", fleetStatsSnapshot.get(null));
 
         return stats;
     }
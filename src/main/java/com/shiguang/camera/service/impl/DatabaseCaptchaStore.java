@@ -0,0 +1,97 @@
+package com.shiguang.camera.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.shiguang.camera.entity.Captcha;
+import com.shiguang.camera.mapper.CaptchaMapper;
+import com.shiguang.camera.service.CaptchaStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * 基于 captcha 表的验证码存储（app.captcha.store=database），多节点共享
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.captcha.store", havingValue = "database")
+public class DatabaseCaptchaStore implements CaptchaStore {
+
+    private final CaptchaMapper captchaMapper;
+
+    @Override
+    @Transactional
+    public void save(String phone, String type, String code, long ttlSeconds) {
+        LocalDateTime now = LocalDateTime.now();
+
+        // 先使之前的验证码失效
+        UpdateWrapper<Captcha> updateWrapper = new UpdateWrapper<>();
+        updateWrapper.eq("phone", phone)
+                .eq("type", type)
+                .gt("expire_time", now)
+                .set("expire_time", now);
+        captchaMapper.update(null, updateWrapper);
+
+        Captcha captcha = new Captcha();
+        captcha.setPhone(phone);
+        captcha.setCode(code);
+        captcha.setType(type);
+        captcha.setCreateTime(now);
+        captcha.setExpireTime(now.plusSeconds(ttlSeconds));
+        captchaMapper.insert(captcha);
+    }
+
+    @Override
+    @Transactional
+    public boolean consume(String phone, String type, String code) {
+        LocalDateTime now = LocalDateTime.now();
+
+        QueryWrapper<Captcha> queryWrapper = new QueryWrapper<>();
+        queryWrapper.eq("phone", phone)
+                .eq("type", type)
+                .eq("code", code)
+                .gt("expire_time", now)
+                .orderByDesc("create_time")
+                .last("LIMIT 1");
+        Captcha captcha = captchaMapper.selectOne(queryWrapper);
+        if (captcha == null) {
+            return false;
+        }
+
+        // 条件更新：只有仍未过期时才能置为过期，并发校验同一验证码时只有一个成功
+        UpdateWrapper<Captcha> updateWrapper = new UpdateWrapper<>();
+        updateWrapper.eq("id", captcha.getId())
+                .gt("expire_time", now)
+                .set("expire_time", now);
+        return captchaMapper.update(null, updateWrapper) > 0;
+    }
+
+    @Override
+    public Captcha find(String phone, String type) {
+        QueryWrapper<Captcha> queryWrapper = new QueryWrapper<>();
+        queryWrapper.eq("phone", phone)
+                .eq("type", type)
+                .gt("expire_time", LocalDateTime.now())
+                .orderByDesc("create_time")
+                .last("LIMIT 1");
+        return captchaMapper.selectOne(queryWrapper);
+    }
+
+    /**
+     * 定时任务：清理过期验证码（每小时执行一次）
+     */
+    @Scheduled(cron = "0 0 * * * ?")
+    @Transactional
+    public void cleanExpiredCaptchas() {
+        QueryWrapper<Captcha> queryWrapper = new QueryWrapper<>();
+        queryWrapper.lt("expire_time", LocalDateTime.now());
+        int deletedCount = captchaMapper.delete(queryWrapper);
+        log.info("清理过期验证码完成，删除了 {} 条", deletedCount);
+    }
+}
@@ -0,0 +1,169 @@
+package com.shiguang.camera.service.impl;
+
+import com.shiguang.camera.entity.Captcha;
+import com.shiguang.camera.service.CaptchaStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 进程内验证码存储（默认，app.captcha.store=memory）
+ * 验证码保存在 ConcurrentHashMap 中，发送和校验都不写数据库；
+ * 过期条目由哈希时间轮按秒回收：每个条目按过期时间落入对应槽位，时间轮走到该槽位时移除。
+ * 仅适用于单节点或会话粘滞的部署。
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.captcha.store", havingValue = "memory", matchIfMissing = true)
+public class MemoryCaptchaStore implements CaptchaStore {
+
+    // 时间轮每格1秒
+    private static final long TICK_MILLIS = 1000L;
+
+    // 槽位数（2的幂），一圈约8.5分钟，大于验证码有效期，绝大多数条目一圈内回收
+    private static final int WHEEL_SIZE = 512;
+
+    // 手机号:类型 -> 当前验证码
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final ConcurrentLinkedQueue<Timeout>[] wheel;
+
+    // 上次处理到的时间格，仅在 expire() 中访问
+    private long lastTick = System.currentTimeMillis() / TICK_MILLIS;
+
+    @SuppressWarnings("unchecked")
+    public MemoryCaptchaStore() {
+        wheel = new ConcurrentLinkedQueue[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    @Override
+    public void save(String phone, String type, String code, long ttlSeconds) {
+        long now = System.currentTimeMillis();
+        String key = key(phone, type);
+        Entry entry = new Entry(code, now, now + ttlSeconds * 1000);
+        // 直接覆盖，之前的验证码随之失效
+        entries.put(key, entry);
+        schedule(new Timeout(key, entry));
+    }
+
+    @Override
+    public boolean consume(String phone, String type, String code) {
+        String key = key(phone, type);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return false;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            entries.remove(key, entry);
+            return false;
+        }
+        if (!entry.code.equals(code)) {
+            return false;
+        }
+        // 比较并移除：并发校验同一验证码时只有一个成功
+        return entries.remove(key, entry);
+    }
+
+    @Override
+    public Captcha find(String phone, String type) {
+        Entry entry = entries.get(key(phone, type));
+        if (entry == null || entry.isExpired(System.currentTimeMillis())) {
+            return null;
+        }
+        Captcha captcha = new Captcha();
+        captcha.setPhone(phone);
+        captcha.setType(type);
+        captcha.setCode(entry.code);
+        captcha.setCreateTime(toLocalDateTime(entry.createdAt));
+        captcha.setExpireTime(toLocalDateTime(entry.expireAt));
+        return captcha;
+    }
+
+    /**
+     * 推进时间轮，回收已过期的验证码
+     */
+    @Scheduled(fixedDelay = TICK_MILLIS)
+    public synchronized void expire() {
+        long now = System.currentTimeMillis();
+        long currentTick = now / TICK_MILLIS;
+        // 停顿超过一圈时每个槽位处理一次即可
+        long fromTick = Math.max(lastTick + 1, currentTick - WHEEL_SIZE + 1);
+        int removed = 0;
+        for (long tick = fromTick; tick <= currentTick; tick++) {
+            removed += expireSlot(wheel[(int) (tick & (WHEEL_SIZE - 1))], now);
+        }
+        lastTick = currentTick;
+        if (removed > 0) {
+            log.debug("回收过期验证码 {} 条，剩余 {} 条", removed, entries.size());
+        }
+    }
+
+    private int expireSlot(ConcurrentLinkedQueue<Timeout> slot, long now) {
+        int removed = 0;
+        // 只处理本轮开始前已在槽位中的条目，重新入队的留到下一圈
+        for (int i = slot.size(); i > 0; i--) {
+            Timeout timeout = slot.poll();
+            if (timeout == null) {
+                break;
+            }
+            if (timeout.entry.isExpired(now)) {
+                if (entries.remove(timeout.key, timeout.entry)) {
+                    removed++;
+                }
+            } else if (entries.get(timeout.key) == timeout.entry) {
+                slot.add(timeout);
+            }
+        }
+        return removed;
+    }
+
+    private void schedule(Timeout timeout) {
+        // 落入过期时间的下一格，保证处理该槽位时条目已过期
+        long tick = timeout.entry.expireAt / TICK_MILLIS + 1;
+        wheel[(int) (tick & (WHEEL_SIZE - 1))].add(timeout);
+    }
+
+    private static String key(String phone, String type) {
+        return phone + ':' + type;
+    }
+
+    private static LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    private static final class Entry {
+        private final String code;
+        private final long createdAt;
+        private final long expireAt;
+
+        private Entry(String code, long createdAt, long expireAt) {
+            this.code = code;
+            this.createdAt = createdAt;
+            this.expireAt = expireAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expireAt;
+        }
+    }
+
+    private static final class Timeout {
+        private final String key;
+        private final Entry entry;
+
+        private Timeout(String key, Entry entry) {
+            this.key = key;
+            this.entry = entry;
+        }
+    }
+}
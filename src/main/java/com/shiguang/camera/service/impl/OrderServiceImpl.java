@@ -2,13 +2,21 @@ package com.shiguang.camera.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.shiguang.camera.audit.AuditEvent;
+import com.shiguang.camera.audit.AuditEventType;
+import com.shiguang.camera.audit.AuditLog;
+import com.shiguang.camera.cache.CatalogCache;
 import com.shiguang.camera.entity.*;
 import com.shiguang.camera.enums.CameraInstanceStatus;
 import com.shiguang.camera.enums.OrderStatus;
 import com.shiguang.camera.enums.ReservationStatus;
 import com.shiguang.camera.exception.BusinessException;
+import com.shiguang.camera.loader.RelationLoader;
 import com.shiguang.camera.mapper.*;
 import com.shiguang.camera.service.*;
+import com.shiguang.camera.utils.IdGenerator;
+import com.shiguang.camera.utils.PageCursor;
+import com.shiguang.camera.vo.CursorPage;
 import com.shiguang.camera.vo.CreateOrderVO;
 import com.shiguang.camera.vo.ReturnDeviceVO;
 import lombok.RequiredArgsConstructor;
@@ -20,8 +28,8 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.Collections;
 import java.util.List;
-import java.util.Random;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -32,12 +40,15 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
     private final OrderMapper orderMapper;
     private final ReservationMapper reservationMapper;
     private final CameraInstanceMapper cameraInstanceMapper;
-    private final CameraModelMapper cameraModelMapper;
+    private final CatalogCache catalogCache;
     private final ReservationInstancesMapper reservationInstancesMapper;
     private final UserMapper userMapper;
     private final PaymentMapper paymentMapper;
+    private final IdGenerator idGenerator;
+    private final AuditLog auditLog;
+    private final InventoryProjection inventoryProjection;
+    private final RelationLoader relationLoader;
 
-    private final Random random = new Random();
 
     @Override
     @Transactional(rollbackFor = Exception.class)
@@ -74,7 +85,7 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
         }
 
         // 5. 获取设备型号信息
-        CameraModel cameraModel = cameraModelMapper.selectById(reservation.getModelId());
+        CameraModel cameraModel = catalogCache.getModel(reservation.getModelId());
         if (cameraModel == null) {
             throw new BusinessException("设备型号不存在");
         }
@@ -84,7 +95,7 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
 
         // 7. 创建订单
         Order order = new Order();
-        order.setOrderNo(generateOrderNo());
+        order.setOrderNo(idGenerator.nextOrderNo());
         order.setUserId(vo.getUserId());
         order.setRealName(realName);
         order.setIdCard(idCard);
@@ -130,10 +141,12 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
         paymentMapper.updateById(payment);
 
         // 11. 更新设备实例状态：从预占中(5)改为已预订(1)
-        updateCameraInstanceStatus(reservation.getId(), CameraInstanceStatus.PRE_RESERVED.getCode(),
+        updateCameraInstanceStatus(reservation, CameraInstanceStatus.PRE_RESERVED.getCode(),
                 CameraInstanceStatus.RESERVED.getCode());
 
         log.info("创建订单成功，订单号：{}，预订ID：{}，用户：{}", order.getOrderNo(), reservation.getId(), vo.getUserId());
+        auditLog.publishAfterCommit(new AuditEvent(AuditEventType.ORDER_CREATED, vo.getUserId(), order.getId(),
+                order.getTotalPrice(), "orderNo=" + order.getOrderNo() + ",reservation=" + reservation.getId()));
 
         return order;
     }
@@ -176,11 +189,12 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
             // 更新设备实例状态：从已预订(1)改为租赁中(2)
             Reservation reservation = reservationMapper.selectById(order.getReservationId());
             if (reservation != null) {
-                updateCameraInstanceStatus(reservation.getId(), CameraInstanceStatus.RESERVED.getCode(),
+                updateCameraInstanceStatus(reservation, CameraInstanceStatus.RESERVED.getCode(),
                         CameraInstanceStatus.RENTING.getCode());
             }
 
             log.info("管理员 {} 确认订单 {} 取货", adminId, orderId);
+            auditLog.publishAfterCommit(new AuditEvent(AuditEventType.ORDER_PICKUP, adminId, orderId));
         }
 
         return updated;
@@ -222,12 +236,14 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
             // 更新设备实例状态：从租赁中(2)改为可用(0)
             Reservation reservation = reservationMapper.selectById(order.getReservationId());
             if (reservation != null) {
-                updateCameraInstanceStatus(reservation.getId(), CameraInstanceStatus.RENTING.getCode(),
+                updateCameraInstanceStatus(reservation, CameraInstanceStatus.RENTING.getCode(),
                         CameraInstanceStatus.AVAILABLE.getCode());
             }
 
             log.info("管理员 {} 确认订单 {} 归还，实际归还日期：{}，损坏费用：{}，退款金额：{}",
                     adminId, orderId, actualReturnDate, damageFee, refundAmount);
+            auditLog.publishAfterCommit(new AuditEvent(AuditEventType.ORDER_RETURN, adminId, orderId,
+                    refundAmount, "returnDate=" + actualReturnDate + ",damageFee=" + damageFee));
         }
 
         return updated;
@@ -255,11 +271,12 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
             // 更新设备实例状态：从已预订(1)改为可用(0)
             Reservation reservation = reservationMapper.selectById(order.getReservationId());
             if (reservation != null) {
-                updateCameraInstanceStatus(reservation.getId(), CameraInstanceStatus.RESERVED.getCode(),
+                updateCameraInstanceStatus(reservation, CameraInstanceStatus.RESERVED.getCode(),
                         CameraInstanceStatus.AVAILABLE.getCode());
             }
 
             log.info("订单 {} 已取消，原因：{}", orderId, reason);
+            auditLog.publishAfterCommit(new AuditEvent(AuditEventType.ORDER_CANCELLED, null, orderId, null, reason));
         }
 
         return updated;
@@ -267,7 +284,9 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
 
     @Override
     public List<Order> getUserOrders(Integer userId) {
-        return orderMapper.selectByUserId(userId);
+        List<Order> orders = orderMapper.selectByUserId(userId);
+        relationLoader.hydrateOrders(orders);
+        return orders;
     }
 
     @Override
@@ -278,16 +297,7 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
         }
 
         // 加载关联信息
-        if (order.getReservationId() != null) {
-            Reservation reservation = reservationMapper.selectById(order.getReservationId());
-            order.setReservation(reservation);
-        }
-
-        if (order.getModelId() != null) {
-            CameraModel cameraModel = cameraModelMapper.selectById(order.getModelId());
-            order.setCameraModel(cameraModel);
-        }
-
+        relationLoader.hydrateOrders(Collections.singletonList(order));
         return order;
     }
 
@@ -340,46 +350,26 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
     }
 
     /**
-     * 更新设备实例状态
-     */
-    private void updateCameraInstanceStatus(Integer reservationId, Integer fromStatus, Integer toStatus) {
-        // 获取预订关联的设备实例
-        List<ReservationInstances> reservationInstances = reservationInstancesMapper.selectList(
-                new LambdaQueryWrapper<ReservationInstances>()
-                        .eq(ReservationInstances::getReservationId, reservationId)
-        );
-
-        for (ReservationInstances ri : reservationInstances) {
-            CameraInstance instance = cameraInstanceMapper.selectById(ri.getInstanceId());
-            if (instance != null && instance.getStatus().equals(fromStatus)) {
-                instance.setStatus(toStatus);
-                cameraInstanceMapper.updateById(instance);
-            }
-        }
-    }
-
-    /**
-     * 生成订单号：ORD + 年月日时分秒 + 4位随机数
+     * 更新设备实例状态（单条语句批量转换，仅转换处于 fromStatus 的实例）
      */
-    private String generateOrderNo() {
-        String timeStr = LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        int randomNum = random.nextInt(10000);
-        return "ORD" + timeStr + String.format("%04d", randomNum);
+    private void updateCameraInstanceStatus(Reservation reservation, Integer fromStatus, Integer toStatus) {
+        int updated = cameraInstanceMapper.transitionStatus(reservation.getId(), fromStatus, toStatus);
+        inventoryProjection.recordTransition(reservation.getModelId(), fromStatus, toStatus, updated);
+        log.debug("预订 {} 的设备实例状态 {} -> {}，更新 {} 台", reservation.getId(), fromStatus, toStatus, updated);
     }
 
-    /**
-     * 获取所有订单（管理员专用）
-     */
     @Override
-    public List<Order> getAllOrders(Integer status) {
+    public CursorPage<Order> getOrderCursorPage(Integer status, String cursor, Integer size, boolean withTotal) {
         LambdaQueryWrapper<Order> queryWrapper = new LambdaQueryWrapper<>();
-
         if (status != null) {
             queryWrapper.eq(Order::getStatus, status);
         }
+        Long total = withTotal ? this.count(queryWrapper) : null;
 
-        queryWrapper.orderByDesc(Order::getCreateTime);
-        return this.list(queryWrapper);
+        PageCursor.seek(queryWrapper, cursor, size, Order::getCreateTime, Order::getId);
+        CursorPage<Order> page = PageCursor.toPage(this.list(queryWrapper), size, Order::getCreateTime, Order::getId, total);
+        relationLoader.hydrateOrders(page.getRecords());
+        return page;
     }
 
 }
\ No newline at end of file
@@ -2,10 +2,11 @@ package com.shiguang.camera.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
-import com.shiguang.camera.entity.CameraInstance;
+import com.shiguang.camera.audit.AuditEvent;
+import com.shiguang.camera.audit.AuditEventType;
+import com.shiguang.camera.audit.AuditLog;
 import com.shiguang.camera.entity.Payment;
 import com.shiguang.camera.entity.Reservation;
-import com.shiguang.camera.entity.ReservationInstances;
 import com.shiguang.camera.entity.User;
 import com.shiguang.camera.enums.CameraInstanceStatus;
 import com.shiguang.camera.enums.PaymentStatus;
@@ -13,13 +14,14 @@ import com.shiguang.camera.enums.ReservationStatus;
 import com.shiguang.camera.exception.BusinessException;
 import com.shiguang.camera.mapper.CameraInstanceMapper;
 import com.shiguang.camera.mapper.PaymentMapper;
-import com.shiguang.camera.mapper.ReservationInstancesMapper;
 import com.shiguang.camera.mapper.ReservationMapper;
+import com.shiguang.camera.service.AvailabilityCalendar;
+import com.shiguang.camera.service.InventoryProjection;
 import com.shiguang.camera.service.OrderService;
 import com.shiguang.camera.service.PaymentService;
-import com.shiguang.camera.service.ReservationInstancesService;
 import com.shiguang.camera.service.ReservationService;
 import com.shiguang.camera.service.UserService;
+import com.shiguang.camera.utils.IdGenerator;
 import com.shiguang.camera.vo.CreatePaymentVO;
 import com.shiguang.camera.vo.PaymentResultVO;
 import lombok.RequiredArgsConstructor;
@@ -30,8 +32,6 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.List;
 import java.util.Random;
 
 @Slf4j
@@ -45,14 +45,16 @@ public class PaymentServiceImpl extends ServiceImpl<PaymentMapper, Payment> impl
     private final UserService userService;
     private final OrderService orderService;
     // 新增必要依赖注入，支持设备实例释放逻辑
-    private final ReservationInstancesService reservationInstancesService;
     private final CameraInstanceMapper cameraInstanceMapper;
+    private final AvailabilityCalendar availabilityCalendar;
+    private final IdGenerator idGenerator;
+    private final AuditLog auditLog;
+    private final InventoryProjection inventoryProjection;
 
     @Value("${app.payment.success-rate:100}")
     private Integer paymentSuccessRate;
 
     private final Random random = new Random();
-    private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
 
     @Override
     @Transactional(rollbackFor = Exception.class)
@@ -93,7 +95,7 @@ public class PaymentServiceImpl extends ServiceImpl<PaymentMapper, Payment> impl
 
         // 7. 创建支付记录
         Payment payment = new Payment();
-        payment.setPaymentNo(generatePaymentNo());
+        payment.setPaymentNo(idGenerator.nextPaymentNo());
         payment.setUserId(userId);
         payment.setReservationId(vo.getReservationId());
         payment.setAmount(amount);
@@ -114,6 +116,8 @@ public class PaymentServiceImpl extends ServiceImpl<PaymentMapper, Payment> impl
 
         log.info("用户 {} 为预订 {} 创建支付记录，支付单号：{}，金额：{}",
                 userId, vo.getReservationId(), payment.getPaymentNo(), amount);
+        auditLog.publishAfterCommit(new AuditEvent(AuditEventType.PAYMENT_CREATED, userId, payment.getId(),
+                amount, "paymentNo=" + payment.getPaymentNo() + ",reservation=" + vo.getReservationId()));
 
         return payment;
     }
@@ -146,7 +150,7 @@ public class PaymentServiceImpl extends ServiceImpl<PaymentMapper, Payment> impl
             // 支付成功
             payment.setStatus(PaymentStatus.WAITING_CONFIRM.getCode());
             payment.setPaidTime(LocalDateTime.now());
-            payment.setTransactionNo(generateTransactionNo());
+            payment.setTransactionNo(idGenerator.nextTransactionNo());
             this.updateById(payment);
 
             result.setSuccess(true);
@@ -155,6 +159,8 @@ public class PaymentServiceImpl extends ServiceImpl<PaymentMapper, Payment> impl
             result.setStatus(payment.getStatus());
 
             log.info("支付成功，支付单号：{}，交易号：{}", payment.getPaymentNo(), payment.getTransactionNo());
+            auditLog.publishAfterCommit(new AuditEvent(AuditEventType.PAYMENT_SUCCEEDED, payment.getUserId(), paymentId,
+                    payment.getAmount(), "transactionNo=" + payment.getTransactionNo()));
         } else {
             // 支付失败
             payment.setStatus(PaymentStatus.REJECTED.getCode());
@@ -201,6 +207,8 @@ public class PaymentServiceImpl extends ServiceImpl<PaymentMapper, Payment> impl
         boolean updated = this.updateById(payment);
         if (updated) {
             log.info("管理员 {} 确认支付 {}，支付单号：{}", adminId, paymentId, payment.getPaymentNo());
+            auditLog.publishAfterCommit(new AuditEvent(AuditEventType.PAYMENT_CONFIRMED, adminId, paymentId,
+                    payment.getAmount(), "paymentNo=" + payment.getPaymentNo()));
 
             try {
                 // 触发订单创建
@@ -244,6 +252,8 @@ public class PaymentServiceImpl extends ServiceImpl<PaymentMapper, Payment> impl
         boolean updated = this.updateById(payment);
         if (updated) {
             log.info("管理员 {} 拒绝支付 {}，原因：{}，支付单号：{}", adminId, paymentId, reason, payment.getPaymentNo());
+            auditLog.publishAfterCommit(new AuditEvent(AuditEventType.PAYMENT_REJECTED, adminId, paymentId,
+                    payment.getAmount(), reason));
 
             // 获取预订信息
             Reservation reservation = reservationService.getById(payment.getReservationId());
@@ -251,9 +261,10 @@ public class PaymentServiceImpl extends ServiceImpl<PaymentMapper, Payment> impl
                 // 将预订状态改为已取消
                 reservation.setStatus(ReservationStatus.已取消.getCode());
                 reservationService.updateById(reservation);
+                availabilityCalendar.releaseAfterCommit(reservation.getId());
 
                 // 释放预占的设备实例（状态5→0）
-                releasePreReservedInstances(reservation.getId());
+                releasePreReservedInstances(reservation);
             }
         }
 
@@ -263,18 +274,12 @@ public class PaymentServiceImpl extends ServiceImpl<PaymentMapper, Payment> impl
     /**
      * 释放预占的设备实例
      */
-    private void releasePreReservedInstances(Integer reservationId) {
-        // 获取预订关联的设备实例
-        List<ReservationInstances> reservationInstances = reservationInstancesService.getByReservationId(reservationId);
-
-        for (ReservationInstances ri : reservationInstances) {
-            CameraInstance instance = cameraInstanceMapper.selectById(ri.getInstanceId());
-            if (instance != null && instance.getStatus() == CameraInstanceStatus.PRE_RESERVED.getCode()) {
-                instance.setStatus(CameraInstanceStatus.AVAILABLE.getCode());
-                cameraInstanceMapper.updateById(instance);
-                log.info("释放预占设备实例：{}，预订ID：{}", instance.getId(), reservationId);
-            }
-        }
+    private void releasePreReservedInstances(Reservation reservation) {
+        int released = cameraInstanceMapper.transitionStatus(reservation.getId(),
+                CameraInstanceStatus.PRE_RESERVED.getCode(), CameraInstanceStatus.AVAILABLE.getCode());
+        inventoryProjection.recordTransition(reservation.getModelId(),
+                CameraInstanceStatus.PRE_RESERVED.getCode(), CameraInstanceStatus.AVAILABLE.getCode(), released);
+        log.info("释放预占设备实例 {} 台，预订ID：{}", released, reservation.getId());
     }
 
     @Override
@@ -290,22 +295,4 @@ public class PaymentServiceImpl extends ServiceImpl<PaymentMapper, Payment> impl
         // 这里先返回null，后续实现
         return null;
     }
-
-    /**
-     * 生成支付单号：PAY + 年月日时分秒 + 4位随机数
-     */
-    private String generatePaymentNo() {
-        String timeStr = LocalDateTime.now().format(formatter);
-        int randomNum = random.nextInt(10000);
-        return "PAY" + timeStr + String.format("%04d", randomNum);
-    }
-
-    /**
-     * 生成模拟交易号
-     */
-    private String generateTransactionNo() {
-        String timeStr = LocalDateTime.now().format(formatter);
-        int randomNum = random.nextInt(1000000);
-        return "TXN" + timeStr + String.format("%06d", randomNum);
-    }
-}
\ No newline at end of file
+}
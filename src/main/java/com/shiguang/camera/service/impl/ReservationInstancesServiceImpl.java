@@ -2,14 +2,16 @@ package com.shiguang.camera.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.shiguang.camera.common.ResultCode;
 import com.shiguang.camera.entity.ReservationInstances;
+import com.shiguang.camera.exception.BusinessException;
 import com.shiguang.camera.mapper.ReservationInstancesMapper;
 import com.shiguang.camera.service.ReservationInstancesService;
+import com.shiguang.camera.utils.BatchWriter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -19,18 +21,13 @@ public class ReservationInstancesServiceImpl extends ServiceImpl<ReservationInst
     private final ReservationInstancesMapper reservationInstancesMapper;
 
     @Override
-    public boolean batchCreate(Integer reservationId, List<Integer> instanceIds) {
-        try {
-            for (Integer instanceId : instanceIds) {
-                ReservationInstances ri = new ReservationInstances();
-                ri.setReservationId(reservationId);
-                ri.setInstanceId(instanceId);
-                reservationInstancesMapper.insert(ri);
-            }
-            return true;
-        } catch (Exception e) {
-            return false;
+    public void batchCreate(Integer reservationId, List<Integer> instanceIds) {
+        if (reservationId == null || instanceIds == null || instanceIds.isEmpty()) {
+            throw new BusinessException(ResultCode.BAD_REQUEST.getCode(), "预订ID和设备实例不能为空");
         }
+        BatchWriter.writeAll(instanceIds,
+                chunk -> reservationInstancesMapper.insertBatch(reservationId, chunk),
+                "创建预订设备关联失败");
     }
 
     @Override
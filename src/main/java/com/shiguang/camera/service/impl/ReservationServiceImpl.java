@@ -2,7 +2,10 @@ package com.shiguang.camera.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
-import com.shiguang.camera.entity.CameraInstance;
+import com.shiguang.camera.audit.AuditEvent;
+import com.shiguang.camera.audit.AuditEventType;
+import com.shiguang.camera.audit.AuditLog;
+import com.shiguang.camera.cache.CatalogCache;
 import com.shiguang.camera.entity.CameraModel;
 import com.shiguang.camera.entity.Payment;
 import com.shiguang.camera.entity.Reservation;
@@ -12,14 +15,19 @@ import com.shiguang.camera.enums.CameraInstanceStatus;
 import com.shiguang.camera.enums.PaymentStatus;
 import com.shiguang.camera.enums.ReservationStatus;
 import com.shiguang.camera.exception.BusinessException;
+import com.shiguang.camera.loader.RelationLoader;
 import com.shiguang.camera.mapper.CameraInstanceMapper;
 import com.shiguang.camera.mapper.PaymentMapper;
 import com.shiguang.camera.mapper.ReservationInstancesMapper;
 import com.shiguang.camera.mapper.ReservationMapper;
-import com.shiguang.camera.service.CameraModelService;
+import com.shiguang.camera.service.AvailabilityCalendar;
+import com.shiguang.camera.service.InstanceAllocator;
+import com.shiguang.camera.service.InventoryProjection;
 import com.shiguang.camera.service.ReservationInstancesService;
 import com.shiguang.camera.service.ReservationService;
 import com.shiguang.camera.service.UserService;
+import com.shiguang.camera.task.ReservationExpiryQueue;
+import com.shiguang.camera.utils.PriceUtils;
 import com.shiguang.camera.vo.ReservationCreateVO;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -27,12 +35,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -43,11 +50,17 @@ public class ReservationServiceImpl extends ServiceImpl<ReservationMapper, Reser
 
     private final ReservationMapper reservationMapper;
     private final CameraInstanceMapper cameraInstanceMapper;
-    private final CameraModelService cameraModelService;
+    private final CatalogCache catalogCache;
     private final UserService userService;
     private final ReservationInstancesService reservationInstancesService;
     private final ReservationInstancesMapper reservationInstancesMapper;
     private final PaymentMapper paymentMapper;
+    private final AvailabilityCalendar availabilityCalendar;
+    private final InstanceAllocator instanceAllocator;
+    private final ReservationExpiryQueue reservationExpiryQueue;
+    private final AuditLog auditLog;
+    private final InventoryProjection inventoryProjection;
+    private final RelationLoader relationLoader;
 
     @Override
     @Transactional(rollbackFor = Exception.class)
@@ -64,7 +77,7 @@ public class ReservationServiceImpl extends ServiceImpl<ReservationMapper, Reser
         }
 
         // 3. 验证设备型号是否存在
-        CameraModel cameraModel = cameraModelService.getById(vo.getModelId());
+        CameraModel cameraModel = catalogCache.getModel(vo.getModelId());
         if (cameraModel == null) {
             throw new BusinessException("设备型号不存在");
         }
@@ -74,19 +87,13 @@ public class ReservationServiceImpl extends ServiceImpl<ReservationMapper, Reser
             throw new BusinessException("设备型号当前不可用");
         }
 
-        // 5. 检查可用设备实例数量
-        List<CameraInstance> availableInstances = cameraInstanceMapper.selectAvailableByModelId(vo.getModelId());
-        if (availableInstances.size() < vo.getQuantity()) {
-            throw new BusinessException("可用设备数量不足，当前可用：" + availableInstances.size());
-        }
-
-        // 6. 检查时间冲突
+        // 5. 检查时间冲突
         if (checkTimeConflict(vo.getModelId(), vo.getStartDate(), vo.getEndDate(),
                 vo.getStartTime(), vo.getEndTime(), null)) {
             throw new BusinessException("该时间段已被预订");
         }
 
-        // 7. 验证时间逻辑
+        // 6. 验证时间逻辑
         if (vo.getStartDate().isAfter(vo.getEndDate())) {
             throw new BusinessException("开始日期不能晚于结束日期");
         }
@@ -96,24 +103,17 @@ public class ReservationServiceImpl extends ServiceImpl<ReservationMapper, Reser
             throw new BusinessException("开始时间不能晚于结束时间");
         }
 
-        // 8. 分配具体设备实例并更新状态
-        List<Integer> assignedInstanceIds = new ArrayList<>();
-        for (int i = 0; i < vo.getQuantity(); i++) {
-            CameraInstance instance = availableInstances.get(i);
-            instance.setStatus(CameraInstanceStatus.PRE_RESERVED.getCode()); // 5-预占中
-            cameraInstanceMapper.updateById(instance);
-            assignedInstanceIds.add(instance.getId());
-        }
+        // 7. 原子占用具体设备实例（0-可用 → 5-预占中），数量不足时抛出异常
+        List<Integer> assignedInstanceIds = instanceAllocator.claim(vo.getModelId(), vo.getQuantity());
 
-        // 9. 计算价格
-        long days = ChronoUnit.DAYS.between(vo.getStartDate(), vo.getEndDate()) + 1;
+        // 8. 计算价格
+        long days = PriceUtils.rentalDays(vo.getStartDate(), vo.getEndDate());
         BigDecimal dailyPrice = cameraModel.getDailyPrice();
         BigDecimal deposit = cameraModel.getDeposit();
-        BigDecimal rentalAmount = dailyPrice.multiply(BigDecimal.valueOf(days))
-                .setScale(2, RoundingMode.HALF_UP);
-        BigDecimal totalAmount = rentalAmount.add(deposit).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal rentalAmount = PriceUtils.rentalAmount(dailyPrice, days);
+        BigDecimal totalAmount = PriceUtils.totalAmount(rentalAmount, deposit);
 
-        // 10. 创建预订记录
+        // 9. 创建预订记录
         Reservation reservation = new Reservation();
         reservation.setModelId(vo.getModelId());
         reservation.setUserId(userId);
@@ -123,7 +123,8 @@ public class ReservationServiceImpl extends ServiceImpl<ReservationMapper, Reser
         reservation.setStartTime(vo.getStartTime());
         reservation.setEndTime(vo.getEndTime());
         reservation.setStatus(ReservationStatus.已预订.getCode());
-        reservation.setExpiresAt(LocalDateTime.now().plusHours(2));
+        // 截到秒：DATETIME 会把小数秒进位，内存中的到期时间须与库中一致，过期条件才能命中
+        reservation.setExpiresAt(LocalDateTime.now().plusHours(2).truncatedTo(ChronoUnit.SECONDS));
         reservation.setNotes(vo.getNotes());
         reservation.setDailyPrice(dailyPrice);
         reservation.setRentalAmount(rentalAmount);
@@ -133,25 +134,21 @@ public class ReservationServiceImpl extends ServiceImpl<ReservationMapper, Reser
         boolean saved = this.save(reservation);
 
         if (!saved) {
-            // 如果保存失败，需要恢复设备实例状态
-            for (Integer instanceId : assignedInstanceIds) {
-                CameraInstance instance = cameraInstanceMapper.selectById(instanceId);
-                if (instance != null) {
-                    instance.setStatus(CameraInstanceStatus.AVAILABLE.getCode());
-                    cameraInstanceMapper.updateById(instance);
-                }
-            }
+            // 抛出异常后事务回滚，已占用的设备实例状态随之恢复
             throw new BusinessException("预订创建失败");
         }
 
-        // 11. 创建预订与设备实例的关联记录
-        boolean associationsCreated = reservationInstancesService.batchCreate(reservation.getId(), assignedInstanceIds);
-        if (!associationsCreated) {
-            throw new BusinessException("创建预订设备关联失败");
-        }
+        // 10. 创建预订与设备实例的关联记录（一条多值 INSERT，失败时异常抛出并回滚事务）
+        reservationInstancesService.batchCreate(reservation.getId(), assignedInstanceIds);
+
+        // 11. 登记到预订占用日历和过期队列（事务提交后生效）
+        availabilityCalendar.bookAfterCommit(reservation);
+        reservationExpiryQueue.registerAfterCommit(reservation.getId(), reservation.getExpiresAt());
 
         log.info("用户 {} 创建了预订 {}, 设备型号: {}, 数量: {}, 分配的设备实例: {}",
                 userId, reservation.getId(), vo.getModelId(), vo.getQuantity(), assignedInstanceIds);
+        auditLog.publishAfterCommit(new AuditEvent(AuditEventType.RESERVATION_CREATED, userId, reservation.getId(),
+                reservation.getTotalAmount(), "model=" + vo.getModelId() + ",instances=" + assignedInstanceIds));
 
         return reservation;
     }
@@ -180,13 +177,7 @@ public class ReservationServiceImpl extends ServiceImpl<ReservationMapper, Reser
         }
 
         // 更新分配的设备实例状态：从预占中(5)转为已预订(1)
-        for (ReservationInstances ri : reservationInstances) {
-            CameraInstance instance = cameraInstanceMapper.selectById(ri.getInstanceId());
-            if (instance != null) {
-                instance.setStatus(CameraInstanceStatus.RESERVED.getCode()); // 1-已预订
-                cameraInstanceMapper.updateById(instance);
-            }
-        }
+        transitionInstances(reservation, CameraInstanceStatus.PRE_RESERVED, CameraInstanceStatus.RESERVED);
 
         // 更新状态为已确认
         reservation.setStatus(ReservationStatus.已确认.getCode());
@@ -198,6 +189,7 @@ public class ReservationServiceImpl extends ServiceImpl<ReservationMapper, Reser
                     .collect(Collectors.toList());
             log.info("管理员 {} 确认了预订 {}, 设备实例: {}",
                     adminId, reservationId, instanceIds);
+            auditLog.publishAfterCommit(new AuditEvent(AuditEventType.RESERVATION_CONFIRMED, adminId, reservationId));
             return true;
         }
 
@@ -224,24 +216,13 @@ public class ReservationServiceImpl extends ServiceImpl<ReservationMapper, Reser
             throw new BusinessException("该预订无法取消");
         }
 
-        // 获取预订关联的设备实例
-        List<ReservationInstances> reservationInstances = reservationInstancesService.getByReservationId(reservationId);
-
         // 恢复设备实例状态
-        if (!reservationInstances.isEmpty()) {
-            for (ReservationInstances ri : reservationInstances) {
-                CameraInstance instance = cameraInstanceMapper.selectById(ri.getInstanceId());
-                if (instance != null) {
-                    if (status == ReservationStatus.已预订.getCode()) {
-                        // 预占中 → 可用
-                        instance.setStatus(CameraInstanceStatus.AVAILABLE.getCode());
-                    } else if (status == ReservationStatus.已确认.getCode()) {
-                        // 已预订 → 可用
-                        instance.setStatus(CameraInstanceStatus.AVAILABLE.getCode());
-                    }
-                    cameraInstanceMapper.updateById(instance);
-                }
-            }
+        if (status == ReservationStatus.已预订.getCode()) {
+            // 预占中 → 可用
+            transitionInstances(reservation, CameraInstanceStatus.PRE_RESERVED, CameraInstanceStatus.AVAILABLE);
+        } else if (status == ReservationStatus.已确认.getCode()) {
+            // 已预订 → 可用
+            transitionInstances(reservation, CameraInstanceStatus.RESERVED, CameraInstanceStatus.AVAILABLE);
         }
 
         // 更新状态为已取消
@@ -249,7 +230,9 @@ public class ReservationServiceImpl extends ServiceImpl<ReservationMapper, Reser
         boolean updated = this.updateById(reservation);
 
         if (updated) {
+            availabilityCalendar.releaseAfterCommit(reservationId);
             log.info("用户 {} 取消了预订 {}", userId, reservationId);
+            auditLog.publishAfterCommit(new AuditEvent(AuditEventType.RESERVATION_CANCELLED, userId, reservationId));
             return true;
         }
 
@@ -268,49 +251,67 @@ public class ReservationServiceImpl extends ServiceImpl<ReservationMapper, Reser
             throw new BusinessException("只有已确认的预订才能完成");
         }
 
-        // 获取预订关联的设备实例
-        List<ReservationInstances> reservationInstances = reservationInstancesService.getByReservationId(reservationId);
-
         // 更新设备实例状态：从已预订(1)转为可用(0)
-        if (!reservationInstances.isEmpty()) {
-            for (ReservationInstances ri : reservationInstances) {
-                CameraInstance instance = cameraInstanceMapper.selectById(ri.getInstanceId());
-                if (instance != null) {
-                    instance.setStatus(CameraInstanceStatus.AVAILABLE.getCode());
-                    cameraInstanceMapper.updateById(instance);
-                }
-            }
-        }
+        transitionInstances(reservation, CameraInstanceStatus.RESERVED, CameraInstanceStatus.AVAILABLE);
 
         reservation.setStatus(ReservationStatus.已完成.getCode());
         boolean updated = this.updateById(reservation);
 
         if (updated) {
+            availabilityCalendar.releaseAfterCommit(reservationId);
             log.info("管理员 {} 完成了预订 {}", adminId, reservationId);
+            auditLog.publishAfterCommit(new AuditEvent(AuditEventType.RESERVATION_COMPLETED, adminId, reservationId));
             return true;
         }
 
         return false;
     }
 
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean expireReservation(Integer reservationId) {
+        // 条件更新：仅当仍为已预订且已过期时取消，避免与支付确认并发冲突
+        boolean expired = this.lambdaUpdate()
+                .eq(Reservation::getId, reservationId)
+                .eq(Reservation::getStatus, ReservationStatus.已预订.getCode())
+                .le(Reservation::getExpiresAt, LocalDateTime.now())
+                .set(Reservation::getStatus, ReservationStatus.已取消.getCode())
+                .update();
+        if (!expired) {
+            return false;
+        }
+
+        // 将该预订关联的设备实例状态从5（预占中）改为0（可用）
+        int released = transitionInstances(this.getById(reservationId),
+                CameraInstanceStatus.PRE_RESERVED, CameraInstanceStatus.AVAILABLE);
+        availabilityCalendar.releaseAfterCommit(reservationId);
+
+        log.info("自动取消过期预订 {}，释放设备实例 {} 台", reservationId, released);
+        auditLog.publishAfterCommit(new AuditEvent(AuditEventType.RESERVATION_EXPIRED, null, reservationId));
+        return true;
+    }
+
+    /**
+     * 转换预订关联设备实例的状态，并计入库存投影
+     * @return 实际转换的实例数量
+     */
+    private int transitionInstances(Reservation reservation, CameraInstanceStatus from, CameraInstanceStatus to) {
+        int moved = cameraInstanceMapper.transitionStatus(reservation.getId(), from.getCode(), to.getCode());
+        inventoryProjection.recordTransition(reservation.getModelId(), from.getCode(), to.getCode(), moved);
+        return moved;
+    }
+
     @Override
     public boolean checkTimeConflict(Integer modelId, LocalDate startDate, LocalDate endDate,
                                      LocalTime startTime, LocalTime endTime, Integer excludeId) {
-        // 检查时间段内该型号的已预订设备数量
-        Integer conflictQuantity = reservationMapper.checkTimeConflict(
-                modelId, startDate, endDate, startTime, endTime, excludeId
-        );
-
-        if (conflictQuantity == null) {
+        // 检查时间段内该型号单日已预订数量的最大值（优先使用内存日历，不可用时按同样口径查数据库）
+        int conflictQuantity = availabilityCalendar.peakBookedQuantity(modelId, startDate, endDate, excludeId);
+        if (conflictQuantity == 0) {
             return false;
         }
 
         // 获取该型号的总设备实例数量（排除已下架的）
-        Long totalInstances = cameraInstanceMapper.selectCount(
-                new LambdaQueryWrapper<CameraInstance>()
-                        .eq(CameraInstance::getModelId, modelId)
-                        .ne(CameraInstance::getStatus, CameraInstanceStatus.OFFLINE.getCode())
-        );
+        Long totalInstances = availabilityCalendar.capacity(modelId);
 
         if (totalInstances == null || totalInstances == 0) {
             throw new BusinessException("设备型号不存在或无可用设备");
@@ -324,26 +325,18 @@ public class ReservationServiceImpl extends ServiceImpl<ReservationMapper, Reser
     public boolean checkInventory(Integer modelId, Integer quantity,
                                   LocalDate startDate, LocalDate endDate) {
         // 获取可用设备实例数量
-        List<CameraInstance> availableInstances = cameraInstanceMapper.selectAvailableByModelId(modelId);
-        int availableQuantity = availableInstances != null ? availableInstances.size() : 0;
+        long availableQuantity = cameraInstanceMapper.countByModelIdAndStatus(modelId, CameraInstanceStatus.AVAILABLE.getCode());
 
         // 检查可用库存是否足够
         if (availableQuantity < quantity) {
             return false;
         }
 
-        // 还要检查时间段的库存
-        Integer bookedQuantity = reservationMapper.getBookedQuantity(modelId, startDate, endDate);
-        if (bookedQuantity == null) {
-            bookedQuantity = 0;
-        }
+        // 还要检查时间段的库存（取时间段内单日已预订数量的最大值）
+        int bookedQuantity = availabilityCalendar.peakBookedQuantity(modelId, startDate, endDate, null);
 
         // 获取总设备实例数量（排除已下架的）
-        Long totalInstances = cameraInstanceMapper.selectCount(
-                new LambdaQueryWrapper<CameraInstance>()
-                        .eq(CameraInstance::getModelId, modelId)
-                        .ne(CameraInstance::getStatus, CameraInstanceStatus.OFFLINE.getCode())
-        );
+        Long totalInstances = availabilityCalendar.capacity(modelId);
 
         if (totalInstances == null || totalInstances == 0) {
             throw new BusinessException("设备型号不存在或无可用设备");
@@ -358,7 +351,9 @@ public class ReservationServiceImpl extends ServiceImpl<ReservationMapper, Reser
         LambdaQueryWrapper<Reservation> queryWrapper = new LambdaQueryWrapper<>();
         queryWrapper.eq(Reservation::getUserId, userId)
                 .orderByDesc(Reservation::getCreateTime);
-        return this.list(queryWrapper);
+        List<Reservation> reservations = this.list(queryWrapper);
+        relationLoader.hydrateReservations(reservations);
+        return reservations;
     }
 
     @Override
@@ -367,7 +362,9 @@ public class ReservationServiceImpl extends ServiceImpl<ReservationMapper, Reser
         queryWrapper.eq(Reservation::getStatus, ReservationStatus.已预订.getCode())
                 .gt(Reservation::getExpiresAt, LocalDateTime.now())
                 .orderByAsc(Reservation::getCreateTime);
-        return this.list(queryWrapper);
+        List<Reservation> reservations = this.list(queryWrapper);
+        relationLoader.hydrateReservations(reservations);
+        return reservations;
     }
 
     @Override
@@ -377,27 +374,8 @@ public class ReservationServiceImpl extends ServiceImpl<ReservationMapper, Reser
             return null;
         }
 
-        // 获取关联的设备实例
-        List<ReservationInstances> reservationInstances = reservationInstancesService.getByReservationId(reservationId);
-        List<CameraInstance> assignedInstances = new ArrayList<>();
-
-        for (ReservationInstances ri : reservationInstances) {
-            CameraInstance instance = cameraInstanceMapper.selectById(ri.getInstanceId());
-            if (instance != null) {
-                assignedInstances.add(instance);
-            }
-        }
-
-        reservation.setAssignedInstances(assignedInstances);
-
-        // 获取设备型号信息
-        CameraModel cameraModel = cameraModelService.getById(reservation.getModelId());
-        reservation.setCameraModel(cameraModel);
-
-        // 获取用户信息
-        User user = userService.getById(reservation.getUserId());
-        reservation.setUser(user);
-
+        // 用户、设备型号、分配的设备实例按类型各一次批量查询
+        relationLoader.hydrateReservations(Collections.singletonList(reservation));
         return reservation;
     }
 }
\ No newline at end of file
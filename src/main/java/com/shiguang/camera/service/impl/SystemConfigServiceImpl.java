@@ -2,10 +2,11 @@ package com.shiguang.camera.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.shiguang.camera.cache.ConfigSnapshot;
 import com.shiguang.camera.entity.SystemConfig;
 import com.shiguang.camera.mapper.SystemConfigMapper;
-import com.shiguang.camera.service.RefundCalculator;
 import com.shiguang.camera.service.SystemConfigService;
+import com.shiguang.camera.utils.TransactionUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -20,7 +21,7 @@ import java.util.Map;
 public class SystemConfigServiceImpl extends ServiceImpl<SystemConfigMapper, SystemConfig> implements SystemConfigService {
 
     private final SystemConfigMapper systemConfigMapper;
-    private final RefundCalculator refundCalculator;
+    private final ConfigSnapshot configSnapshot;
 
     @Override
     public Map<String, String> getAllConfigs() {
@@ -40,31 +41,28 @@ public class SystemConfigServiceImpl extends ServiceImpl<SystemConfigMapper, Sys
                 new LambdaQueryWrapper<SystemConfig>().eq(SystemConfig::getConfigKey, key)
         );
 
+        boolean updated;
         if (config == null) {
             config = new SystemConfig();
             config.setConfigKey(key);
             config.setConfigValue(value);
-            return this.save(config);
+            updated = this.save(config);
         } else {
             config.setConfigValue(value);
-            boolean updated = this.updateById(config);
-
-            // 更新成功后清除退款计算器的缓存
-            if (updated) {
-                refundCalculator.clearConfigCache();
-                log.info("更新系统配置 {} = {}，已清除缓存", key, value);
-            }
+            updated = this.updateById(config);
+        }
 
-            return updated;
+        // 更新成功后重建配置快照
+        if (updated) {
+            TransactionUtils.afterCommit(configSnapshot::reload);
+            log.info("更新系统配置 {} = {}，已重建配置快照", key, value);
         }
+
+        return updated;
     }
 
     @Override
     public String getConfigValue(String key, String defaultValue) {
-        SystemConfig config = this.getOne(
-                new LambdaQueryWrapper<SystemConfig>().eq(SystemConfig::getConfigKey, key)
-        );
-
-        return config != null ? config.getConfigValue() : defaultValue;
+        return configSnapshot.getString(key, defaultValue);
     }
 }
\ No newline at end of file
@@ -1,12 +1,15 @@
 package com.shiguang.camera.service.impl;
 
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.shiguang.camera.cache.UniqueValueFilters;
+import com.shiguang.camera.cache.UserCache;
 import com.shiguang.camera.entity.User;
 import com.shiguang.camera.mapper.UserMapper;
 import com.shiguang.camera.service.TokenService;
 import com.shiguang.camera.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -18,11 +21,13 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
 
     private final UserMapper userMapper;
     private final TokenService tokenService;
+    private final UserCache userCache;
+    private final UniqueValueFilters uniqueValueFilters;
 
     @Override
     public User register(String phone, String password) {
-        User existingUser = userMapper.selectByPhone(phone);
-        if (existingUser != null) {
+        // 手机号一定未注册时不查询数据库
+        if (uniqueValueFilters.phones().exists(phone, () -> userMapper.selectByPhone(phone) != null)) {
             throw new RuntimeException("手机号已注册");
         }
 
@@ -31,7 +36,14 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         user.setPassword(password);
         user.setRegisterTime(LocalDateTime.now());
 
-        boolean saved = this.save(user);
+        uniqueValueFilters.phones().add(phone);
+        boolean saved;
+        try {
+            saved = this.save(user);
+        } catch (DuplicateKeyException e) {
+            // 其他节点或直接写库的手机号过滤器不知道，以手机号唯一索引为准
+            throw new RuntimeException("手机号已注册");
+        }
         if (!saved) {
             throw new RuntimeException("用户注册失败");
         }
@@ -74,11 +86,17 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
             throw new RuntimeException("已经实名认证");
         }
 
-        User existingUser = userMapper.selectByIdCard(idCard);
-        log.info("身份证号查询结果: {}", existingUser);
-
-        if (existingUser != null && !existingUser.getId().equals(userId)) {
-            log.error("实名认证失败：身份证号已被使用，用户ID: {}，占用用户ID: {}", userId, existingUser.getId());
+        // 身份证号一定未被使用时不查询数据库
+        boolean idCardUsed = uniqueValueFilters.idCards().exists(idCard, () -> {
+            User existingUser = userMapper.selectByIdCard(idCard);
+            log.info("身份证号查询结果: {}", existingUser);
+            if (existingUser != null && !existingUser.getId().equals(userId)) {
+                log.error("实名认证失败：身份证号已被使用，用户ID: {}，占用用户ID: {}", userId, existingUser.getId());
+                return true;
+            }
+            return false;
+        });
+        if (idCardUsed) {
             throw new RuntimeException("身份证号已被使用");
         }
 
@@ -89,8 +107,18 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
 
         log.info("准备更新用户信息...");
 
-        boolean updated = this.updateById(user);
+        uniqueValueFilters.idCards().add(idCard);
+
+        boolean updated;
+        try {
+            updated = this.updateById(user);
+        } catch (DuplicateKeyException e) {
+            // 以身份证号唯一索引为准
+            log.error("实名认证失败：身份证号已被使用，用户ID: {}", userId);
+            throw new RuntimeException("身份证号已被使用");
+        }
         if (updated) {
+            userCache.invalidate(userId);
             log.info("用户实名认证成功，用户ID：{}，姓名：{}", userId, realName);
         } else {
             log.error("用户实名认证失败，更新数据库失败");
@@ -114,6 +142,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         boolean updated = this.updateById(user);
 
         if (updated) {
+            userCache.invalidate(userId);
             // 不再调用 clearUserTokens，因为JWT是无状态的
             // 客户端需要重新登录获取新token
             log.info("用户修改密码成功，用户ID：{}，建议客户端重新登录", userId);
@@ -122,6 +151,16 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         return updated;
     }
 
+    @Override
+    public boolean updateRole(Integer userId, Integer roleId) {
+        boolean updated = userMapper.updateRole(userId, roleId) > 0;
+        if (updated) {
+            userCache.invalidate(userId);
+            log.info("更新用户角色成功，用户ID：{}，角色ID：{}", userId, roleId);
+        }
+        return updated;
+    }
+
     @Override
     public User getUserByPhone(String phone) {
         return userMapper.selectByPhone(phone);
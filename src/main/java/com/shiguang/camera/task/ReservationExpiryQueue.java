@@ -0,0 +1,74 @@
+package com.shiguang.camera.task;
+
+import com.shiguang.camera.utils.TransactionUtils;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 预订过期延迟队列
+ * 预订创建时按 expiresAt 登记，到期后由 ReservationTask 的工作线程取出并逐条处理。
+ * 预订在到期前被支付、确认或取消时不需要移除，处理时会按当前状态判断是否仍需过期。
+ * 带小数秒的到期时间向上取整到秒（与 DATETIME 的进位一致），不会早于库中的 expires_at 触发。
+ */
+@Component
+public class ReservationExpiryQueue {
+
+    private final DelayQueue<ExpiryEntry> queue = new DelayQueue<>();
+
+    /**
+     * 登记预订的过期时间
+     */
+    public void register(Integer reservationId, LocalDateTime expiresAt) {
+        if (reservationId == null || expiresAt == null) {
+            return;
+        }
+        LocalDateTime dueAt = expiresAt.getNano() == 0
+                ? expiresAt : expiresAt.truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+        long expireAtMillis = dueAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        queue.put(new ExpiryEntry(reservationId, expireAtMillis));
+    }
+
+    /**
+     * 在当前事务提交后登记预订的过期时间
+     */
+    public void registerAfterCommit(Integer reservationId, LocalDateTime expiresAt) {
+        TransactionUtils.afterCommit(() -> register(reservationId, expiresAt));
+    }
+
+    /**
+     * 阻塞等待下一条到期的预订ID
+     */
+    public Integer take() throws InterruptedException {
+        return queue.take().reservationId;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    private static final class ExpiryEntry implements Delayed {
+        private final Integer reservationId;
+        private final long expireAtMillis;
+
+        private ExpiryEntry(Integer reservationId, long expireAtMillis) {
+            this.reservationId = reservationId;
+            this.expireAtMillis = expireAtMillis;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expireAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(expireAtMillis, ((ExpiryEntry) other).expireAtMillis);
+        }
+    }
+}
@@ -1,21 +1,18 @@
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.shiguang.camera.entity.CameraInstance;
+package com.shiguang.camera.task;
+
 import com.shiguang.camera.entity.Reservation;
-import com.shiguang.camera.entity.ReservationInstances;
-import com.shiguang.camera.enums.CameraInstanceStatus;
 import com.shiguang.camera.enums.ReservationStatus;
-import com.shiguang.camera.mapper.CameraInstanceMapper;
-import com.shiguang.camera.mapper.ReservationInstancesMapper;
 import com.shiguang.camera.service.ReservationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PreDestroy;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Component
@@ -23,41 +20,74 @@ import java.util.stream.Collectors;
 public class ReservationTask {
 
     private final ReservationService reservationService;
-    private final CameraInstanceMapper cameraInstanceMapper;
-    private final ReservationInstancesMapper reservationInstancesMapper;
+    private final ReservationExpiryQueue reservationExpiryQueue;
 
-    @Scheduled(fixedRate = 60000)
-    @Transactional(rollbackFor = Exception.class)
-    public void checkExpiredReservations() {
-        // 1. 查找过期的预订（状态为0-已预订，且过期时间小于当前时间）
-        LambdaQueryWrapper<Reservation> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(Reservation::getStatus, ReservationStatus.已预订.getCode()) // 使用枚举
-                .lt(Reservation::getExpiresAt, LocalDateTime.now());
+    private volatile Thread expiryWorker;
+
+    /**
+     * 启动时从数据库恢复待过期的预订，并启动过期处理线程
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startExpiryWorker() {
+        List<Reservation> pendingReservations = reservationService.lambdaQuery()
+                .select(Reservation::getId, Reservation::getExpiresAt)
+                .eq(Reservation::getStatus, ReservationStatus.已预订.getCode())
+                .list();
+        for (Reservation reservation : pendingReservations) {
+            reservationExpiryQueue.register(reservation.getId(), reservation.getExpiresAt());
+        }
+        log.info("预订过期队列已恢复 {} 条待过期预订", pendingReservations.size());
+
+        Thread worker = new Thread(this::runExpiryLoop, "reservation-expiry");
+        worker.setDaemon(true);
+        worker.start();
+        expiryWorker = worker;
+    }
+
+    @PreDestroy
+    public void stopExpiryWorker() {
+        Thread worker = expiryWorker;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
 
-        List<Reservation> expiredReservations = reservationService.list(queryWrapper);
+    /**
+     * 兜底扫描：低频检查遗漏的过期预订（例如队列登记前进程退出）
+     */
+    @Scheduled(fixedRateString = "${schedule.reservation-check-rate:600000}")
+    public void checkExpiredReservations() {
+        // 查找过期的预订（状态为0-已预订，且过期时间小于当前时间）
+        List<Reservation> expiredReservations = reservationService.lambdaQuery()
+                .select(Reservation::getId)
+                .eq(Reservation::getStatus, ReservationStatus.已预订.getCode())
+                .lt(Reservation::getExpiresAt, LocalDateTime.now())
+                .list();
 
         for (Reservation reservation : expiredReservations) {
-            // 2. 获取该预订关联的设备实例
-            List<ReservationInstances> reservationInstances = reservationInstancesMapper.selectList(
-                    new LambdaQueryWrapper<ReservationInstances>()
-                            .eq(ReservationInstances::getReservationId, reservation.getId())
-            );
-
-            // 3. 将设备实例状态从5（预占中）改为0（可用）
-            for (ReservationInstances ri : reservationInstances) {
-                CameraInstance instance = cameraInstanceMapper.selectById(ri.getInstanceId());
-                if (instance != null && instance.getStatus() == CameraInstanceStatus.PRE_RESERVED.getCode()) {
-                    instance.setStatus(CameraInstanceStatus.AVAILABLE.getCode()); // 使用枚举
-                    cameraInstanceMapper.updateById(instance);
-                }
-            }
+            expire(reservation.getId());
+        }
+    }
 
-            // 4. 更新预订状态为2（已取消）
-            reservation.setStatus(ReservationStatus.已取消.getCode()); // 使用枚举
-            reservationService.updateById(reservation);
+    private void runExpiryLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                expire(reservationExpiryQueue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.info("预订过期处理线程已退出");
+    }
 
-            log.info("自动取消过期预订 {}，释放设备实例：{}", reservation.getId(),
-                    reservationInstances.stream().map(ReservationInstances::getInstanceId).collect(Collectors.toList()));
+    /**
+     * 每条预订单独一个事务处理，失败只影响当前预订，由兜底扫描重试
+     */
+    private void expire(Integer reservationId) {
+        try {
+            reservationService.expireReservation(reservationId);
+        } catch (Exception e) {
+            log.error("自动取消过期预订 {} 失败：{}", reservationId, e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+}
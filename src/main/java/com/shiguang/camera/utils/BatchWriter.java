@@ -0,0 +1,59 @@
+package com.shiguang.camera.utils;
+
+import com.shiguang.camera.exception.BusinessException;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * 批量写入工具
+ *
+ * 配合 Mapper 中的多值 INSERT（&lt;foreach&gt; 拼接 VALUES）使用：按块切分后每块一条语句、一次往返，
+ * 避免单条 SQL 过长超出 max_allowed_packet。写入异常原样抛出，由调用方事务回滚。
+ */
+public final class BatchWriter {
+
+    // 每条语句的默认行数
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    private BatchWriter() {
+    }
+
+    /**
+     * 按默认块大小分块写入
+     * @return 影响行数合计
+     */
+    public static <T> int write(List<T> rows, ToIntFunction<List<T>> writer) {
+        return write(rows, DEFAULT_CHUNK_SIZE, writer);
+    }
+
+    /**
+     * 分块写入
+     * @param writer 写入一块数据，返回影响行数
+     * @return 影响行数合计
+     */
+    public static <T> int write(List<T> rows, int chunkSize, ToIntFunction<List<T>> writer) {
+        if (rows == null || rows.isEmpty()) {
+            return 0;
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize 必须大于 0");
+        }
+        int affected = 0;
+        for (int from = 0; from < rows.size(); from += chunkSize) {
+            affected += writer.applyAsInt(rows.subList(from, Math.min(from + chunkSize, rows.size())));
+        }
+        return affected;
+    }
+
+    /**
+     * 分块写入并校验每行都已写入（纯 INSERT 场景），否则抛出业务异常
+     */
+    public static <T> void writeAll(List<T> rows, ToIntFunction<List<T>> writer, String errorMessage) {
+        int affected = write(rows, DEFAULT_CHUNK_SIZE, writer);
+        int expected = rows == null ? 0 : rows.size();
+        if (affected != expected) {
+            throw new BusinessException(errorMessage + "，预期 " + expected + " 行，实际 " + affected + " 行");
+        }
+    }
+}
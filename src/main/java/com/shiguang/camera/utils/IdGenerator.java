@@ -0,0 +1,145 @@
+package com.shiguang.camera.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 业务单号生成器（订单号 / 支付单号 / 交易流水号）
+ *
+ * 格式：前缀 + yyyyMMddHHmmssSSS + 2位节点号 + 4位毫秒内序号，例如 ORD20240501103000123010007
+ * 序号状态为 (毫秒时间戳 × 10000 + 序号)，通过 CAS 单调递增：
+ * 同一毫秒内序号用完或时钟回拨时沿用/借用后续毫秒，保证单节点内不重复；
+ * 不同节点通过 app.id.node-id 区分，每个节点必须显式配置不同的值（0-99），未配置时启动失败，
+ * 不按主机名、进程名等推导（取模后可能相同，单号会跨节点重复）。
+ */
+@Slf4j
+@Component
+public class IdGenerator {
+
+    public static final String ORDER_PREFIX = "ORD";
+    public static final String PAYMENT_PREFIX = "PAY";
+    public static final String TRANSACTION_PREFIX = "TXN";
+
+    // 每毫秒可分配的序号数
+    private static final long SEQUENCE_PER_MILLI = 10000L;
+
+    private static final int MAX_NODE_ID = 99;
+
+    // 前缀(最长9) + 时间(17) + 节点(2) + 序号(4)
+    private static final int MAX_LENGTH = 32;
+
+    private final int nodeId;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final AtomicLong lastState = new AtomicLong();
+
+    // 每个线程复用一个字符缓冲区，以及当前秒的日期时间字符
+    private final ThreadLocal<Buffer> buffers = ThreadLocal.withInitial(Buffer::new);
+
+    public IdGenerator(@Value("${app.id.node-id:#{null}}") Integer nodeId) {
+        if (nodeId == null) {
+            throw new IllegalStateException("未配置 app.id.node-id（环境变量 APP_NODE_ID），每个节点必须配置不同的节点号 0-" + MAX_NODE_ID);
+        }
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("app.id.node-id 取值范围为 0-" + MAX_NODE_ID + "：" + nodeId);
+        }
+        this.nodeId = nodeId;
+        log.info("单号生成器节点号：{}", nodeId);
+    }
+
+    /**
+     * 生成订单号
+     */
+    public String nextOrderNo() {
+        return next(ORDER_PREFIX);
+    }
+
+    /**
+     * 生成支付单号
+     */
+    public String nextPaymentNo() {
+        return next(PAYMENT_PREFIX);
+    }
+
+    /**
+     * 生成交易流水号
+     */
+    public String nextTransactionNo() {
+        return next(TRANSACTION_PREFIX);
+    }
+
+    /**
+     * 按指定前缀生成单号，前缀长度不超过9
+     */
+    public String next(String prefix) {
+        long state = nextState();
+        long millis = state / SEQUENCE_PER_MILLI;
+        int sequence = (int) (state % SEQUENCE_PER_MILLI);
+
+        Buffer buffer = buffers.get();
+        char[] chars = buffer.chars;
+        int pos = prefix.length();
+        prefix.getChars(0, pos, chars, 0);
+
+        long second = Math.floorDiv(millis, 1000L);
+        if (second != buffer.second) {
+            buffer.updateSecond(second, zone);
+        }
+        System.arraycopy(buffer.secondChars, 0, chars, pos, 14);
+        pos += 14;
+        pos = writeDigits(chars, pos, (int) Math.floorMod(millis, 1000L), 3);
+        pos = writeDigits(chars, pos, nodeId, 2);
+        pos = writeDigits(chars, pos, sequence, 4);
+        return new String(chars, 0, pos);
+    }
+
+    /**
+     * 取下一个 (毫秒 × 10000 + 序号) 状态，始终严格大于上一个
+     */
+    private long nextState() {
+        long now = System.currentTimeMillis() * SEQUENCE_PER_MILLI;
+        while (true) {
+            long prev = lastState.get();
+            long next = Math.max(prev + 1, now);
+            if (lastState.compareAndSet(prev, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * 将非负整数按固定宽度（左补零）写入缓冲区，返回写入后的位置
+     */
+    private static int writeDigits(char[] chars, int pos, int value, int width) {
+        for (int i = pos + width - 1; i >= pos; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + width;
+    }
+
+    private static final class Buffer {
+        private final char[] chars = new char[MAX_LENGTH];
+        private final char[] secondChars = new char[14];
+        private long second = Long.MIN_VALUE;
+
+        /**
+         * 秒数变化时重新生成 yyyyMMddHHmmss，每线程每秒最多一次
+         */
+        private void updateSecond(long second, ZoneId zone) {
+            LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochSecond(second), zone);
+            int pos = writeDigits(secondChars, 0, time.getYear(), 4);
+            pos = writeDigits(secondChars, pos, time.getMonthValue(), 2);
+            pos = writeDigits(secondChars, pos, time.getDayOfMonth(), 2);
+            pos = writeDigits(secondChars, pos, time.getHour(), 2);
+            pos = writeDigits(secondChars, pos, time.getMinute(), 2);
+            writeDigits(secondChars, pos, time.getSecond(), 2);
+            this.second = second;
+        }
+    }
+}
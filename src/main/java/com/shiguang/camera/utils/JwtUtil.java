@@ -37,6 +37,21 @@ public class JwtUtil {
                 .compact();
     }
     
+    /**
+     * 解析并校验Token（签名和过期时间），一次解析同时返回用户ID、手机号和过期时间
+     * @return 解析结果，Token无效时返回 null
+     */
+    public TokenClaims parseToken(String token) {
+        try {
+            Claims claims = getClaimsFromToken(token);
+            return new TokenClaims(claims.get("userId", Integer.class),
+                    claims.getSubject(),
+                    claims.getExpiration().getTime());
+        } catch (Exception e) {
+            return null;
+        }
+    }
+    
     /**
      * 从Token中获取用户ID
      */
@@ -95,4 +110,27 @@ public class JwtUtil {
                 .signWith(SignatureAlgorithm.HS512, secret)
                 .compact();
     }
-}
\ No newline at end of file
+    
+    /**
+     * Token解析结果
+     */
+    public static final class TokenClaims {
+        private final Integer userId;
+        private final String phone;
+        private final long expiresAtMillis;
+        
+        public TokenClaims(Integer userId, String phone, long expiresAtMillis) {
+            this.userId = userId;
+            this.phone = phone;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+        
+        public Integer getUserId() { return userId; }
+        public String getPhone() { return phone; }
+        public long getExpiresAtMillis() { return expiresAtMillis; }
+        
+        public boolean isExpired() {
+            return expiresAtMillis <= System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.shiguang.camera.utils;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
+import com.shiguang.camera.common.ResultCode;
+import com.shiguang.camera.exception.BusinessException;
+import com.shiguang.camera.vo.CursorPage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标分页（keyset / seek）
+ * 按 (create_time DESC, id DESC) 排序，游标为上一页最后一条记录的 create_time,id，
+ * 下一页条件为 create_time < t OR (create_time = t AND id < id)，无论翻到第几页都只扫描 size+1 行。
+ * create_time 为空的行在倒序中排在最后（MySQL 的 NULL 最小）：非空游标之后也包含这些行，
+ * 游标落在空时间的行上时只按 id 继续（create_time IS NULL AND id < id）。
+ * 游标对客户端不透明（URL 安全的 Base64）。
+ */
+public final class PageCursor {
+
+    // 单页最大条数
+    public static final int MAX_SIZE = 200;
+
+    private final LocalDateTime createTime;
+    private final Integer id;
+
+    private PageCursor(LocalDateTime createTime, Integer id) {
+        this.createTime = createTime;
+        this.id = id;
+    }
+
+    /**
+     * 生成游标，createTime 为空时只记录 id
+     */
+    public static String encode(LocalDateTime createTime, Integer id) {
+        String raw = (createTime != null ? createTime.toString() : "") + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标，空串或 null 表示第一页（返回 null）
+     */
+    public static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int comma = raw.indexOf(',');
+            String time = raw.substring(0, comma);
+            return new PageCursor(time.isEmpty() ? null : LocalDateTime.parse(time), Integer.valueOf(raw.substring(comma + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new BusinessException(ResultCode.BAD_REQUEST.getCode(), "无效的分页游标");
+        }
+    }
+
+    /**
+     * 在查询条件上追加游标条件、排序和 LIMIT（多取一条用于判断是否还有下一页）
+     */
+    public static <T> void seek(LambdaQueryWrapper<T> wrapper, String cursor, int size,
+                                SFunction<T, LocalDateTime> timeColumn, SFunction<T, Integer> idColumn) {
+        PageCursor position = decode(cursor);
+        if (position != null && position.createTime != null) {
+            wrapper.and(w -> w.lt(timeColumn, position.createTime)
+                    .or(o -> o.eq(timeColumn, position.createTime).lt(idColumn, position.id))
+                    .or(o -> o.isNull(timeColumn)));
+        } else if (position != null) {
+            wrapper.and(w -> w.isNull(timeColumn).lt(idColumn, position.id));
+        }
+        wrapper.orderByDesc(timeColumn).orderByDesc(idColumn);
+        wrapper.last("LIMIT " + (normalizeSize(size) + 1));
+    }
+
+    /**
+     * 把多取一条的查询结果转换为分页结果
+     * @param total 总数，不需要时传 null
+     */
+    public static <T> CursorPage<T> toPage(List<T> rows, int size,
+                                           Function<T, LocalDateTime> timeGetter, Function<T, Integer> idGetter,
+                                           Long total) {
+        int limit = normalizeSize(size);
+        CursorPage<T> page = new CursorPage<>();
+        page.setSize(limit);
+        page.setTotal(total);
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            T last = rows.get(limit - 1);
+            page.setHasMore(true);
+            page.setNextCursor(encode(timeGetter.apply(last), idGetter.apply(last)));
+        }
+        page.setRecords(rows);
+        return page;
+    }
+
+    public static int normalizeSize(int size) {
+        return Math.max(1, Math.min(size, MAX_SIZE));
+    }
+
+    public LocalDateTime getCreateTime() {
+        return createTime;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+}
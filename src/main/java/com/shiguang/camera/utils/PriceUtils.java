@@ -0,0 +1,31 @@
+package com.shiguang.camera.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+public class PriceUtils {
+
+    /**
+     * 计算租期天数（首尾两天都计入）
+     */
+    public static long rentalDays(LocalDate startDate, LocalDate endDate) {
+        return ChronoUnit.DAYS.between(startDate, endDate) + 1;
+    }
+
+    /**
+     * 计算租金：日租金 × 天数，保留两位小数
+     */
+    public static BigDecimal rentalAmount(BigDecimal dailyPrice, long days) {
+        return dailyPrice.multiply(BigDecimal.valueOf(days))
+                .setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * 计算总金额：租金 + 押金，保留两位小数
+     */
+    public static BigDecimal totalAmount(BigDecimal rentalAmount, BigDecimal deposit) {
+        return rentalAmount.add(deposit).setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,110 @@
+package com.shiguang.camera.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按键限流器（令牌桶）
+ *
+ * 每个键只保存一个 long：下一次“理论到达时间”（GCRA 算法，基于 System.nanoTime），
+ * 与容量为 capacity、每 refillNanos 恢复一个令牌的令牌桶等价，且检查与扣减在同一步完成，不存在先查后写的竞态。
+ * 键按哈希分布到多个分段，每个分段独立加锁，并按访问顺序做 LRU 淘汰，总键数有上限。
+ */
+@Component
+public class RateLimiter {
+
+    // 分段数（2的幂）
+    private static final int SHARD_COUNT = 64;
+
+    private final Shard[] shards = new Shard[SHARD_COUNT];
+    private final LongAdder allowedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public RateLimiter(@Value("${app.rate-limit.max-keys:100000}") int maxKeys) {
+        int maxKeysPerShard = Math.max(1, maxKeys / SHARD_COUNT);
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            shards[i] = new Shard(maxKeysPerShard);
+        }
+    }
+
+    /**
+     * 尝试获取一个令牌
+     * @param capacity 桶容量（允许的突发次数）
+     * @param refillMillis 恢复一个令牌所需的毫秒数
+     * @return 获取成功返回 true，被限流返回 false
+     */
+    public boolean tryAcquire(String key, int capacity, long refillMillis) {
+        int hash = key.hashCode();
+        Shard shard = shards[(hash ^ (hash >>> 16)) & (SHARD_COUNT - 1)];
+        boolean allowed = shard.tryAcquire(key, capacity, TimeUnit.MILLISECONDS.toNanos(refillMillis), System.nanoTime());
+        if (allowed) {
+            allowedCount.increment();
+        } else {
+            rejectedCount.increment();
+        }
+        return allowed;
+    }
+
+    /**
+     * 限流统计信息
+     */
+    public Map<String, Object> stats() {
+        int size = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                size += shard.size();
+            }
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", size);
+        result.put("allowedCount", allowedCount.sum());
+        result.put("rejectedCount", rejectedCount.sum());
+        return result;
+    }
+
+    /**
+     * 单个分段：按访问顺序排列的 LinkedHashMap，超出容量时淘汰最久未访问的键
+     */
+    private static final class Shard extends LinkedHashMap<String, Bucket> {
+        private final int maxSize;
+
+        private Shard(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+            return size() > maxSize;
+        }
+
+        private synchronized boolean tryAcquire(String key, int capacity, long refillNanos, long now) {
+            Bucket bucket = get(key);
+            if (bucket == null) {
+                bucket = new Bucket(now);
+                put(key, bucket);
+            }
+            // 理论到达时间超前当前时间不超过 (capacity-1) 个间隔时放行；nanoTime 只能比较差值
+            long tolerance = (capacity - 1) * refillNanos;
+            if (bucket.theoreticalArrival - now > tolerance) {
+                return false;
+            }
+            long base = bucket.theoreticalArrival - now > 0 ? bucket.theoreticalArrival : now;
+            bucket.theoreticalArrival = base + refillNanos;
+            return true;
+        }
+    }
+
+    private static final class Bucket {
+        private long theoreticalArrival;
+
+        private Bucket(long theoreticalArrival) {
+            this.theoreticalArrival = theoreticalArrival;
+        }
+    }
+}
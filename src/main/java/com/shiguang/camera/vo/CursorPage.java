@@ -0,0 +1,17 @@
+package com.shiguang.camera.vo;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+//游标分页结果
+public class CursorPage<T> {
+    private List<T> records;
+    private Integer size;
+    // 下一页游标，没有下一页时为 null
+    private String nextCursor;
+    private boolean hasMore;
+    // 总数，仅在请求 withTotal=true 时返回
+    private Long total;
+}
@@ -0,0 +1,195 @@
+package com.shiguang.camera.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.shiguang.camera.entity.Brand;
+import com.shiguang.camera.entity.CameraInstance;
+import com.shiguang.camera.entity.CameraModel;
+import com.shiguang.camera.enums.CameraInstanceStatus;
+import com.shiguang.camera.exception.BusinessException;
+import com.shiguang.camera.mapper.BrandMapper;
+import com.shiguang.camera.mapper.CameraInstanceMapper;
+import com.shiguang.camera.mapper.CameraModelMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 设备实例分配并发测试（需要 application.yml 中配置的 MySQL，连不上时跳过）
+ *
+ * 500 个线程同时为同一型号各占用 1 台，库存少于请求数：成功占用的实例ID两两不重叠，总数等于库存。
+ * 进程内分段锁在 claim 返回时（事务提交前）就已释放，后续请求进入时前面事务锁定的行尚未提交，
+ * 因此不重复分配依赖的是 FOR UPDATE SKIP LOCKED 的行锁和带状态条件的 UPDATE。
+ * 每个事务在 claim 之后、提交之前随机停顿几毫秒，拉长这段窗口。
+ */
+@EnabledIf("databaseAvailable")
+@SpringBootTest(properties = "app.id.node-id=1")
+class InstanceAllocatorConcurrencyTest {
+
+    private static final int THREADS = 500;
+    private static final int STOCK = 120;
+
+    @Autowired
+    private InstanceAllocator instanceAllocator;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private BrandMapper brandMapper;
+
+    @Autowired
+    private CameraModelMapper cameraModelMapper;
+
+    @Autowired
+    private CameraInstanceMapper cameraInstanceMapper;
+
+    private Brand brand;
+    private CameraModel model;
+
+    @BeforeEach
+    void createStock() {
+        String suffix = Long.toString(System.nanoTime(), 36);
+
+        brand = new Brand();
+        brand.setName("并发测试品牌-" + suffix);
+        brand.setStatus(1);
+        brand.setSortOrder(0);
+        brandMapper.insert(brand);
+
+        model = new CameraModel();
+        model.setName("并发测试型号-" + suffix);
+        model.setBrandId(brand.getId());
+        model.setModel("CT-" + suffix);
+        model.setDailyPrice(new BigDecimal("100.00"));
+        model.setDeposit(new BigDecimal("1000.00"));
+        model.setStatus(1);
+        model.setInventoryType(1);
+        cameraModelMapper.insert(model);
+
+        List<CameraInstance> instances = new ArrayList<>(STOCK);
+        for (int i = 0; i < STOCK; i++) {
+            CameraInstance instance = new CameraInstance();
+            instance.setModelId(model.getId());
+            instance.setSerialNumber("CT-" + suffix + "-" + i);
+            instance.setStatus(CameraInstanceStatus.AVAILABLE.getCode());
+            instance.setCondition(0);
+            instances.add(instance);
+        }
+        cameraInstanceMapper.insertBatch(instances);
+    }
+
+    @AfterEach
+    void dropStock() {
+        cameraInstanceMapper.delete(new LambdaQueryWrapper<CameraInstance>()
+                .eq(CameraInstance::getModelId, model.getId()));
+        cameraModelMapper.deleteById(model.getId());
+        brandMapper.deleteById(brand.getId());
+    }
+
+    @Test
+    void concurrentClaimsNeverShareAnInstance() throws InterruptedException {
+        ConcurrentLinkedQueue<List<Integer>> claims = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<Throwable> unexpected = new ConcurrentLinkedQueue<>();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch ready = new CountDownLatch(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(THREADS);
+
+        for (int i = 0; i < THREADS; i++) {
+            Thread thread = new Thread(() -> {
+                ready.countDown();
+                try {
+                    start.await();
+                    List<Integer> claimed = transactionTemplate.execute(status -> {
+                        List<Integer> ids = instanceAllocator.claim(model.getId(), 1);
+                        // 分段锁已释放、事务尚未提交
+                        pause();
+                        return ids;
+                    });
+                    claims.add(claimed);
+                } catch (BusinessException e) {
+                    rejected.incrementAndGet();
+                } catch (Throwable e) {
+                    unexpected.add(e);
+                } finally {
+                    done.countDown();
+                }
+            }, "claim-" + i);
+            thread.start();
+        }
+
+        ready.await();
+        start.countDown();
+        assertTrue(done.await(2, TimeUnit.MINUTES), "并发占用未在时限内完成");
+        assertTrue(unexpected.isEmpty(), () -> "出现非业务异常: " + unexpected.peek());
+
+        Set<Integer> distinct = new HashSet<>();
+        int total = 0;
+        for (List<Integer> claimed : claims) {
+            for (Integer id : claimed) {
+                assertTrue(distinct.add(id), "设备实例被重复分配: " + id);
+            }
+            total += claimed.size();
+        }
+        assertEquals(STOCK, total);
+        assertEquals(STOCK, distinct.size());
+        assertEquals(THREADS - STOCK, rejected.get());
+
+        Long preReserved = cameraInstanceMapper.selectCount(new LambdaQueryWrapper<CameraInstance>()
+                .eq(CameraInstance::getModelId, model.getId())
+                .eq(CameraInstance::getStatus, CameraInstanceStatus.PRE_RESERVED.getCode()));
+        assertEquals(STOCK, preReserved.intValue());
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(1, 6));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 按 application.yml 中的数据源试连一次
+     */
+    static boolean databaseAvailable() {
+        YamlPropertiesFactoryBean yaml = new YamlPropertiesFactoryBean();
+        yaml.setResources(new ClassPathResource("application.yml"));
+        Properties properties = yaml.getObject();
+        if (properties == null) {
+            return false;
+        }
+        try (Connection ignored = DriverManager.getConnection(
+                properties.getProperty("spring.datasource.url"),
+                properties.getProperty("spring.datasource.username"),
+                properties.getProperty("spring.datasource.password"))) {
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+}